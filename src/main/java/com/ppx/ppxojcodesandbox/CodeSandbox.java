@@ -12,4 +12,14 @@ public interface CodeSandbox {
      */
     ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest);
 
+    /**
+     * 执行代码，每个用例完成时回调（不支持逐个回调的实现只返回最终结果）
+     * @param executeCodeRequest
+     * @param listener
+     * @return
+     */
+    default ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, ExecuteCaseListener listener) {
+        return executeCode(executeCodeRequest);
+    }
+
 }
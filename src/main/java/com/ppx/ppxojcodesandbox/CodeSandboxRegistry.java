@@ -0,0 +1,116 @@
+package com.ppx.ppxojcodesandbox;
+
+import com.ppx.ppxojcodesandbox.model.SandboxStats;
+import com.ppx.ppxojcodesandbox.model.enums.QuestionSubmitLanguageEnum;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 代码沙箱注册表，按语言保存单例沙箱
+ * 沙箱和它们的常驻资源（执行器池、缓存等）在整个进程生命周期内复用，每种语言各自限制并发数和排队数
+ */
+@Component
+public class CodeSandboxRegistry {
+
+    @Resource
+    private JavaNativeCodeSandbox javaNativeCodeSandbox;
+
+    @Resource
+    private JavaDockerCodeSandbox javaDockerCodeSandbox;
+
+    @Resource
+    private CppNativeCodeSandbox cppNativeCodeSandbox;
+
+    @Resource
+    private PythonNativeCodeSandbox pythonNativeCodeSandbox;
+
+    // Java 使用的沙箱：native 或 docker
+    @Value("${codesandbox.sandbox.java.impl:native}")
+    private String javaImpl;
+
+    @Value("${codesandbox.sandbox.java.max-concurrent:4}")
+    private int javaMaxConcurrent;
+
+    @Value("${codesandbox.sandbox.java.max-queue:64}")
+    private int javaMaxQueue;
+
+    @Value("${codesandbox.sandbox.cpp.max-concurrent:4}")
+    private int cppMaxConcurrent;
+
+    @Value("${codesandbox.sandbox.cpp.max-queue:64}")
+    private int cppMaxQueue;
+
+    @Value("${codesandbox.sandbox.python.max-concurrent:4}")
+    private int pythonMaxConcurrent;
+
+    @Value("${codesandbox.sandbox.python.max-queue:64}")
+    private int pythonMaxQueue;
+
+    // 排队等待的最长时间
+    @Value("${codesandbox.sandbox.queue-timeout-ms:30000}")
+    private long queueTimeoutMs;
+
+    private final Map<QuestionSubmitLanguageEnum, LimitedCodeSandbox> sandboxMap = new EnumMap<>(QuestionSubmitLanguageEnum.class);
+
+    @PostConstruct
+    public void init() {
+        CodeSandbox javaSandbox = "docker".equalsIgnoreCase(javaImpl) ? javaDockerCodeSandbox : javaNativeCodeSandbox;
+        register(QuestionSubmitLanguageEnum.JAVA, javaSandbox, javaMaxConcurrent, javaMaxQueue);
+        register(QuestionSubmitLanguageEnum.CPP, cppNativeCodeSandbox, cppMaxConcurrent, cppMaxQueue);
+        register(QuestionSubmitLanguageEnum.PYTHON, pythonNativeCodeSandbox, pythonMaxConcurrent, pythonMaxQueue);
+    }
+
+    private void register(QuestionSubmitLanguageEnum language, CodeSandbox codeSandbox, int maxConcurrent, int maxQueue) {
+        sandboxMap.put(language, new LimitedCodeSandbox(language.getValue(), codeSandbox, maxConcurrent, maxQueue, queueTimeoutMs));
+    }
+
+    /**
+     * 根据编程语言获取对应的代码沙箱
+     *
+     * @param language 编程语言
+     * @return 代码沙箱
+     */
+    public CodeSandbox get(QuestionSubmitLanguageEnum language) {
+        CodeSandbox codeSandbox = language == null ? null : sandboxMap.get(language);
+        if (codeSandbox == null) {
+            throw new RuntimeException("暂不支持的编程语言: " + language);
+        }
+        return codeSandbox;
+    }
+
+    /**
+     * 根据请求中的语言获取对应的代码沙箱，支持枚举值（java）和枚举名（JAVA）
+     *
+     * @param language 请求中的语言
+     * @return 代码沙箱
+     */
+    public CodeSandbox get(String language) {
+        QuestionSubmitLanguageEnum languageEnum = QuestionSubmitLanguageEnum.getEnumByValue(language);
+        if (languageEnum == null && language != null) {
+            for (QuestionSubmitLanguageEnum value : QuestionSubmitLanguageEnum.values()) {
+                if (value.name().equalsIgnoreCase(language)) {
+                    languageEnum = value;
+                }
+            }
+        }
+        if (languageEnum == null) {
+            throw new RuntimeException("暂不支持的编程语言: " + language);
+        }
+        return get(languageEnum);
+    }
+
+    public List<SandboxStats> getStats() {
+        List<SandboxStats> statsList = new ArrayList<>();
+        for (LimitedCodeSandbox codeSandbox : sandboxMap.values()) {
+            statsList.add(codeSandbox.getStats());
+        }
+        return statsList;
+    }
+}
@@ -2,25 +2,35 @@ package com.ppx.ppxojcodesandbox;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ObjectUtil;
+import com.ppx.ppxojcodesandbox.cgroup.CgroupLimits;
+import com.ppx.ppxojcodesandbox.cgroup.CgroupManager;
+import com.ppx.ppxojcodesandbox.cgroup.RunCgroup;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.compile.InProcessJavaCompiler;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
 import com.ppx.ppxojcodesandbox.model.*;
 import com.ppx.ppxojcodesandbox.model.enums.JudgeInfoMessageEnum;
+import com.ppx.ppxojcodesandbox.monitor.RusageWrapper;
+import com.ppx.ppxojcodesandbox.testdata.TestCaseSource;
+import com.ppx.ppxojcodesandbox.testdata.TestDataStore;
+import com.ppx.ppxojcodesandbox.utils.ParallelCaseRunner;
+import com.ppx.ppxojcodesandbox.utils.ProcessRunOptions;
 import com.ppx.ppxojcodesandbox.utils.ProcessUtil;
+import com.ppx.ppxojcodesandbox.workspace.WorkspaceProvider;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.StopWatch;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.UUID;
+import java.util.StringTokenizer;
 
 /**
  * 代码沙箱模板
  */
-import java.util.concurrent.TimeUnit;
-
 @Slf4j
 public abstract class CodeSandboxTemplate implements CodeSandbox {
 
@@ -30,7 +40,15 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
 
     // 使用常量替代魔法数字
     private static final long DEFAULT_TIMEOUT_MS = 10000L;
-    private static final int TIMEOUT_EXIT_CODE = -10001;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    protected WorkspaceProvider workspaceProvider;
+
+    @Resource
+    protected CgroupManager cgroupManager;
 
     /**
      * 获取编译和运行的命令
@@ -40,138 +58,247 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
      */
     protected abstract CodeSandboxCmd getCmd(String userCodeParentPath, String userCodePath);
 
+    /**
+     * 获取编译和运行的命令，需要根据请求调整编译参数的子类覆盖此方法
+     * @param executeCodeRequest 执行请求
+     * @param userCodeParentPath 代码所在的父目录
+     * @param userCodePath 代码所在目录
+     * @return 编译和运行的命令
+     */
+    protected CodeSandboxCmd getCmd(ExecuteCodeRequest executeCodeRequest, String userCodeParentPath, String userCodePath) {
+        return getCmd(userCodeParentPath, userCodePath);
+    }
+
     /**
      * 保存代码到文件
      * @param code 代码内容
      * @return 保存代码的文件
      */
     private File saveCodeToFile(String code) {
-        String globalCodePath = System.getProperty("user.dir") + globalCodeDirPath;
-        FileUtil.mkdir(globalCodePath);
-
-        String userCodeParentPath = globalCodePath + prefix + File.separator + UUID.randomUUID();
-        String userCodePath = userCodeParentPath + globalCodeFileName;
+        // 工作目录优先放在内存文件系统上
+        File userCodeParentDir = workspaceProvider.createWorkspace(globalCodeDirPath + prefix);
+        String userCodePath = userCodeParentDir.getAbsolutePath() + globalCodeFileName;
         return FileUtil.writeString(code, userCodePath, StandardCharsets.UTF_8);
     }
 
     /**
-     * 编译代码
+     * 编译代码，javac 编译命令交给常驻的编译 JVM，避免每次启动 javac 进程
+     * @param userCodeFile 代码文件
      * @param compileCmd 编译命令
      * @return 编译结果
      * @throws IOException 编译过程中的IO异常
      */
-    private ExecuteMessage compileCode(String compileCmd) throws IOException {
+    protected ExecuteMessage compileCode(File userCodeFile, String compileCmd) throws IOException {
+        InProcessJavaCompiler inProcessJavaCompiler = InProcessJavaCompiler.getInstance();
+        if (compileCmd.startsWith("javac ") && inProcessJavaCompiler.isAvailable()) {
+            ExecuteMessage compileMessage = inProcessJavaCompiler.compileToDirectory(userCodeFile);
+            if (compileMessage != null) {
+                return compileMessage;
+            }
+        }
         Process compileProcess = Runtime.getRuntime().exec(compileCmd);
         return ProcessUtil.handleProcessMessage(compileProcess, "编译");
     }
 
     /**
-     * 运行代码
-     * @param inputList 输入用例列表
+     * 运行代码，用例并行执行，结果按输入顺序返回，遇到失败（包括答案错误）的用例即停止
+     * @param executeCodeRequest 执行请求
+     * @param testCaseSource 用例来源
+     * @param workspaceDir 工作目录
      * @param runCmd 运行命令
+     * @param listener 用例完成回调
      * @return 运行结果列表
      */
-    private List<ExecuteMessage> runCode(List<String> inputList, String runCmd) {
-        List<ExecuteMessage> executeMessageList = new ArrayList<>();
-        for (String input : inputList) {
-            try {
-                Process runProcess = Runtime.getRuntime().exec(runCmd);
-                ExecuteMessage executeMessage = runSingleCase(runProcess, input);
-                executeMessageList.add(executeMessage);
-
-                if (executeMessage.getExitValue() != 0) {
-                    break;
+    private List<ExecuteMessage> runCode(ExecuteCodeRequest executeCodeRequest, TestCaseSource testCaseSource, File workspaceDir,
+                                         String runCmd, ExecuteCaseListener listener) {
+        return ParallelCaseRunner.runAll(testCaseSource.size(), getRunParallelism(),
+                index -> {
+                    ProcessRunOptions runOptions = ProcessRunOptions.fromRequest(executeCodeRequest, DEFAULT_TIMEOUT_MS);
+                    OutputChecker outputChecker = testCaseSource.createChecker(index);
+                    runOptions.setOutputChecker(outputChecker);
+                    runOptions.setStdinData(testCaseSource.readInputData(index));
+                    ExecuteMessage executeMessage = runCase(workspaceDir, runCmd, testCaseSource.getInput(index), runOptions,
+                            CgroupLimits.fromRequest(executeCodeRequest.getMemoryLimit(), 0L));
+                    return OutputChecker.applyVerdict(executeMessage, outputChecker);
+                },
+                executeMessage -> executeMessage.getExitValue() != 0,
+                (executeMessage, index) -> listener.onCaseFinished(index, executeMessage));
+    }
+
+    /**
+     * 单次提交的用例并行度，子类可覆盖
+     * @return 并行度
+     */
+    protected int getRunParallelism() {
+        return ParallelCaseRunner.DEFAULT_PARALLELISM;
+    }
+
+    /**
+     * 启动进程运行单个测试用例
+     * @param workspaceDir 工作目录
+     * @param runCmd 运行命令
+     * @param input 输入，输入来自测试数据（runOptions 中的 stdinData）时为 null
+     * @param runOptions 运行限制
+     * @param cgroupLimits cgroup 资源限制，cgroup 不可用时忽略
+     * @return 运行结果
+     */
+    protected ExecuteMessage runCase(File workspaceDir, String runCmd, String input, ProcessRunOptions runOptions, CgroupLimits cgroupLimits) {
+        Process runProcess = null;
+        RunCgroup cgroup = cgroupManager.createRunCgroup(cgroupLimits);
+        try {
+            String[] command = splitCommand(runCmd);
+            if (cgroup == null) {
+                // 没有 cgroup 时由包装进程在用户程序退出时统计内存峰值和 CPU 时间
+                File usageReportFile = RusageWrapper.getInstance().createReportFile();
+                if (usageReportFile != null) {
+                    command = RusageWrapper.getInstance().wrapCommand(command, usageReportFile);
+                    runOptions.setUsageReportFile(usageReportFile);
                 }
-            } catch (IOException | InterruptedException e) {
-                log.error("运行代码出错", e);
-                executeMessageList.add(createErrorMessage(e));
-                break;
+            }
+            command = workspaceProvider.wrapCommand(command);
+            if (cgroup != null) {
+                command = cgroup.wrapCommand(command);
+                runOptions.setCgroup(cgroup);
+            }
+            // 在工作目录中运行，用户程序写出的文件也落在工作目录里
+            runProcess = new ProcessBuilder(command).directory(workspaceDir).start();
+            ExecuteMessage executeMessage = runSingleCase(runProcess, input, runOptions);
+            // 写出的文件超过工作目录配额按输出超限处理
+            if (workspaceProvider.isOverQuota(workspaceDir)) {
+                executeMessage.setExitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE);
+                executeMessage.setErrorMessage("输出溢出");
+            }
+            return executeMessage;
+        } catch (IOException e) {
+            log.error("运行代码出错", e);
+            return createErrorMessage(e);
+        } finally {
+            // 用例被取消（其他用例已失败）时进程可能还在运行
+            if (runProcess != null && runProcess.isAlive()) {
+                runProcess.destroyForcibly();
+            }
+            if (cgroup != null) {
+                cgroup.destroy();
             }
         }
-        return executeMessageList;
+    }
+
+    /**
+     * 按空白拆分命令，和 Runtime.exec(String) 的拆分方式一致
+     * @param cmd 命令
+     * @return 命令和参数
+     */
+    private static String[] splitCommand(String cmd) {
+        StringTokenizer tokenizer = new StringTokenizer(cmd);
+        String[] command = new String[tokenizer.countTokens()];
+        for (int i = 0; tokenizer.hasMoreTokens(); i++) {
+            command[i] = tokenizer.nextToken();
+        }
+        return command;
     }
 
     /**
      * 运行单个测试用例
      * @param runProcess 运行进程
      * @param input 输入
+     * @param runOptions 运行限制
      * @return 运行结果
      */
-    private ExecuteMessage runSingleCase(Process runProcess, String input) throws InterruptedException {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-
-        ExecuteMessage executeMessage = ProcessUtil.handleProcessInteraction(runProcess, input, "运行");
-
-        boolean finished = runProcess.waitFor(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        stopWatch.stop();
-
-        if (!finished) {
-            runProcess.destroy();
-            return ExecuteMessage.builder()
-                    .exitValue(TIMEOUT_EXIT_CODE)
-                    .errorMessage("超时")
-                    .time(DEFAULT_TIMEOUT_MS)
-                    .build();
-        }
-
-        executeMessage.setTime(stopWatch.getLastTaskTimeMillis());
-        return executeMessage;
+    private ExecuteMessage runSingleCase(Process runProcess, String input, ProcessRunOptions runOptions) {
+        // 输入输出在独立线程中并发处理，超时、CPU 时间超限或输出超限后强制结束进程
+        return ProcessUtil.handleProcessInteraction(runProcess, input, "运行", runOptions);
     }
 
     @Override
     public final ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
+        return executeCode(executeCodeRequest, ExecuteCaseListener.NONE);
+    }
+
+    @Override
+    public final ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, ExecuteCaseListener listener) {
+        TestCaseSource testCaseSource;
+        try {
+            testCaseSource = TestCaseSource.of(executeCodeRequest, testDataStore);
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(2, e.getMessage(), JudgeInfoMessageEnum.SYSTEM_ERROR);
+        }
         File userCodeFile = saveCodeToFile(executeCodeRequest.getCode());
         String userCodePath = userCodeFile.getAbsolutePath();
         String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
 
         try {
-            CodeSandboxCmd cmd = getCmd(userCodeParentPath, userCodePath);
-            ExecuteMessage compileMessage = compileCode(cmd.getCompileCmd());
+            CodeSandboxCmd cmd = getCmd(executeCodeRequest, userCodeParentPath, userCodePath);
+            ExecuteMessage compileMessage = compileCode(userCodeFile, cmd.getCompileCmd());
 
+            // 编译超时或编译 JVM 异常退出和代码无关，按系统错误返回
+            if (compileMessage.getExitValue() == ExitCodeConstant.COMPILE_ABORTED_EXIT_CODE) {
+                return createErrorResponse(2, compileMessage.getErrorMessage(), JudgeInfoMessageEnum.SYSTEM_ERROR);
+            }
             if (compileMessage.getExitValue() != 0) {
                 return createErrorResponse(2, "编译错误", JudgeInfoMessageEnum.COMPILE_ERROR);
             }
 
-            List<ExecuteMessage> runMessages = runCode(executeCodeRequest.getInputList(), cmd.getRunCmd());
-            return processRunResults(runMessages);
+            List<ExecuteMessage> runMessages = runCode(executeCodeRequest, testCaseSource, userCodeFile.getParentFile(), cmd.getRunCmd(), listener);
+            return processRunResults(runMessages, testCaseSource.isChecked());
         } catch (Exception e) {
             log.error("执行代码出错", e);
             return createErrorResponse(2, e.getMessage(), JudgeInfoMessageEnum.SYSTEM_ERROR);
         } finally {
-            FileUtil.del(userCodeParentPath);
+            workspaceProvider.release(userCodeFile.getParentFile());
         }
     }
 
     /**
      * 处理运行结果
      * @param executeMessageList 运行结果列表
+     * @param checked 是否已在沙箱内比较输出，比较过时返回逐个用例的判题结果而不是输出
      * @return 执行代码的响应
      */
-    private ExecuteCodeResponse processRunResults(List<ExecuteMessage> executeMessageList) {
+    private ExecuteCodeResponse processRunResults(List<ExecuteMessage> executeMessageList, boolean checked) {
         ExecuteCodeResponse response = new ExecuteCodeResponse();
         response.setStatus(1);
+        List<String> verdictList = checked ? new ArrayList<>() : null;
 
 
         JudgeInfo judgeInfo = new JudgeInfo();
         List<String> outputList = new ArrayList<>();
         long maxTime = 0;
+        // CPU 时间和内存取所有用例的最大值，无法统计时为空
+        Long maxCpuTime = null;
+        Long maxMemory = null;
 
         for (ExecuteMessage executeMessage : executeMessageList) {
+            JudgeInfoMessageEnum verdict = JudgeInfoMessageEnum.getEnumByExecuteMessage(executeMessage);
+            if (verdictList != null) {
+                verdictList.add(verdict.getValue());
+            }
             if (executeMessage.getExitValue() == 0) {
-                outputList.add(executeMessage.getMessage());
+                if (!checked) {
+                    outputList.add(executeMessage.getMessage());
+                }
                 maxTime = Math.max(maxTime, executeMessage.getTime());
+                if (executeMessage.getCpuTime() != null) {
+                    maxCpuTime = Math.max(maxCpuTime == null ? 0L : maxCpuTime, executeMessage.getCpuTime());
+                }
+                if (executeMessage.getMemory() != null) {
+                    maxMemory = Math.max(maxMemory == null ? 0L : maxMemory, executeMessage.getMemory());
+                }
             } else {
-                return createErrorResponse(3, executeMessage.getErrorMessage(),
-                        executeMessage.getExitValue() == TIMEOUT_EXIT_CODE ?
-                                JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED :
-                                JudgeInfoMessageEnum.RUNTIME_ERROR);
+                ExecuteCodeResponse errorResponse = createErrorResponse(3, executeMessage.getErrorMessage(), verdict);
+                errorResponse.setVerdictList(verdictList);
+                return errorResponse;
             }
         }
+        if (checked) {
+            judgeInfo.setMessage(JudgeInfoMessageEnum.ACCEPTED.getValue());
+        }
 
         judgeInfo.setTime(maxTime);
+        judgeInfo.setCpuTime(maxCpuTime);
+        judgeInfo.setMemory(maxMemory);
         response.setJudgeInfo(judgeInfo);
         response.setOutputList(outputList);
+        response.setVerdictList(verdictList);
         return response;
     }
 
@@ -183,11 +310,13 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
      * @return 错误响应
      */
     private ExecuteCodeResponse createErrorResponse(int status, String message, JudgeInfoMessageEnum resultType) {
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage(resultType.getValue());
         return ExecuteCodeResponse.builder()
                 .status(status)
                 .message(message)
                 .outputList(new ArrayList<>())
-                .judgeInfo(new JudgeInfo())
+                .judgeInfo(judgeInfo)
                 .build();
     }
 
@@ -196,7 +325,7 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
      * @param e 异常
      * @return 错误消息
      */
-    private ExecuteMessage createErrorMessage(Exception e) {
+    protected ExecuteMessage createErrorMessage(Exception e) {
         return ExecuteMessage.builder()
                 .exitValue(-1)
                 .errorMessage(e.getMessage())
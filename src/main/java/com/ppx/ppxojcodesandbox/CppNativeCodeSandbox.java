@@ -1,15 +1,26 @@
 package com.ppx.ppxojcodesandbox;
 
+import cn.hutool.core.io.FileUtil;
+import com.ppx.ppxojcodesandbox.compile.CppBinaryCache;
+import com.ppx.ppxojcodesandbox.compile.CppPrecompiledHeaderManager;
 import com.ppx.ppxojcodesandbox.model.CodeSandboxCmd;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+import com.ppx.ppxojcodesandbox.model.enums.CppCompileProfileEnum;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.io.IOException;
+import java.util.regex.Pattern;
 
 /**
  * cpp本机代码沙箱
  */
 @Slf4j
+@Component
 public class CppNativeCodeSandbox extends CodeSandboxTemplate {
 
     // 定义 C++ 代码文件存放的前缀路径
@@ -19,6 +30,19 @@ public class CppNativeCodeSandbox extends CodeSandboxTemplate {
     // 定义 C++ 代码文件的名称
     private static final String GLOBAL_CPP_NAME = File.separator + "main.cpp";
 
+    // 编译命令中的预编译头参数
+    private static final Pattern PCH_INCLUDE_PATTERN = Pattern.compile(" -include \\S+");
+
+    @Resource
+    private CppPrecompiledHeaderManager precompiledHeaderManager;
+
+    @Resource
+    private CppBinaryCache binaryCache;
+
+    // 请求未指定编译配置时使用的编译配置
+    @Value("${codesandbox.cpp.default-profile:gnu++17-O2}")
+    private String defaultProfile;
+
     // 初始化父类中的路径信息
     public CppNativeCodeSandbox() {
         super.prefix = PREFIX;
@@ -34,7 +58,70 @@ public class CppNativeCodeSandbox extends CodeSandboxTemplate {
                 .build();
     }
 
+    /**
+     * 按请求的编译配置编译，有可用的预编译头时通过 -include 使用
+     */
+    @Override
+    protected CodeSandboxCmd getCmd(ExecuteCodeRequest executeCodeRequest, String userCodeParentPath, String userCodePath) {
+        CppCompileProfileEnum profile = resolveProfile(executeCodeRequest.getCompileProfile());
+        StringBuilder compileCmd = new StringBuilder("g++ ").append(profile.getFlags());
+        if (precompiledHeaderManager != null) {
+            File header = precompiledHeaderManager.getHeader(profile, executeCodeRequest.getCode());
+            if (header != null) {
+                compileCmd.append(" -include ").append(header.getAbsolutePath());
+            }
+        }
+        compileCmd.append(' ').append(userCodePath).append(" -o ").append(userCodePath, 0, userCodePath.length() - 4);
+        return CodeSandboxCmd.builder()
+                .compileCmd(compileCmd.toString())
+                .runCmd(userCodeParentPath + File.separator + "main")
+                .build();
+    }
+
+    /**
+     * 编译前先查编译产物缓存，命中时直接复制可执行文件或返回缓存的编译错误
+     */
     @Override
+    protected ExecuteMessage compileCode(File userCodeFile, String compileCmd) throws IOException {
+        if (binaryCache == null) {
+            return super.compileCode(userCodeFile, compileCmd);
+        }
+        // 工作目录每次不同，从命令中去掉后再参与缓存键的计算；是否使用预编译头不影响编译结果，也不参与
+        String parentPath = userCodeFile.getParentFile().getAbsolutePath();
+        String normalizedCmd = PCH_INCLUDE_PATTERN.matcher(compileCmd.replace(parentPath, "")).replaceAll("");
+        String cacheKey = binaryCache.buildKey(FileUtil.readUtf8String(userCodeFile), normalizedCmd);
+        File binaryFile = new File(parentPath, "main");
+        if (binaryCache.copyBinaryTo(cacheKey, binaryFile)) {
+            binaryCache.recordLookup(true);
+            return ExecuteMessage.builder().exitValue(0).errorMessage("").build();
+        }
+        String compileError = binaryCache.getCompileError(cacheKey);
+        if (compileError != null) {
+            binaryCache.recordLookup(true);
+            return ExecuteMessage.builder().exitValue(1).errorMessage(compileError).build();
+        }
+        binaryCache.recordLookup(false);
+        ExecuteMessage compileMessage = super.compileCode(userCodeFile, compileCmd);
+        if (compileMessage.getExitValue() == 0) {
+            binaryCache.putBinary(cacheKey, binaryFile);
+        } else if (compileMessage.getExitValue() == 1) {
+            // 只缓存 g++ 报告的编译错误，被信号结束等偶发失败不缓存
+            binaryCache.putCompileError(cacheKey, compileMessage.getErrorMessage());
+        }
+        return compileMessage;
+    }
+
+    private CppCompileProfileEnum resolveProfile(String compileProfile) {
+        if (compileProfile == null || compileProfile.isEmpty()) {
+            compileProfile = defaultProfile;
+        }
+        CppCompileProfileEnum profile = CppCompileProfileEnum.getEnumByValue(compileProfile);
+        if (profile == null) {
+            throw new IllegalArgumentException("不支持的编译配置: " + compileProfile + "，可选: " + CppCompileProfileEnum.getValues());
+        }
+        return profile;
+    }
+
     public void runSandboxCmd(CodeSandboxCmd cmd) throws IOException, InterruptedException {
         // 编译代码
         Process compileProcess = Runtime.getRuntime().exec(cmd.getCompileCmd());
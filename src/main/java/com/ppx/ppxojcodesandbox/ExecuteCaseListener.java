@@ -0,0 +1,23 @@
+package com.ppx.ppxojcodesandbox;
+
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+
+/**
+ * 单个用例执行完成的回调，用于边执行边推送结果
+ */
+public interface ExecuteCaseListener {
+
+    /**
+     * 不需要回调时使用
+     */
+    ExecuteCaseListener NONE = (index, executeMessage) -> {
+    };
+
+    /**
+     * 用例执行完成
+     *
+     * @param index          用例下标
+     * @param executeMessage 执行信息
+     */
+    void onCaseFinished(int index, ExecuteMessage executeMessage);
+}
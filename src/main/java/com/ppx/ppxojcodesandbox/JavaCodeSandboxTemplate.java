@@ -1,5 +1,14 @@
 package com.ppx.ppxojcodesandbox;
 
+import com.ppx.ppxojcodesandbox.cgroup.CgroupLimits;
+import com.ppx.ppxojcodesandbox.cgroup.CgroupManager;
+import com.ppx.ppxojcodesandbox.cgroup.RunCgroup;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.compile.CompileCacheEntry;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.compile.InProcessJavaCompiler;
+import com.ppx.ppxojcodesandbox.compile.InProcessJavaCompiler.InProcessCompileResult;
+import com.ppx.ppxojcodesandbox.compile.JavaCompileCache;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
 import cn.hutool.core.io.FileUtil;
@@ -11,10 +20,18 @@ import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
 import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
 import com.ppx.ppxojcodesandbox.model.JudgeInfo;
+import com.ppx.ppxojcodesandbox.model.enums.JudgeInfoMessageEnum;
+import com.ppx.ppxojcodesandbox.monitor.RusageWrapper;
+import com.ppx.ppxojcodesandbox.runner.WarmJvmPool;
+import com.ppx.ppxojcodesandbox.testdata.TestCaseSource;
+import com.ppx.ppxojcodesandbox.testdata.TestDataStore;
+import com.ppx.ppxojcodesandbox.utils.ParallelCaseRunner;
+import com.ppx.ppxojcodesandbox.utils.ProcessRunOptions;
 import com.ppx.ppxojcodesandbox.utils.ProcessUtils;
+import com.ppx.ppxojcodesandbox.workspace.WorkspaceProvider;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.StopWatch;
 
+import javax.annotation.Resource;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
@@ -22,7 +39,6 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 @Slf4j
 public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
@@ -34,6 +50,28 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
     // 代码执行超时时间
     private static final long TIME_OUT = 5000L;
 
+    // JVM 自身（元空间、线程栈、JIT 等）占用的内存，加在用户的内存上限之上作为 cgroup 的限制
+    private static final long JVM_MEMORY_OVERHEAD = 128L * 1024 * 1024;
+
+    // 编译参数
+    private static final String COMPILE_OPTIONS = "-encoding utf-8";
+
+    // 编译结果缓存
+    private final JavaCompileCache compileCache = JavaCompileCache.getInstance();
+
+    // 进程内编译器
+    private final InProcessJavaCompiler inProcessJavaCompiler = InProcessJavaCompiler.getInstance();
+
+    // 测试数据存储，不通过 Spring 创建时为 null
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private WorkspaceProvider workspaceProvider;
+
+    @Resource
+    private CgroupManager cgroupManager;
+
 //    private static final String SECURITY_MANAGER_PATH = "/Users/ppx/Desktop/projects/oj/ppxoj-code-sandbox/src/main/resources/security";
 
 //    private static final String SECURITY_MANAGER_CLASS_NAME = "MySecurityManager";
@@ -44,34 +82,53 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
      * @return
      */
     public File saveCodeToFile(String code){
-        String userDir = System.getProperty("user.dir");
-        // 全局代码目录名(/Users/ppx/Desktop/projects/oj/ppxoj-code-sandbox/tmpCode)
-        String globalCodePathName = userDir + File.separator + GLOBAL_CODE_DIR_NAME;
-        // 判断全局代码目录是否存在，没有则新建
-        System.out.println(globalCodePathName);
-        if (!FileUtil.exist(globalCodePathName)) {
-            FileUtil.mkdir(globalCodePathName);
-        }
-        // 把用户的代码隔离存放
-        String userCodeParentPath = globalCodePathName + File.separator + UUID.randomUUID();
-        String userCodePath = userCodeParentPath + File.separator + GLOBAL_JAVA_CLASS_NAME;
+        // 把用户的代码隔离存放，工作目录优先放在内存文件系统上（/dev/shm/.../tmpCode/uuid），空间不足时放在 user.dir/tmpCode/uuid
+        File userCodeParentDir = workspaceProvider.createWorkspace(GLOBAL_CODE_DIR_NAME);
+        String userCodePath = userCodeParentDir.getAbsolutePath() + File.separator + GLOBAL_JAVA_CLASS_NAME;
         File userCodeFile = FileUtil.writeString(code, userCodePath, StandardCharsets.UTF_8);
         return userCodeFile;
     }
 
     /**
-     * 2. 编译代码，得到 class 文件
+     * 2. 编译代码，得到 class 文件（相同源代码命中缓存时跳过 javac）
      * @param userCodeFile
-     * @return
+     * @return 编译信息，编译超时或编译 JVM 异常退出时退出码为 {@link ExitCodeConstant#COMPILE_ABORTED_EXIT_CODE}
      */
     public ExecuteMessage compileFile(File userCodeFile) {
-        String compileCmd = String.format("javac -encoding utf-8 %s", userCodeFile.getAbsolutePath());
+        String cacheKey = JavaCompileCache.buildKey(FileUtil.readUtf8String(userCodeFile), COMPILE_OPTIONS);
+        CompileCacheEntry cacheEntry = compileCache.get(cacheKey);
+        if (cacheEntry != null) {
+            if (!cacheEntry.isSuccess()) {
+                throw new RuntimeException("编译错误!");
+            }
+            cacheEntry.materialize(userCodeFile.getParentFile());
+            return cacheEntry.toExecuteMessage();
+        }
+        // 优先使用常驻的编译 JVM，编译器繁忙时回退到 javac 进程
+        InProcessCompileResult compileResult = inProcessJavaCompiler.isAvailable() ? inProcessJavaCompiler.compile(userCodeFile) : null;
+        if (compileResult != null) {
+            // 编译没有完成不是代码本身的错误，不缓存，按系统错误返回
+            if (compileResult.isAborted()) {
+                return compileResult.getExecuteMessage();
+            }
+            if (!compileResult.isSuccess()) {
+                compileCache.put(cacheKey, CompileCacheEntry.failure(compileResult.getExecuteMessage().getErrorMessage()));
+                throw new RuntimeException("编译错误!");
+            }
+            CompileCacheEntry compiledEntry = CompileCacheEntry.success(compileResult.getClassFiles());
+            compiledEntry.materialize(userCodeFile.getParentFile());
+            compileCache.put(cacheKey, compiledEntry);
+            return compileResult.getExecuteMessage();
+        }
+        String compileCmd = String.format("javac %s %s", COMPILE_OPTIONS, userCodeFile.getAbsolutePath());
         try {
             Process compileProcess = Runtime.getRuntime().exec(compileCmd);
             ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(compileProcess, "编译");
             if (executeMessage.getExitValue() != 0) {
+                compileCache.put(cacheKey, CompileCacheEntry.failure(executeMessage.getErrorMessage()));
                 throw new RuntimeException("编译错误!");
             }
+            compileCache.putClassFiles(cacheKey, userCodeFile.getParentFile());
             return executeMessage;
 
         } catch (IOException e) {
@@ -87,33 +144,109 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
      * @return
      */
     public List<ExecuteMessage> runFile(File userCodeFile, List<String> inputList) {
+        return runFile(userCodeFile, ExecuteCodeRequest.builder().inputList(inputList).build(), ExecuteCaseListener.NONE);
+    }
+
+    /**
+     * 3. 执行代码，每个用例完成时回调
+     * @param userCodeFile
+     * @param executeCodeRequest 执行请求（输入用例和运行限制）
+     * @param listener
+     * @return
+     */
+    public List<ExecuteMessage> runFile(File userCodeFile, ExecuteCodeRequest executeCodeRequest, ExecuteCaseListener listener) {
         String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        long time = 0L;
-        List<ExecuteMessage> executeMessageList = new ArrayList<>();
-        for (String inputArgs : inputList) {
-            StopWatch stopWatch = new StopWatch();
-            String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s Main %s", userCodeParentPath, inputArgs);
-            //String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s:%s -Djava.security.manager=%s Main %s", userCodeParentPath, SECURITY_MANAGER_PATH, SECURITY_MANAGER_CLASS_NAME, inputArgs);
-            try {
-                stopWatch.start();
-                Process runProcess = Runtime.getRuntime().exec(runCmd);
-                // 超时控制
-                boolean finished = runProcess.waitFor(TIME_OUT, TimeUnit.MILLISECONDS);
-                if (!finished) {
-                    System.out.println("超时了，中断");
-                    runProcess.destroy();
+        List<String> inputList = executeCodeRequest.getInputList();
+        // 常驻执行器模式：省去每个用例的 JVM 启动开销，耗时也只统计用户代码本身
+        WarmJvmPool warmJvmPool = getWarmJvmPool();
+        // 常驻执行器只有堆上限，内存只能按堆增量估算；请求限制了内存且 cgroup 可用时，每个用例单独启动 JVM 放进 cgroup，
+        // 按 cgroup 的内存峰值统计并识别内存超限
+        Long memoryLimit = executeCodeRequest.getMemoryLimit();
+        boolean cgroupMemoryLimit = memoryLimit != null && memoryLimit > 0 && cgroupManager.isAvailable();
+        boolean useWarmJvm = warmJvmPool != null && warmJvmPool.isEnabled() && !cgroupMemoryLimit;
+        // 用例并行执行，结果按输入顺序返回，遇到有错误输出（包括答案错误）的用例即停止
+        return ParallelCaseRunner.runAll(inputList.size(), getRunParallelism(),
+                index -> {
+                    ProcessRunOptions runOptions = ProcessRunOptions.fromRequest(executeCodeRequest, TIME_OUT);
+                    OutputChecker outputChecker = OutputChecker.fromRequest(executeCodeRequest, index);
+                    runOptions.setOutputChecker(outputChecker);
+                    ExecuteMessage executeMessage = useWarmJvm
+                            ? warmJvmPool.execute(userCodeParentPath, inputList.get(index), runOptions)
+                            : runCase(userCodeParentPath, inputList.get(index), runOptions,
+                                    CgroupLimits.fromRequest(executeCodeRequest.getMemoryLimit(), JVM_MEMORY_OVERHEAD));
+                    return OutputChecker.applyVerdict(executeMessage, outputChecker);
+                },
+                executeMessage -> StrUtil.isNotBlank(executeMessage.getErrorMessage()),
+                (executeMessage, index) -> listener.onCaseFinished(index, executeMessage));
+    }
+
+    /**
+     * 启动 JVM 执行单个用例
+     * @param userCodeParentPath
+     * @param inputArgs
+     * @param runOptions 运行限制
+     * @param cgroupLimits cgroup 资源限制，cgroup 不可用时忽略
+     * @return
+     */
+    private ExecuteMessage runCase(String userCodeParentPath, String inputArgs, ProcessRunOptions runOptions, CgroupLimits cgroupLimits) {
+        String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s Main %s", userCodeParentPath, inputArgs);
+        //String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s:%s -Djava.security.manager=%s Main %s", userCodeParentPath, SECURITY_MANAGER_PATH, SECURITY_MANAGER_CLASS_NAME, inputArgs);
+        Process runProcess = null;
+        RunCgroup cgroup = cgroupManager.createRunCgroup(cgroupLimits);
+        try {
+            // 和 Runtime.exec(String) 一样按空白拆分命令，限制写出的文件大小
+            String[] command = runCmd.split("\\s+");
+            if (cgroup == null) {
+                // 没有 cgroup 时由包装进程在用户程序退出时统计内存峰值和 CPU 时间
+                File usageReportFile = RusageWrapper.getInstance().createReportFile();
+                if (usageReportFile != null) {
+                    command = RusageWrapper.getInstance().wrapCommand(command, usageReportFile);
+                    runOptions.setUsageReportFile(usageReportFile);
                 }
-                ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(runProcess, "运行");
-                System.out.println(executeMessage);
-                stopWatch.stop();
-                time = stopWatch.getLastTaskTimeMillis();
-                executeMessage.setTime(time);
-                executeMessageList.add(executeMessage);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+            }
+            command = workspaceProvider.wrapCommand(command);
+            if (cgroup != null) {
+                command = cgroup.wrapCommand(command);
+                runOptions.setCgroup(cgroup);
+            }
+            // 在工作目录中运行，用户程序写出的文件也落在工作目录里
+            runProcess = Runtime.getRuntime().exec(command, null, new File(userCodeParentPath));
+            // 运行期间并发读取输出，超时、CPU 时间超限或输出超限后强制结束进程
+            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(runProcess, "运行", runOptions);
+            // 写出的文件超过工作目录配额按输出超限处理
+            if (workspaceProvider.isOverQuota(new File(userCodeParentPath))) {
+                executeMessage.setExitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE);
+                executeMessage.setErrorMessage("输出溢出");
+            }
+            System.out.println(executeMessage);
+            return executeMessage;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            // 用例被取消（其他用例已失败）时进程可能还在运行
+            if (runProcess != null && runProcess.isAlive()) {
+                runProcess.destroyForcibly();
+            }
+            if (cgroup != null) {
+                cgroup.destroy();
             }
         }
-        return executeMessageList;
+    }
+
+    /**
+     * 单次提交的用例并行度，子类可覆盖
+     * @return
+     */
+    protected int getRunParallelism() {
+        return ParallelCaseRunner.DEFAULT_PARALLELISM;
+    }
+
+    /**
+     * 获取常驻执行器池，返回 null 表示每个用例单独启动 JVM
+     * @return
+     */
+    protected WarmJvmPool getWarmJvmPool() {
+        return null;
     }
 
     /**
@@ -122,34 +255,70 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
      * @return
      */
     public ExecuteCodeResponse getOutputResponse(List<ExecuteMessage> executeMessageList){
+        return getOutputResponse(executeMessageList, false);
+    }
+
+    /**
+     * 4. 收集整理响应输出结果
+     * @param executeMessageList
+     * @param checked 是否已在沙箱内比较输出，比较过时返回逐个用例的判题结果而不是输出
+     * @return
+     */
+    public ExecuteCodeResponse getOutputResponse(List<ExecuteMessage> executeMessageList, boolean checked){
         ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
         List<String> outputList = new ArrayList<>();
+        List<String> verdictList = checked ? new ArrayList<>() : null;
+        boolean allPassed = true;
         // 取用时最大值，便于判断是否超时
         long maxTime = 0;
+        // 取 CPU 时间和内存峰值的最大值，无法统计时为空
+        Long maxCpuTime = null;
+        Long maxMemory = null;
+        JudgeInfo judgeInfo = new JudgeInfo();
 
         for (ExecuteMessage executeMessage : executeMessageList) {
             String errorMessage = executeMessage.getErrorMessage();
+            if (verdictList != null) {
+                verdictList.add(JudgeInfoMessageEnum.getEnumByExecuteMessage(executeMessage).getValue());
+            }
             if (StrUtil.isNotBlank(errorMessage)) {
                 executeCodeResponse.setMessage(errorMessage);
                 // 用户提交的代码执行中存在错误
                 executeCodeResponse.setStatus(3);
+                judgeInfo.setMessage(JudgeInfoMessageEnum.getEnumByExecuteMessage(executeMessage).getValue());
+                allPassed = false;
                 break;
             }
-            outputList.add(executeMessage.getMessage());
+            if (!checked) {
+                outputList.add(executeMessage.getMessage());
+            }
             // 记录最大时间
             Long time = executeMessage.getTime();
             if (time != null) {
                 maxTime = Math.max(maxTime, time);
             }
+            Long cpuTime = executeMessage.getCpuTime();
+            if (cpuTime != null) {
+                maxCpuTime = Math.max(maxCpuTime == null ? 0L : maxCpuTime, cpuTime);
+            }
+            Long memory = executeMessage.getMemory();
+            if (memory != null) {
+                maxMemory = Math.max(maxMemory == null ? 0L : maxMemory, memory);
+            }
         }
         // 正常运行完成
-        if (outputList.size() == executeMessageList.size()) {
+        if (allPassed) {
             executeCodeResponse.setStatus(1);
+            if (checked) {
+                judgeInfo.setMessage(JudgeInfoMessageEnum.ACCEPTED.getValue());
+            }
         }
         executeCodeResponse.setOutputList(outputList);
-        JudgeInfo judgeInfo = new JudgeInfo();
+        executeCodeResponse.setVerdictList(verdictList);
         judgeInfo.setTime(maxTime);
-        log.info("maxTime = {}", maxTime);
+        judgeInfo.setCpuTime(maxCpuTime);
+        judgeInfo.setMemory(maxMemory);
+        log.info("maxTime = {}, maxCpuTime = {}, maxMemory = {}", maxTime, maxCpuTime, maxMemory);
         executeCodeResponse.setJudgeInfo(judgeInfo);
         return executeCodeResponse;
     }
@@ -161,8 +330,7 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
      */
     public boolean deleteFile(File userCodeFile) {
         if (userCodeFile.getParentFile() != null) {
-            String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-            boolean del = FileUtil.del(userCodeParentPath);
+            boolean del = workspaceProvider.release(userCodeFile.getParentFile());
             System.out.println("删除" + (del ? "成功" : "失败"));
             return del;
         }
@@ -176,29 +344,51 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
      */
     @Override
     public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
+        return executeCode(executeCodeRequest, ExecuteCaseListener.NONE);
+    }
+
+    /**
+     * 执行代码，每个用例完成时回调
+     * @param executeCodeRequest
+     * @param listener
+     * @return
+     */
+    @Override
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, ExecuteCaseListener listener) {
         List<String> inputList = executeCodeRequest.getInputList();
         String code = executeCodeRequest.getCode();
         String language = executeCodeRequest.getLanguage();
 
+        // 期望输出和输入用例对不上时不执行；Java 程序通过程序参数接收输入，引用的测试数据需要读成字符串
+        try {
+            executeCodeRequest = TestCaseSource.of(executeCodeRequest, testDataStore).toInlineRequest();
+        } catch (IllegalArgumentException e) {
+            return getErrorResponse(e);
+        }
+
         // 代码黑名单检查
         File userCodeFile = saveCodeToFile(code);
 
-        // 2. 编译代码，得到 class 文件
-        ExecuteMessage compileFileExecuteMessage = compileFile(userCodeFile);
-        System.out.println(compileFileExecuteMessage);
-
-        // 3. 执行代码，得到输出结果
-        List<ExecuteMessage> executeMessageList = runFile(userCodeFile, inputList);
+        try {
+            // 2. 编译代码，得到 class 文件
+            ExecuteMessage compileFileExecuteMessage = compileFile(userCodeFile);
+            System.out.println(compileFileExecuteMessage);
+            if (compileFileExecuteMessage.getExitValue() == ExitCodeConstant.COMPILE_ABORTED_EXIT_CODE) {
+                return getErrorResponse(compileFileExecuteMessage.getErrorMessage(), JudgeInfoMessageEnum.SYSTEM_ERROR);
+            }
 
-        // 4. 收集整理输出结果
-        ExecuteCodeResponse executeCodeResponse = getOutputResponse(executeMessageList);
+            // 3. 执行代码，得到输出结果
+            List<ExecuteMessage> executeMessageList = runFile(userCodeFile, executeCodeRequest, listener);
 
-        // 5. 文件清理，释放空间
-        boolean deleted = deleteFile(userCodeFile);
-        if (!deleted) {
-            log.error("deleteFile error, userCodeFilePath = {}", userCodeFile.getAbsolutePath());
+            // 4. 收集整理输出结果
+            return getOutputResponse(executeMessageList, executeCodeRequest.getExpectedOutputList() != null);
+        } finally {
+            // 5. 文件清理，释放空间（编译错误等异常时也要释放，否则工作目录和 tmpfs 挂载会一直留着）
+            boolean deleted = deleteFile(userCodeFile);
+            if (!deleted) {
+                log.error("deleteFile error, userCodeFilePath = {}", userCodeFile.getAbsolutePath());
+            }
         }
-        return executeCodeResponse;
     }
 
     /**
@@ -216,4 +406,22 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox{
         executeCodeResponse.setJudgeInfo(new JudgeInfo());
         return executeCodeResponse;
     }
+
+    /**
+     * 获取错误响应，带上判题结果
+     *
+     * @param message 错误信息
+     * @param resultType 判题结果
+     * @return
+     */
+    private ExecuteCodeResponse getErrorResponse(String message, JudgeInfoMessageEnum resultType) {
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+        executeCodeResponse.setOutputList(new ArrayList<>());
+        executeCodeResponse.setMessage(message);
+        executeCodeResponse.setStatus(2);
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage(resultType.getValue());
+        executeCodeResponse.setJudgeInfo(judgeInfo);
+        return executeCodeResponse;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.ppx.ppxojcodesandbox;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.StrUtil;
@@ -12,23 +13,39 @@ import com.github.dockerjava.api.command.*;
 import com.github.dockerjava.api.model.*;
 import com.github.dockerjava.core.DockerClientBuilder;
 import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.docker.DockerBatchHarness;
+import com.ppx.ppxojcodesandbox.docker.DockerClientManager;
+import com.ppx.ppxojcodesandbox.docker.DockerContainerPoolManager;
+import com.ppx.ppxojcodesandbox.docker.PooledContainer;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
 import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
 import com.ppx.ppxojcodesandbox.model.JudgeInfo;
+import com.ppx.ppxojcodesandbox.model.enums.LanguageImageEnum;
+import com.ppx.ppxojcodesandbox.utils.ProcessIoEngine;
+import com.ppx.ppxojcodesandbox.utils.ProcessRunOptions;
 import com.ppx.ppxojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
 
+import javax.annotation.Resource;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+@Slf4j
 @Component
 public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
 
@@ -39,8 +56,28 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
 
     private static final String SECURITY_MANAGER_CLASS_NAME = "MySecurityManager";
 
-    // 只有第一次运行才使用
-    private static final Boolean FIRST_INIT = true;
+    // 批量执行器和用例输入在用户代码目录中的位置（容器内挂载为 /app/.batch）
+    private static final String BATCH_DIR_NAME = ".batch";
+
+    private static final String BATCH_INPUT_FILE_NAME = "inputs";
+
+    // 批量执行的停止标记，宿主机收到失败的用例后创建
+    private static final String BATCH_STOP_FILE_NAME = "stop";
+
+    // 批量执行时单个用例之外留给容器内 JVM 启动的时间
+    private static final long BATCH_EXTRA_WAIT_MS = 5000L;
+
+    // 批量模式：一次 exec 运行所有用例，关闭后退回每个用例一次 exec
+    @Value("${codesandbox.docker.batch.enabled:true}")
+    private boolean batchEnabled = true;
+
+    // 预热容器池（直接 new 出来测试时为 null，回退到临时创建容器）
+    @Resource
+    private DockerContainerPoolManager containerPoolManager;
+
+    // 共用的 Docker 客户端（直接 new 出来测试时为 null，回退到临时创建客户端）
+    @Resource
+    private DockerClientManager dockerClientManager;
 
     public static void main(String[] args) {
         // 测试代码
@@ -59,37 +96,58 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
     /**
      * 3. 创建容器，把文件复制到容器内
      * @param userCodeFile
-     * @param inputList
+     * @param executeCodeRequest
+     * @param listener
      * @return
      */
     @Override
-    public List<ExecuteMessage> runFile(File userCodeFile, List<String> inputList) {
+    public List<ExecuteMessage> runFile(File userCodeFile, ExecuteCodeRequest executeCodeRequest, ExecuteCaseListener listener) {
         String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        // 获取默认的 Docker Client
-        DockerClient dockerClient = DockerClientBuilder.getInstance().build();
-
-        // 拉取镜像
-        String image = "openjdk:8-alpine";
-        if (FIRST_INIT) {
-            PullImageCmd pullImageCmd = dockerClient.pullImageCmd(image);
-            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback() {
-                @Override
-                public void onNext(PullResponseItem item) {
-                    System.out.println("下载镜像：" + item.getStatus());
-                    super.onNext(item);
-                }
-            };
-            try {
-                pullImageCmd
-                        .exec(pullImageResultCallback)
-                        .awaitCompletion();
-            } catch (InterruptedException e) {
-                System.out.println("拉取镜像异常");
-                throw new RuntimeException(e);
+        if (batchEnabled) {
+            prepareBatchFiles(userCodeParentPath, executeCodeRequest.getInputList());
+        }
+        // 优先从预热容器池借容器，借不到再临时创建
+        PooledContainer pooledContainer = containerPoolManager == null || !containerPoolManager.isEnabled()
+                ? null : containerPoolManager.lease(LanguageImageEnum.JAVA);
+        DockerClient dockerClient;
+        String containerId;
+        if (pooledContainer != null) {
+            dockerClient = containerPoolManager.getDockerClient();
+            containerId = pooledContainer.getContainerId();
+            // 把编译好的文件复制到容器挂载目录
+            FileUtil.copyContent(new File(userCodeParentPath), new File(pooledContainer.getHostWorkDir()), true);
+        } else {
+            dockerClient = dockerClientManager != null ? dockerClientManager.getDockerClient() : DockerClientBuilder.getInstance().build();
+            containerId = createContainer(dockerClient, userCodeParentPath);
+        }
+        long outputLimit = ProcessRunOptions.resolveOutputLimit(executeCodeRequest.getOutputLimit());
+        // 挂载到容器 /app 的宿主机目录
+        String hostAppDir = pooledContainer != null ? pooledContainer.getHostWorkDir() : userCodeParentPath;
+        try {
+            if (batchEnabled) {
+                return execBatchInContainer(dockerClient, containerId, new File(hostAppDir, BATCH_DIR_NAME),
+                        executeCodeRequest, outputLimit, listener);
+            }
+            return execInContainer(dockerClient, containerId, executeCodeRequest, outputLimit, listener);
+        } finally {
+            if (pooledContainer != null) {
+                containerPoolManager.release(pooledContainer);
             }
         }
+    }
 
-        System.out.println("下载完成");
+    /**
+     * 临时创建并启动容器（容器池不可用时使用）
+     * @param dockerClient
+     * @param userCodeParentPath
+     * @return 容器 id
+     */
+    private String createContainer(DockerClient dockerClient, String userCodeParentPath) {
+        // 镜像在启动时由 DockerClientManager 拉取，请求中不等待拉取
+        String image = LanguageImageEnum.JAVA.getImage();
+        if (dockerClientManager != null && !dockerClientManager.isImageReady(LanguageImageEnum.JAVA)) {
+            throw new RuntimeException("镜像未就绪，请稍后再试");
+        }
 
         // 创建容器
         CreateContainerCmd containerCmd = dockerClient.createContainerCmd(image);
@@ -116,11 +174,171 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
 
         // 启动容器
         dockerClient.startContainerCmd(containerId).exec();
+        return containerId;
+    }
+
+    /**
+     * 把批量执行器的 class 文件和 Base64 编码的用例输入写到用户代码目录，随目录一起挂载或复制到容器的 /app
+     * @param userCodeParentPath
+     * @param inputList
+     */
+    private void prepareBatchFiles(String userCodeParentPath, List<String> inputList) {
+        File batchDir = new File(userCodeParentPath, BATCH_DIR_NAME);
+        List<Class<?>> harnessClasses = new ArrayList<>();
+        harnessClasses.add(DockerBatchHarness.class);
+        harnessClasses.addAll(Arrays.asList(DockerBatchHarness.class.getDeclaredClasses()));
+        for (Class<?> harnessClass : harnessClasses) {
+            String classResourceName = harnessClass.getName().replace('.', '/') + ".class";
+            try (InputStream inputStream = JavaDockerCodeSandbox.class.getClassLoader().getResourceAsStream(classResourceName)) {
+                if (inputStream == null) {
+                    throw new IOException("找不到批量执行器 class 文件: " + classResourceName);
+                }
+                FileUtil.writeBytes(IoUtil.readBytes(inputStream), new File(batchDir, classResourceName));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        List<String> encodedInputs = new ArrayList<>(inputList.size());
+        for (String input : inputList) {
+            // 带上标记，空输入的用例也占一行
+            encodedInputs.add(DockerBatchHarness.INPUT_MARKER + Base64.getEncoder().encodeToString(input.getBytes(StandardCharsets.UTF_8)));
+        }
+        FileUtil.writeLines(encodedInputs, new File(batchDir, BATCH_INPUT_FILE_NAME), StandardCharsets.UTF_8);
+    }
 
+    /**
+     * 在容器中用一次 exec 运行所有用例，容器内的批量执行器每完成一个用例输出一行结果，边接收边解析并回调。
+     * 和本地执行一样遇到失败（包括答案错误）的用例即停止：创建停止标记通知执行器，之后的结果不再回调
+     * @param dockerClient
+     * @param containerId
+     * @param hostBatchDir 宿主机上的批量执行目录（挂载为容器的 /app/.batch）
+     * @param executeCodeRequest 执行请求（输入用例和期望输出）
+     * @param outputLimit 单个用例的输出上限
+     * @param listener
+     * @return
+     */
+    private List<ExecuteMessage> execBatchInContainer(DockerClient dockerClient, String containerId, File hostBatchDir,
+                                                      ExecuteCodeRequest executeCodeRequest, long outputLimit, ExecuteCaseListener listener) {
+        List<String> inputList = executeCodeRequest.getInputList();
+        String batchDir = "/app/" + BATCH_DIR_NAME;
+        File hostStopFile = new File(hostBatchDir, BATCH_STOP_FILE_NAME);
+        ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
+                .withCmd("java", "-cp", batchDir, DockerBatchHarness.class.getName(),
+                        "/app", batchDir + "/" + BATCH_INPUT_FILE_NAME, String.valueOf(TIME_OUT), String.valueOf(outputLimit),
+                        batchDir + "/" + BATCH_STOP_FILE_NAME)
+                .withAttachStderr(true)
+                .withAttachStdout(true)
+                .exec();
+        List<ExecuteMessage> executeMessageList = new ArrayList<>();
+        // 已经收到失败的用例
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        // 按行拼接结果，一行可能被拆到多个帧中
+        StringBuilder lineBuffer = new StringBuilder();
+        // 执行器自身的错误输出（用户程序的输出在结果行中），批量执行失败时一起记录
+        StringBuffer harnessStderr = new StringBuffer();
+        ResultCallback.Adapter<Frame> callback = new ResultCallback.Adapter<Frame>() {
+            @Override
+            public void onNext(Frame frame) {
+                if (!StreamType.STDOUT.equals(frame.getStreamType())) {
+                    harnessStderr.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+                    return;
+                }
+                lineBuffer.append(new String(frame.getPayload(), StandardCharsets.US_ASCII));
+                int lineEnd;
+                while (!stopped.get() && (lineEnd = lineBuffer.indexOf("\n")) >= 0) {
+                    String line = lineBuffer.substring(0, lineEnd).trim();
+                    lineBuffer.delete(0, lineEnd + 1);
+                    ExecuteMessage executeMessage = parseCaseLine(line,
+                            OutputChecker.fromRequest(executeCodeRequest, executeMessageList.size()));
+                    if (executeMessage != null) {
+                        listener.onCaseFinished(executeMessageList.size(), executeMessage);
+                        executeMessageList.add(executeMessage);
+                        if (StrUtil.isNotBlank(executeMessage.getErrorMessage()) && stopped.compareAndSet(false, true)) {
+                            FileUtil.touch(hostStopFile);
+                        }
+                    }
+                }
+            }
+        };
+        try {
+            long waitMs = inputList.size() * (TIME_OUT + 1000L) + BATCH_EXTRA_WAIT_MS;
+            boolean completed = dockerClient.execStartCmd(execCreateCmdResponse.getId())
+                    .exec(callback)
+                    .awaitCompletion(waitMs, TimeUnit.MILLISECONDS);
+            if (!completed) {
+                callback.close();
+            }
+        } catch (InterruptedException e) {
+            System.out.println("程序执行异常");
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            System.out.println("关闭输出流失败");
+        }
+        if (!stopped.get() && executeMessageList.size() < inputList.size()) {
+            log.warn("批量执行器没有返回全部结果, 收到 {}/{}, 错误输出: {}", executeMessageList.size(), inputList.size(),
+                    harnessStderr.toString().trim());
+        }
+        // 已经停止时结果截止到失败的用例；否则没有收到结果的用例按超时处理，容器内残留的进程在容器归还时统一清理
+        while (!stopped.get() && executeMessageList.size() < inputList.size()) {
+            ExecuteMessage executeMessage = new ExecuteMessage();
+            executeMessage.setExitValue(ExitCodeConstant.TIMEOUT_EXIT_CODE);
+            executeMessage.setErrorMessage("超时");
+            listener.onCaseFinished(executeMessageList.size(), executeMessage);
+            executeMessageList.add(executeMessage);
+        }
+        return executeMessageList;
+    }
+
+    /**
+     * 解析批量执行器输出的一行用例结果
+     * @param line
+     * @param outputChecker 用例的输出比较器，没有期望输出时为 null
+     * @return 不是用例结果时返回 null
+     */
+    private ExecuteMessage parseCaseLine(String line, OutputChecker outputChecker) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 7 || !DockerBatchHarness.CASE.equals(parts[0])) {
+            return null;
+        }
+        int exitValue = Integer.parseInt(parts[2]);
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(exitValue);
+        executeMessage.setTime(Long.parseLong(parts[3]));
+        executeMessage.setMemory(Long.parseLong(parts[4]));
+        byte[] stdoutBytes = Base64.getDecoder().decode(parts[5]);
+        String stderr = ProcessIoEngine.joinLines(Base64.getDecoder().decode(parts[6]), "\n");
+        if (exitValue == ExitCodeConstant.TIMEOUT_EXIT_CODE) {
+            executeMessage.setErrorMessage("超时");
+        } else if (exitValue == ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE) {
+            executeMessage.setErrorMessage("输出溢出");
+        } else {
+            if (outputChecker != null) {
+                outputChecker.feed(stdoutBytes, 0, stdoutBytes.length);
+            } else {
+                executeMessage.setMessage(ProcessIoEngine.joinLines(stdoutBytes, "\n"));
+            }
+            executeMessage.setErrorMessage(StrUtil.isEmpty(stderr) ? null : stderr);
+        }
+        return OutputChecker.applyVerdict(executeMessage, outputChecker);
+    }
+
+    /**
+     * 在容器中逐个执行输入用例
+     * @param dockerClient
+     * @param containerId
+     * @param executeCodeRequest 执行请求（输入用例和期望输出）
+     * @param outputLimit 单个用例的输出上限
+     * @param listener
+     * @return
+     */
+    private List<ExecuteMessage> execInContainer(DockerClient dockerClient, String containerId, ExecuteCodeRequest executeCodeRequest,
+                                                 long outputLimit, ExecuteCaseListener listener) {
+        List<String> inputList = executeCodeRequest.getInputList();
         // docker exec keen_blackwell java -cp /app Main 1 3
         // 执行命令并获取结果
         List<ExecuteMessage> executeMessageList = new ArrayList<>();
         for (String inputArgs : inputList) {
+            OutputChecker outputChecker = OutputChecker.fromRequest(executeCodeRequest, executeMessageList.size());
             StopWatch stopWatch = new StopWatch();
             String[] inputArgsArray = inputArgs.split(" ");
             String[] cmdArray = ArrayUtil.append(new String[]{"java", "-cp", "/app", "Main"}, inputArgsArray);
@@ -138,6 +356,9 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
             long time = 0L;
             // 判断是否超时
             final boolean[] timeout = {true};
+            // 已接收的输出字节数，超过上限后不再接收
+            final long[] outputBytes = {0L};
+            final boolean[] outputLimitExceeded = {false};
             String execId = execCreateCmdResponse.getId();
             @SuppressWarnings("deprecation")
             ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback() {
@@ -151,10 +372,31 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
 
                 @Override
                 public void onNext(Frame frame) {
+                    outputBytes[0] += frame.getPayload().length;
+                    if (outputBytes[0] > outputLimit) {
+                        outputLimitExceeded[0] = true;
+                        try {
+                            close();
+                        } catch (IOException e) {
+                            System.out.println("关闭输出流失败");
+                        }
+                        return;
+                    }
                     StreamType streamType = frame.getStreamType();
                     if (StreamType.STDERR.equals(streamType)) {
                         errorMessage[0] = new String(frame.getPayload());
                         System.out.println("输出错误结果：" + errorMessage[0]);
+                    } else if (outputChecker != null) {
+                        // 有期望输出时边接收边比较，确定答案错误后不再接收
+                        outputChecker.feed(frame.getPayload(), 0, frame.getPayload().length);
+                        if (outputChecker.isRejected()) {
+                            try {
+                                close();
+                            } catch (IOException e) {
+                                System.out.println("关闭输出流失败");
+                            }
+                            return;
+                        }
                     } else {
                         message[0] = new String(frame.getPayload());
                         System.out.println("输出结果：" + message[0]);
@@ -210,8 +452,20 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
             }
             executeMessage.setMessage(message[0]);
             executeMessage.setErrorMessage(errorMessage[0]);
+            if (outputLimitExceeded[0]) {
+                // 容器内残留的进程在容器归还时统一清理
+                executeMessage.setExitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE);
+                executeMessage.setMessage(null);
+                executeMessage.setErrorMessage("输出溢出");
+            }
             executeMessage.setTime(time);
             executeMessage.setMemory(maxMemory[0]);
+            if (outputChecker != null && !outputLimitExceeded[0] && StrUtil.isBlank(executeMessage.getErrorMessage())) {
+                // 这条路径不返回退出码，没有错误输出即视为正常结束
+                executeMessage.setExitValue(0);
+            }
+            OutputChecker.applyVerdict(executeMessage, outputChecker);
+            listener.onCaseFinished(executeMessageList.size(), executeMessage);
             executeMessageList.add(executeMessage);
         }
         return executeMessageList;
@@ -2,8 +2,10 @@ package com.ppx.ppxojcodesandbox;
 
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.runner.WarmJvmPool;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
 import java.io.File;
 
 /**
@@ -12,6 +14,15 @@ import java.io.File;
 @Component
 public class JavaNativeCodeSandbox extends JavaCodeSandboxTemplate {
 
+    // 常驻执行器池（直接 new 出来时为 null，每个用例单独启动 JVM）
+    @Resource
+    private WarmJvmPool warmJvmPool;
+
+    @Override
+    protected WarmJvmPool getWarmJvmPool() {
+        return warmJvmPool;
+    }
+
     // 覆盖父类的方法
     @Override
     public File saveCodeToFile(String code) {
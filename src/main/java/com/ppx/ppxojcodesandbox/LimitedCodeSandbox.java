@@ -0,0 +1,100 @@
+package com.ppx.ppxojcodesandbox;
+
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.model.SandboxStats;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限制并发的代码沙箱
+ * 每种语言各自限制同时执行的提交数和排队数，排队已满或等待超时直接拒绝，某种语言的提交激增时不会占满其他语言的执行资源
+ */
+public class LimitedCodeSandbox implements CodeSandbox {
+
+    private final String language;
+
+    private final CodeSandbox delegate;
+
+    private final int maxConcurrent;
+
+    private final int maxQueue;
+
+    private final long queueTimeoutMs;
+
+    private final Semaphore permits;
+
+    // 正在排队的提交数
+    private final AtomicInteger waitingCount = new AtomicInteger(0);
+
+    private final AtomicLong completedCount = new AtomicLong(0);
+
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+
+    public LimitedCodeSandbox(String language, CodeSandbox delegate, int maxConcurrent, int maxQueue, long queueTimeoutMs) {
+        this.language = language;
+        this.delegate = delegate;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public CodeSandbox getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
+        return executeCode(executeCodeRequest, ExecuteCaseListener.NONE);
+    }
+
+    @Override
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, ExecuteCaseListener listener) {
+        acquire();
+        try {
+            return delegate.executeCode(executeCodeRequest, listener);
+        } finally {
+            permits.release();
+            completedCount.incrementAndGet();
+        }
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waitingCount.incrementAndGet() > maxQueue) {
+            waitingCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            throw new RuntimeException(language + " 提交排队已满，请稍后再试");
+        }
+        try {
+            if (!permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCount.incrementAndGet();
+                throw new RuntimeException(language + " 提交排队超时，请稍后再试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待执行被中断", e);
+        } finally {
+            waitingCount.decrementAndGet();
+        }
+    }
+
+    public SandboxStats getStats() {
+        return SandboxStats.builder()
+                .language(language)
+                .sandbox(delegate.getClass().getSimpleName())
+                .maxConcurrent(maxConcurrent)
+                .maxQueue(maxQueue)
+                .activeCount(maxConcurrent - permits.availablePermits())
+                .waitingCount(waitingCount.get())
+                .completedCount(completedCount.get())
+                .rejectedCount(rejectedCount.get())
+                .build();
+    }
+}
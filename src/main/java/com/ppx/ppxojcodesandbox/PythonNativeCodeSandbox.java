@@ -0,0 +1,226 @@
+package com.ppx.ppxojcodesandbox;
+
+import cn.hutool.core.io.FileUtil;
+import com.ppx.ppxojcodesandbox.cgroup.CgroupLimits;
+import com.ppx.ppxojcodesandbox.cgroup.RunCgroup;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.model.CodeSandboxCmd;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+import com.ppx.ppxojcodesandbox.python.PythonBytecodeCache;
+import com.ppx.ppxojcodesandbox.python.PythonRunResult;
+import com.ppx.ppxojcodesandbox.python.PythonZygote;
+import com.ppx.ppxojcodesandbox.utils.ProcessIoEngine;
+import com.ppx.ppxojcodesandbox.utils.ProcessRunOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Python 本机代码沙箱
+ * 编译和运行都交给常驻的 {@link PythonZygote}：编译结果按源代码哈希缓存，每个用例由 zygote fork 子进程执行字节码，
+ * 不用为每个用例重新启动解释器。zygote 不可用时退回到直接启动 python3 运行源文件。
+ */
+@Slf4j
+@Component
+public class PythonNativeCodeSandbox extends CodeSandboxTemplate {
+
+    // 定义 Python 代码文件存放的前缀路径
+    private static final String PREFIX = File.separator + "python";
+    // 定义代码存放的全局目录路径
+    private static final String GLOBAL_CODE_DIR_PATH = File.separator + "tempCode";
+    // 定义 Python 代码文件的名称
+    private static final String GLOBAL_PYTHON_NAME = File.separator + "main.py";
+    // zygote 编译出的字节码文件名称
+    private static final String BYTECODE_FILE_NAME = "main.pyc";
+
+    private final PythonZygote zygote = PythonZygote.getInstance();
+
+    private final PythonBytecodeCache bytecodeCache = PythonBytecodeCache.getInstance();
+
+    // 初始化父类中的路径信息
+    public PythonNativeCodeSandbox() {
+        super.prefix = PREFIX;
+        super.globalCodeDirPath = GLOBAL_CODE_DIR_PATH;
+        super.globalCodeFileName = GLOBAL_PYTHON_NAME;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        zygote.destroy();
+    }
+
+    @Override
+    public CodeSandboxCmd getCmd(String userCodeParentPath, String userCodePath) {
+        return CodeSandboxCmd.builder()
+                .compileCmd(String.format("python3 -m py_compile %s", userCodePath))
+                .runCmd("python3 " + userCodePath)
+                .build();
+    }
+
+    /**
+     * 编译为字节码，命中缓存时直接写出缓存的字节码
+     */
+    @Override
+    protected ExecuteMessage compileCode(File userCodeFile, String compileCmd) throws IOException {
+        String cacheKey = PythonBytecodeCache.buildKey(FileUtil.readUtf8String(userCodeFile));
+        File pycFile = new File(userCodeFile.getParentFile(), BYTECODE_FILE_NAME);
+        PythonBytecodeCache.Entry cacheEntry = bytecodeCache.get(cacheKey);
+        if (cacheEntry != null) {
+            if (!cacheEntry.isSuccess()) {
+                return compileMessage(1, cacheEntry.getErrorMessage());
+            }
+            FileUtil.writeBytes(cacheEntry.getBytecode(), pycFile);
+            return compileMessage(0, "");
+        }
+        String errorMessage;
+        try {
+            errorMessage = zygote.compile(userCodeFile, pycFile);
+        } catch (IOException e) {
+            log.warn("Python 执行器不可用，直接启动 python3: {}", e.getMessage());
+            return super.compileCode(userCodeFile, compileCmd);
+        }
+        if (errorMessage != null) {
+            bytecodeCache.put(cacheKey, PythonBytecodeCache.Entry.failure(errorMessage));
+            return compileMessage(1, errorMessage);
+        }
+        bytecodeCache.put(cacheKey, PythonBytecodeCache.Entry.success(FileUtil.readBytes(pycFile)));
+        return compileMessage(0, "");
+    }
+
+    private ExecuteMessage compileMessage(int exitValue, String errorMessage) {
+        return ExecuteMessage.builder()
+                .exitValue(exitValue)
+                .errorMessage(errorMessage)
+                .build();
+    }
+
+    /**
+     * 有字节码时交给 zygote fork 执行，否则按运行命令启动 python3
+     */
+    @Override
+    protected ExecuteMessage runCase(File workspaceDir, String runCmd, String input, ProcessRunOptions runOptions, CgroupLimits cgroupLimits) {
+        File pycFile = new File(workspaceDir, BYTECODE_FILE_NAME);
+        // zygote 从文件读标准输入，测试数据的输入要复制到工作目录里；输入太大时通过管道交给 python3 进程，不占工作目录配额
+        ByteBuffer stdinData = runOptions.getStdinData();
+        if (!pycFile.isFile() || (stdinData != null && stdinData.remaining() > workspaceProvider.getQuotaBytes() / 4)) {
+            return super.runCase(workspaceDir, runCmd, input, runOptions, cgroupLimits);
+        }
+        RunCgroup cgroup = cgroupManager.createRunCgroup(cgroupLimits);
+        File caseDir = null;
+        try {
+            // 每个用例的输入输出文件放在独立的隐藏目录中，并行的用例互不影响
+            caseDir = Files.createTempDirectory(workspaceDir.toPath(), ".case").toFile();
+            File stdinFile = new File(caseDir, "stdin");
+            File stdoutFile = new File(caseDir, "stdout");
+            File stderrFile = new File(caseDir, "stderr");
+            if (stdinData != null) {
+                // 复制一份，不能把测试数据文件交给用户程序（同目录下有期望输出）
+                try (FileChannel channel = FileChannel.open(stdinFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = stdinData.duplicate();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            } else {
+                FileUtil.writeString(input + "\n", stdinFile, StandardCharsets.UTF_8);
+            }
+            long outputLimit = Math.min(runOptions.getOutputLimit(), workspaceProvider.getQuotaBytes());
+            PythonRunResult runResult;
+            try {
+                runResult = zygote.run(pycFile, workspaceDir, stdinFile, stdoutFile, stderrFile, runOptions.getTimeoutMs(),
+                        runOptions.getCpuTimeLimitMs(), outputLimit, cgroup == null ? null : new File(cgroup.getDir(), "cgroup.procs"));
+            } catch (IOException e) {
+                log.warn("Python 执行器不可用，直接启动 python3: {}", e.getMessage());
+                FileUtil.del(caseDir);
+                caseDir = null;
+                return super.runCase(workspaceDir, runCmd, input, runOptions, cgroupLimits);
+            }
+            ExecuteMessage executeMessage = toExecuteMessage(runResult, cgroup, stdoutFile, stderrFile, runOptions.getOutputChecker());
+            // 写出的文件超过工作目录配额按输出超限处理
+            if (workspaceProvider.isOverQuota(workspaceDir)) {
+                executeMessage.setExitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE);
+                executeMessage.setErrorMessage("输出溢出");
+            }
+            return executeMessage;
+        } catch (IOException e) {
+            log.error("运行代码出错", e);
+            return createErrorMessage(e);
+        } finally {
+            if (caseDir != null) {
+                FileUtil.del(caseDir);
+            }
+            if (cgroup != null) {
+                cgroup.destroy();
+            }
+        }
+    }
+
+    private ExecuteMessage toExecuteMessage(PythonRunResult runResult, RunCgroup cgroup, File stdoutFile, File stderrFile,
+                                            OutputChecker outputChecker) throws IOException {
+        long memory = runResult.getMemory();
+        long cpuTime = runResult.getCpuTime();
+        // cgroup 可用时以 cgroup 的统计为准，包含用户程序创建的子进程
+        if (cgroup != null) {
+            long cgroupMemory = cgroup.readMemoryPeak();
+            long cgroupCpuTime = cgroup.readCpuTimeMs();
+            memory = cgroupMemory >= 0 ? cgroupMemory : memory;
+            cpuTime = cgroupCpuTime >= 0 ? cgroupCpuTime : cpuTime;
+        }
+        ExecuteMessage executeMessage = ExecuteMessage.builder()
+                .time(runResult.getTime())
+                .cpuTime(cpuTime)
+                .build();
+        if (cgroup != null && cgroup.isOomKilled()) {
+            log.error("运行内存超过上限");
+            executeMessage.setExitValue(ExitCodeConstant.MEMORY_LIMIT_EXIT_CODE);
+            executeMessage.setErrorMessage("内存溢出");
+            executeMessage.setMemory(memory);
+            return executeMessage;
+        }
+        String status = runResult.getStatus();
+        if (PythonRunResult.STATUS_OUTPUT.equals(status)) {
+            log.error("运行输出超过上限");
+            executeMessage.setExitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE);
+            executeMessage.setErrorMessage("输出溢出");
+            return executeMessage;
+        }
+        if (PythonRunResult.STATUS_TIMEOUT.equals(status) || PythonRunResult.STATUS_CPU.equals(status)) {
+            log.error("运行超时");
+            executeMessage.setExitValue(ExitCodeConstant.TIMEOUT_EXIT_CODE);
+            executeMessage.setErrorMessage("超时");
+            return executeMessage;
+        }
+        String errorOutput = "";
+        if (runResult.getExitCode() != 0) {
+            log.error("运行失败，错误码为: {}", runResult.getExitCode());
+            errorOutput = ProcessIoEngine.joinLines(readOutput(stderrFile), "");
+        }
+        executeMessage.setExitValue(runResult.getExitCode());
+        if (outputChecker != null) {
+            // 有期望输出时直接比较输出文件，不读入内存
+            outputChecker.feedFile(stdoutFile);
+        } else {
+            executeMessage.setMessage(ProcessIoEngine.joinLines(readOutput(stdoutFile), ""));
+        }
+        executeMessage.setErrorMessage(errorOutput);
+        executeMessage.setMemory(memory);
+        return executeMessage;
+    }
+
+    /**
+     * 读取输出文件，子进程在重定向前就失败时文件不存在
+     */
+    private static byte[] readOutput(File outputFile) {
+        return outputFile.isFile() ? FileUtil.readBytes(outputFile) : new byte[0];
+    }
+}
@@ -0,0 +1,65 @@
+package com.ppx.ppxojcodesandbox.cgroup;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 单次运行的 cgroup 资源限制
+ */
+@Data
+@Builder
+public class CgroupLimits {
+
+    /**
+     * 默认内存上限 256MB
+     */
+    public static final long DEFAULT_MEMORY_MAX = 256L * 1024 * 1024;
+
+    /**
+     * 允许请求设置的最大内存上限 1GB
+     */
+    public static final long MAX_MEMORY_MAX = 1024L * 1024 * 1024;
+
+    /**
+     * 默认进程（线程）数上限，JVM 自身就有几十个线程
+     */
+    public static final int DEFAULT_PIDS_MAX = 128;
+
+    /**
+     * 默认最多使用 1 个 CPU
+     */
+    public static final int DEFAULT_CPU_PERCENT = 100;
+
+    /**
+     * 内存上限（字节），不允许使用 swap
+     */
+    @Builder.Default
+    private long memoryMax = DEFAULT_MEMORY_MAX;
+
+    /**
+     * 进程（线程）数上限
+     */
+    @Builder.Default
+    private int pidsMax = DEFAULT_PIDS_MAX;
+
+    /**
+     * CPU 上限（百分比，100 表示 1 个 CPU）
+     */
+    @Builder.Default
+    private int cpuPercent = DEFAULT_CPU_PERCENT;
+
+    /**
+     * 根据请求的内存上限生成资源限制
+     *
+     * @param requestMemoryLimit 请求中的内存上限，可以为空
+     * @param runtimeOverhead    运行时自身占用的内存（如 JVM），加在用户的内存上限之上
+     * @return 资源限制
+     */
+    public static CgroupLimits fromRequest(Long requestMemoryLimit, long runtimeOverhead) {
+        long memoryMax = requestMemoryLimit == null || requestMemoryLimit <= 0
+                ? DEFAULT_MEMORY_MAX : Math.min(requestMemoryLimit, MAX_MEMORY_MAX);
+        return CgroupLimits.builder()
+                .memoryMax(memoryMax + runtimeOverhead)
+                .build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.ppx.ppxojcodesandbox.cgroup;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * cgroup v2 管理
+ * 需要在 codesandbox.cgroup.path 中明确配置一个委派给服务的 cgroup（如 systemd 的 Delegate=yes 的服务，或容器内的 cgroup 命名空间），
+ * 服务进程必须就在这个 cgroup 中：启动时只把服务自身的进程移到 service 子组，在 runs 子组下为每次运行创建临时 cgroup。
+ * 组内还有其他进程时不会移动它们，此时无法开启子组的控制器，cgroup 隔离自动关闭；
+ * 没有启用、没有配置路径、不是 cgroup v2、控制器不可用或没有写权限时，运行退回到不加 cgroup 限制。
+ */
+@Slf4j
+@Component
+public class CgroupManager {
+
+    private static final String CGROUP_ROOT = "/sys/fs/cgroup";
+
+    private static final String CONTROLLERS = "+memory +cpu +pids";
+
+    private static final String SERVICE_DIR_NAME = "service";
+
+    private static final String RUNS_DIR_NAME = "runs";
+
+    @Value("${codesandbox.cgroup.enabled:false}")
+    private boolean enabled;
+
+    // 委派给服务的 cgroup，可以写 /sys/fs/cgroup 下的绝对路径或相对 cgroup 根目录的路径
+    @Value("${codesandbox.cgroup.path:}")
+    private String path;
+
+    // 所有运行 cgroup 的父目录，为 null 表示 cgroup 不可用
+    private volatile File runsDir;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (StrUtil.isBlank(path)) {
+            log.warn("没有配置 codesandbox.cgroup.path，运行不加 cgroup 限制");
+            return;
+        }
+        try {
+            runsDir = setUp(resolve(path));
+            log.info("cgroup v2 运行隔离已启用: {}", runsDir);
+        } catch (IOException | RuntimeException e) {
+            log.warn("cgroup v2 不可用，运行不加 cgroup 限制: {}", e.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return runsDir != null;
+    }
+
+    /**
+     * 为一次运行创建临时 cgroup
+     *
+     * @param limits 资源限制
+     * @return cgroup，不可用或创建失败时返回 null（调用方退回到不加限制运行）
+     */
+    public RunCgroup createRunCgroup(CgroupLimits limits) {
+        File dir = runsDir;
+        if (dir == null) {
+            return null;
+        }
+        try {
+            return RunCgroup.create(new File(dir, UUID.randomUUID().toString()), limits);
+        } catch (IOException e) {
+            log.warn("创建运行 cgroup 失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 把配置的路径转换成 cgroup 根目录下的目录
+     */
+    private static File resolve(String path) throws IOException {
+        String relative = path.trim();
+        if (relative.startsWith(CGROUP_ROOT + "/")) {
+            relative = relative.substring(CGROUP_ROOT.length());
+        }
+        File dir = new File(CGROUP_ROOT, relative);
+        if (!dir.getCanonicalPath().startsWith(CGROUP_ROOT + "/")) {
+            throw new IOException("cgroup 路径不在 " + CGROUP_ROOT + " 下: " + path);
+        }
+        return dir.getCanonicalFile();
+    }
+
+    private static File setUp(File delegatedDir) throws IOException {
+        if (!new File(CGROUP_ROOT, "cgroup.controllers").exists()) {
+            throw new IOException("不是 cgroup v2 统一层级");
+        }
+        if (!new File(delegatedDir, "cgroup.procs").exists()) {
+            throw new IOException("cgroup 不存在: " + delegatedDir);
+        }
+        File serviceDir = new File(delegatedDir, SERVICE_DIR_NAME);
+        File runsDir = new File(delegatedDir, RUNS_DIR_NAME);
+        // 重启后服务可能已经在 service 子组里
+        File selfDir = new File(CGROUP_ROOT + readSelfCgroupPath()).getCanonicalFile();
+        if (!selfDir.equals(delegatedDir) && !selfDir.equals(serviceDir)) {
+            throw new IOException("服务进程不在配置的 cgroup 中: " + selfDir);
+        }
+        String available = read(new File(delegatedDir, "cgroup.controllers"));
+        for (String controller : new String[]{"memory", "cpu", "pids"}) {
+            if (!(" " + available + " ").contains(" " + controller + " ")) {
+                throw new IOException("缺少 " + controller + " 控制器");
+            }
+        }
+        // cgroup v2 不允许有进程的组再给子组开启控制器，把服务自身的进程（包括所有线程）移到 service 子组；
+        // 组内的其他进程不属于服务，不去移动，开启控制器会失败
+        if (!new File(serviceDir, "cgroup.procs").exists() && !serviceDir.mkdir()) {
+            throw new IOException("创建 service 子组失败");
+        }
+        write(new File(serviceDir, "cgroup.procs"), readSelfPid());
+        try {
+            write(new File(delegatedDir, "cgroup.subtree_control"), CONTROLLERS);
+        } catch (IOException e) {
+            throw new IOException("开启控制器失败，cgroup 中可能还有服务以外的进程: " + e.getMessage());
+        }
+        if (!new File(runsDir, "cgroup.procs").exists() && !runsDir.mkdir()) {
+            throw new IOException("创建 runs 子组失败");
+        }
+        write(new File(runsDir, "cgroup.subtree_control"), CONTROLLERS);
+        return runsDir;
+    }
+
+    /**
+     * 读取当前进程所在的 cgroup 路径（/proc/self/cgroup 中 "0::" 开头的行）
+     */
+    private static String readSelfCgroupPath() throws IOException {
+        List<String> lines = Files.readAllLines(new File("/proc/self/cgroup").toPath(), StandardCharsets.US_ASCII);
+        for (String line : lines) {
+            if (line.startsWith("0::")) {
+                return line.substring(3).trim();
+            }
+        }
+        throw new IOException("找不到当前进程的 cgroup v2 路径");
+    }
+
+    /**
+     * 当前进程的 pid（/proc/self 链接到 /proc/pid）
+     */
+    private static String readSelfPid() throws IOException {
+        return new File("/proc/self").getCanonicalFile().getName();
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim();
+    }
+
+    private static void write(File file, String value) throws IOException {
+        Files.write(file.toPath(), value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,167 @@
+package com.ppx.ppxojcodesandbox.cgroup;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单次运行使用的临时 cgroup（v2）
+ * 进程通过 sh 包装启动：先把自己写进 cgroup.procs 再 exec 用户程序，用户程序从第一条指令开始就受限制；
+ * 运行结束后读取内存峰值、CPU 时间和 OOM 次数，然后结束残留进程并删除 cgroup。
+ */
+@Slf4j
+public class RunCgroup {
+
+    // cpu.max 的统计周期（微秒）
+    private static final long CPU_PERIOD_US = 100000L;
+
+    // 删除 cgroup 的重试次数（残留进程被杀后需要一点时间才能退出）
+    private static final int REMOVE_RETRY_TIMES = 20;
+
+    private final File dir;
+
+    RunCgroup(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 创建 cgroup 并写入资源限制
+     */
+    static RunCgroup create(File dir, CgroupLimits limits) throws IOException {
+        if (!dir.mkdir()) {
+            throw new IOException("创建 cgroup 失败: " + dir);
+        }
+        RunCgroup runCgroup = new RunCgroup(dir);
+        try {
+            runCgroup.write("memory.max", String.valueOf(limits.getMemoryMax()));
+            // 内核没有开启 swap 统计时没有这个文件
+            if (new File(dir, "memory.swap.max").exists()) {
+                runCgroup.write("memory.swap.max", "0");
+            }
+            runCgroup.write("pids.max", String.valueOf(limits.getPidsMax()));
+            runCgroup.write("cpu.max", (CPU_PERIOD_US * limits.getCpuPercent() / 100) + " " + CPU_PERIOD_US);
+        } catch (IOException e) {
+            runCgroup.destroy();
+            throw e;
+        }
+        return runCgroup;
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * 包装启动命令，进程启动后先加入本 cgroup 再执行原命令
+     *
+     * @param command 原命令
+     * @return 包装后的命令
+     */
+    public String[] wrapCommand(String[] command) {
+        List<String> wrapped = new ArrayList<>(command.length + 4);
+        wrapped.add("/bin/sh");
+        wrapped.add("-c");
+        wrapped.add("echo $$ > '" + new File(dir, "cgroup.procs").getAbsolutePath() + "' && exec \"$@\"");
+        wrapped.add("sh");
+        wrapped.addAll(Arrays.asList(command));
+        return wrapped.toArray(new String[0]);
+    }
+
+    /**
+     * 内存峰值（字节），内核不支持 memory.peak 时返回 -1
+     */
+    public long readMemoryPeak() {
+        return readLong("memory.peak");
+    }
+
+    /**
+     * CPU 时间（用户态 + 内核态，毫秒），读取失败时返回 -1
+     */
+    public long readCpuTimeMs() {
+        long usageUs = readKeyedValue("cpu.stat", "usage_usec");
+        return usageUs < 0 ? -1L : usageUs / 1000;
+    }
+
+    /**
+     * 是否发生过 OOM（内存超过 memory.max 后被内核杀掉）
+     */
+    public boolean isOomKilled() {
+        return readKeyedValue("memory.events", "oom_kill") > 0;
+    }
+
+    /**
+     * 结束 cgroup 内残留的进程并删除 cgroup
+     */
+    public void destroy() {
+        File killFile = new File(dir, "cgroup.kill");
+        for (int i = 0; i < REMOVE_RETRY_TIMES; i++) {
+            if (dir.delete() || !dir.exists()) {
+                return;
+            }
+            try {
+                if (killFile.exists()) {
+                    write("cgroup.kill", "1");
+                } else {
+                    killProcesses();
+                }
+                Thread.sleep(5L);
+            } catch (IOException e) {
+                log.debug("结束 cgroup 内的进程失败: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.warn("删除 cgroup 失败: {}", dir);
+    }
+
+    /**
+     * 没有 cgroup.kill 的内核（5.14 之前）逐个结束进程
+     */
+    private void killProcesses() throws IOException {
+        for (String pid : read("cgroup.procs").split("\n")) {
+            if (!pid.trim().isEmpty()) {
+                new ProcessBuilder("kill", "-9", pid.trim()).start();
+            }
+        }
+    }
+
+    private long readLong(String fileName) {
+        try {
+            return Long.parseLong(read(fileName).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 读取 "key value" 格式文件中的值
+     */
+    private long readKeyedValue(String fileName, String key) {
+        try {
+            for (String line : read(fileName).split("\n")) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length == 2 && parts[0].equals(key)) {
+                    return Long.parseLong(parts[1]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("读取 cgroup 文件失败: {}", e.getMessage());
+        }
+        return -1L;
+    }
+
+    private String read(String fileName) throws IOException {
+        return new String(Files.readAllBytes(new File(dir, fileName).toPath()), StandardCharsets.US_ASCII);
+    }
+
+    private void write(String fileName, String value) throws IOException {
+        Files.write(new File(dir, fileName).toPath(), value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
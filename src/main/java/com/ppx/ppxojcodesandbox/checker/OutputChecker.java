@@ -0,0 +1,390 @@
+package com.ppx.ppxojcodesandbox.checker;
+
+import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+import com.ppx.ppxojcodesandbox.model.enums.CompareModeEnum;
+import com.ppx.ppxojcodesandbox.model.enums.JudgeInfoMessageEnum;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 流式输出比较器
+ * 程序输出按块喂入，边读边和期望输出比较，不需要保存完整输出；按词比较出现不一致时立即可以判定答案错误，
+ * 调用方据此提前结束进程。期望输出直接在缓冲区上比较，不拆分成词，测试数据缓存中的堆外缓冲区可以直接使用。
+ * 一个比较器只用于一个用例，喂入和取结果需要在同一线程或有 happens-before 关系。
+ *
+ * 比较规则：
+ * exact 忽略 \r 和输出末尾的空白后逐字节比较，不一致但按词比较一致时为格式错误；
+ * token 按空白分隔的词逐个比较；
+ * float 按词比较，两个词都能解析为数字时绝对误差或相对误差不超过 tolerance 即视为相同。
+ */
+public class OutputChecker {
+
+    public static final double DEFAULT_FLOAT_TOLERANCE = 1e-6;
+
+    // float 比较方式下单个词的最大长度，超过时直接判为答案错误
+    private static final int MAX_FLOAT_TOKEN_BYTES = 4096;
+
+    private final CompareModeEnum compareMode;
+
+    private final double tolerance;
+
+    // 期望输出，只做绝对位置读取，可以是堆外或内存映射的缓冲区
+    private final ByteBuffer expected;
+
+    private final int expectedLength;
+
+    // 只有 exact 方式逐字节比较
+    private final boolean exact;
+
+    // 按词比较的状态：期望输出中下一个词的查找起点、当前词的范围
+    private int expectedCursor = 0;
+
+    private int expectedTokenStart;
+
+    private int expectedTokenEnd;
+
+    private boolean inToken = false;
+
+    private int tokenLength = 0;
+
+    // 当前词到目前为止和期望的词逐字节相同
+    private boolean tokenBytesMatch;
+
+    // float 方式需要保留整个词用于解析
+    private byte[] tokenBuffer;
+
+    private boolean tokenMismatch = false;
+
+    // 逐字节比较的状态，期望输出中的 \r 跳过
+    private int exactPosition = 0;
+
+    // 最近一段空白和期望输出不一致，后面再出现非空白字符时逐字节比较失败
+    private boolean whitespaceMismatch = false;
+
+    private boolean exactMismatch = false;
+
+    private boolean finished = false;
+
+    public OutputChecker(String expectedOutput, CompareModeEnum compareMode, double tolerance) {
+        this(StrUtil.nullToEmpty(expectedOutput).getBytes(StandardCharsets.UTF_8), compareMode, tolerance);
+    }
+
+    public OutputChecker(byte[] expected, CompareModeEnum compareMode, double tolerance) {
+        this(ByteBuffer.wrap(expected), compareMode, tolerance);
+    }
+
+    /**
+     * @param expected    期望输出，从 position 到 limit 的部分，比较过程中不修改缓冲区的位置，可以被多个比较器共用
+     * @param compareMode 比较方式
+     * @param tolerance   float 方式允许的误差
+     */
+    public OutputChecker(ByteBuffer expected, CompareModeEnum compareMode, double tolerance) {
+        this.compareMode = compareMode;
+        this.tolerance = tolerance;
+        this.expected = expected.slice();
+        this.expectedLength = this.expected.limit();
+        this.exact = compareMode == CompareModeEnum.EXACT;
+        this.tokenBuffer = compareMode == CompareModeEnum.FLOAT ? new byte[64] : null;
+    }
+
+    /**
+     * 校验请求中的期望输出和比较方式
+     *
+     * @param executeCodeRequest 执行请求
+     */
+    public static void validate(ExecuteCodeRequest executeCodeRequest) {
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        if (expectedOutputList == null) {
+            return;
+        }
+        List<String> inputList = executeCodeRequest.getInputList();
+        if (inputList == null || expectedOutputList.size() != inputList.size()) {
+            throw new IllegalArgumentException("期望输出的数量和输入用例的数量不一致");
+        }
+        resolveCompareMode(executeCodeRequest.getCompareMode());
+    }
+
+    /**
+     * 为请求中的某个用例创建比较器
+     *
+     * @param executeCodeRequest 执行请求
+     * @param index              用例下标
+     * @return 比较器，请求没有期望输出时返回 null
+     */
+    public static OutputChecker fromRequest(ExecuteCodeRequest executeCodeRequest, int index) {
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        if (expectedOutputList == null || index >= expectedOutputList.size()) {
+            return null;
+        }
+        return new OutputChecker(expectedOutputList.get(index), resolveCompareMode(executeCodeRequest.getCompareMode()),
+                resolveTolerance(executeCodeRequest.getFloatTolerance()));
+    }
+
+    /**
+     * 根据请求的比较方式获取枚举，为空时为 exact
+     *
+     * @param compareMode 请求中的比较方式
+     * @return 比较方式
+     */
+    public static CompareModeEnum resolveCompareMode(String compareMode) {
+        if (StrUtil.isEmpty(compareMode)) {
+            return CompareModeEnum.EXACT;
+        }
+        CompareModeEnum mode = CompareModeEnum.getEnumByValue(compareMode);
+        if (mode == null) {
+            throw new IllegalArgumentException("不支持的比较方式: " + compareMode + "，可选: " + CompareModeEnum.getValues());
+        }
+        return mode;
+    }
+
+    /**
+     * 根据请求的误差获取实际使用的误差
+     *
+     * @param floatTolerance 请求中的误差，可以为空
+     * @return 误差
+     */
+    public static double resolveTolerance(Double floatTolerance) {
+        return floatTolerance == null ? DEFAULT_FLOAT_TOLERANCE : floatTolerance;
+    }
+
+    /**
+     * 喂入一段输出
+     *
+     * @param bytes  输出内容
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b == '\r') {
+                continue;
+            }
+            boolean whitespace = isWhitespace(b);
+            if (exact && !exactMismatch) {
+                feedExact(b, whitespace);
+            }
+            if (!tokenMismatch) {
+                feedToken(b, whitespace);
+            }
+            if (tokenMismatch && (!exact || exactMismatch)) {
+                // 结果已经确定，剩余输出不用再比较
+                return;
+            }
+        }
+    }
+
+    /**
+     * 喂入文件中的全部输出
+     *
+     * @param outputFile 输出文件，不存在时视为空输出
+     * @throws IOException 读取失败
+     */
+    public void feedFile(File outputFile) throws IOException {
+        if (!outputFile.isFile()) {
+            return;
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = new FileInputStream(outputFile)) {
+            int len;
+            while (!isRejected() && (len = inputStream.read(buffer)) != -1) {
+                feed(buffer, 0, len);
+            }
+        }
+    }
+
+    /**
+     * 是否已经可以确定答案错误（之后的输出不会改变结果）
+     *
+     * @return 是否答案错误
+     */
+    public boolean isRejected() {
+        return tokenMismatch;
+    }
+
+    /**
+     * 输出结束，给出比较结果
+     *
+     * @return {@link JudgeInfoMessageEnum#ACCEPTED}、{@link JudgeInfoMessageEnum#WRONG_ANSWER}
+     * 或 {@link JudgeInfoMessageEnum#PRESENTATION_ERROR}
+     */
+    public JudgeInfoMessageEnum finish() {
+        if (!finished) {
+            finished = true;
+            if (!tokenMismatch) {
+                if (inToken) {
+                    endToken();
+                }
+                // 期望输出还有没比较的词
+                if (skipWhitespace(expectedCursor) < expectedLength) {
+                    tokenMismatch = true;
+                }
+            }
+            if (exact && !exactMismatch && skipWhitespace(exactPosition) < expectedLength) {
+                // 期望输出剩下的部分只能是空白
+                exactMismatch = true;
+            }
+        }
+        if (tokenMismatch) {
+            return JudgeInfoMessageEnum.WRONG_ANSWER;
+        }
+        if (exactMismatch) {
+            return JudgeInfoMessageEnum.PRESENTATION_ERROR;
+        }
+        return JudgeInfoMessageEnum.ACCEPTED;
+    }
+
+    /**
+     * 正常结束的用例按比较结果设置退出码和错误信息，并清空输出；已确定答案错误时不论进程如何结束都判为答案错误
+     *
+     * @param executeMessage 用例执行信息
+     * @param checker        比较器，为 null 时不处理
+     * @return 传入的执行信息
+     */
+    public static ExecuteMessage applyVerdict(ExecuteMessage executeMessage, OutputChecker checker) {
+        if (checker == null) {
+            return executeMessage;
+        }
+        // 比较过的用例不返回输出内容
+        executeMessage.setMessage(null);
+        boolean completed = executeMessage.getExitValue() != null && executeMessage.getExitValue() == 0
+                && StrUtil.isBlank(executeMessage.getErrorMessage());
+        if (!completed && !checker.isRejected()) {
+            return executeMessage;
+        }
+        JudgeInfoMessageEnum verdict = checker.finish();
+        if (verdict == JudgeInfoMessageEnum.WRONG_ANSWER) {
+            executeMessage.setExitValue(ExitCodeConstant.WRONG_ANSWER_EXIT_CODE);
+            executeMessage.setErrorMessage(verdict.getText());
+        } else if (verdict == JudgeInfoMessageEnum.PRESENTATION_ERROR) {
+            executeMessage.setExitValue(ExitCodeConstant.PRESENTATION_ERROR_EXIT_CODE);
+            executeMessage.setErrorMessage(verdict.getText());
+        }
+        return executeMessage;
+    }
+
+    private void feedExact(byte b, boolean whitespace) {
+        int position = exactPosition;
+        while (position < expectedLength && expected.get(position) == '\r') {
+            position++;
+        }
+        if (whitespace) {
+            // 空白先不判定，末尾的空白允许不一致
+            if (!whitespaceMismatch && position < expectedLength && expected.get(position) == b) {
+                exactPosition = position + 1;
+            } else {
+                whitespaceMismatch = true;
+            }
+            return;
+        }
+        if (whitespaceMismatch || position >= expectedLength || expected.get(position) != b) {
+            exactMismatch = true;
+            return;
+        }
+        exactPosition = position + 1;
+    }
+
+    private void feedToken(byte b, boolean whitespace) {
+        if (whitespace) {
+            if (inToken) {
+                endToken();
+            }
+            return;
+        }
+        if (!inToken) {
+            // 实际输出开始一个新词，在期望输出中找到对应的词
+            int start = skipWhitespace(expectedCursor);
+            if (start >= expectedLength) {
+                tokenMismatch = true;
+                return;
+            }
+            int end = start;
+            while (end < expectedLength && !isWhitespace(expected.get(end))) {
+                end++;
+            }
+            expectedTokenStart = start;
+            expectedTokenEnd = end;
+            expectedCursor = end;
+            inToken = true;
+            tokenLength = 0;
+            tokenBytesMatch = true;
+        }
+        if (tokenBytesMatch) {
+            int position = expectedTokenStart + tokenLength;
+            tokenBytesMatch = position < expectedTokenEnd && expected.get(position) == b;
+        }
+        if (compareMode != CompareModeEnum.FLOAT) {
+            // 不允许误差时，出现不同的字节就已经不一致
+            if (!tokenBytesMatch) {
+                tokenMismatch = true;
+            }
+            tokenLength++;
+            return;
+        }
+        if (tokenLength >= MAX_FLOAT_TOKEN_BYTES) {
+            tokenMismatch = true;
+            return;
+        }
+        if (tokenLength == tokenBuffer.length) {
+            tokenBuffer = Arrays.copyOf(tokenBuffer, tokenBuffer.length * 2);
+        }
+        tokenBuffer[tokenLength++] = b;
+    }
+
+    private void endToken() {
+        inToken = false;
+        if (tokenBytesMatch && tokenLength == expectedTokenEnd - expectedTokenStart) {
+            return;
+        }
+        if (compareMode == CompareModeEnum.FLOAT
+                && floatEquals(new String(tokenBuffer, 0, tokenLength, StandardCharsets.UTF_8), expectedToken())) {
+            return;
+        }
+        tokenMismatch = true;
+    }
+
+    private String expectedToken() {
+        byte[] bytes = new byte[expectedTokenEnd - expectedTokenStart];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = expected.get(expectedTokenStart + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int skipWhitespace(int position) {
+        while (position < expectedLength && isWhitespace(expected.get(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean floatEquals(String actual, String expected) {
+        double actualValue;
+        double expectedValue;
+        try {
+            actualValue = Double.parseDouble(actual);
+            expectedValue = Double.parseDouble(expected);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Double.isNaN(actualValue) || Double.isNaN(expectedValue) || Double.isInfinite(actualValue) || Double.isInfinite(expectedValue)) {
+            return false;
+        }
+        double diff = Math.abs(actualValue - expectedValue);
+        return diff <= tolerance || diff <= tolerance * Math.abs(expectedValue);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+import lombok.Getter;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 编译结果缓存条目，保存编译产物（class 文件）或编译错误信息
+ */
+@Getter
+public class CompileCacheEntry {
+
+    // 条目本身的固定开销估算
+    private static final long ENTRY_OVERHEAD_BYTES = 256L;
+
+    private final boolean success;
+
+    // 文件名 -> 字节码
+    private final Map<String, byte[]> classFiles;
+
+    private final String errorMessage;
+
+    private final long byteSize;
+
+    private CompileCacheEntry(boolean success, Map<String, byte[]> classFiles, String errorMessage) {
+        this.success = success;
+        this.classFiles = classFiles;
+        this.errorMessage = errorMessage;
+        long size = ENTRY_OVERHEAD_BYTES;
+        for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+            size += entry.getKey().length() * 2L + entry.getValue().length;
+        }
+        if (errorMessage != null) {
+            size += errorMessage.length() * 2L;
+        }
+        this.byteSize = size;
+    }
+
+    public static CompileCacheEntry success(Map<String, byte[]> classFiles) {
+        return new CompileCacheEntry(true, Collections.unmodifiableMap(classFiles), null);
+    }
+
+    public static CompileCacheEntry failure(String errorMessage) {
+        return new CompileCacheEntry(false, Collections.emptyMap(), errorMessage);
+    }
+
+    /**
+     * 把缓存的 class 文件写到用户代码目录
+     *
+     * @param userCodeParentDir 用户代码目录
+     */
+    public void materialize(File userCodeParentDir) {
+        for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+            FileUtil.writeBytes(entry.getValue(), new File(userCodeParentDir, entry.getKey()));
+        }
+    }
+
+    /**
+     * 转换成和 javac 进程一致的执行信息
+     */
+    public ExecuteMessage toExecuteMessage() {
+        return ExecuteMessage.builder()
+                .exitValue(success ? 0 : 1)
+                .message("")
+                .errorMessage(success ? null : errorMessage)
+                .time(0L)
+                .build();
+    }
+}
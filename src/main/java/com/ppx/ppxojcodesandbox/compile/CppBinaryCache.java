@@ -0,0 +1,296 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * C++ 编译产物磁盘缓存
+ * 以 g++ 版本 + 编译参数 + 源代码的哈希为键，把可执行文件或编译错误信息保存在磁盘上，服务重启和重新评测时直接复用。
+ * 文件先写到临时目录再原子改名发布，进程崩溃不会留下不完整的条目；按字节数做 LRU 淘汰，
+ * 最近使用时间记录在文件的修改时间上，重启后按修改时间重建 LRU 顺序。
+ *
+ * 目录布局：root/ab/ab12...bin（可执行文件）、root/ab/ab12...err（编译错误信息）
+ */
+@Slf4j
+@Component
+public class CppBinaryCache {
+
+    private static final String BINARY_SUFFIX = ".bin";
+
+    private static final String ERROR_SUFFIX = ".err";
+
+    // 临时文件目录，启动时清空
+    private static final String TEMP_DIR_NAME = ".tmp";
+
+    @Value("${codesandbox.cpp.binary-cache.enabled:true}")
+    private boolean enabled;
+
+    // 缓存目录，为空时使用 user.dir/cppBinaryCache
+    @Value("${codesandbox.cpp.binary-cache.dir:}")
+    private String cacheDir;
+
+    // 缓存总字节上限
+    @Value("${codesandbox.cpp.binary-cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    // 单个条目的字节上限，太大的可执行文件不缓存
+    @Value("${codesandbox.cpp.binary-cache.max-entry-bytes:67108864}")
+    private long maxEntryBytes;
+
+    private File cacheRoot;
+
+    private File tempDir;
+
+    // 键 -> 条目文件大小，accessOrder = true，队首为最久未使用
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long currentBytes = 0L;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    private final AtomicLong evictionCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        cacheRoot = StrUtil.isBlank(cacheDir) ? new File(System.getProperty("user.dir"), "cppBinaryCache") : new File(cacheDir);
+        tempDir = new File(cacheRoot, TEMP_DIR_NAME);
+        FileUtil.del(tempDir);
+        FileUtil.mkdir(tempDir);
+        loadIndex();
+    }
+
+    /**
+     * 生成缓存键
+     *
+     * @param code       源代码
+     * @param compileCmd 去掉工作目录路径后的编译命令
+     * @return 缓存键，g++ 不可用时返回 null
+     */
+    public String buildKey(String code, String compileCmd) {
+        String version = CppToolchain.getVersion();
+        if (!enabled || version == null) {
+            return null;
+        }
+        return DigestUtil.sha256Hex(version + '\u0000' + compileCmd + '\u0000' + code);
+    }
+
+    /**
+     * 命中编译成功的缓存时把可执行文件复制到目标位置
+     *
+     * @param key        缓存键
+     * @param targetFile 可执行文件的目标位置
+     * @return 是否命中
+     */
+    public boolean copyBinaryTo(String key, File targetFile) {
+        if (key == null) {
+            return false;
+        }
+        File entryFile = entryFile(key, BINARY_SUFFIX);
+        if (!touch(key, entryFile)) {
+            return false;
+        }
+        try {
+            Files.copy(entryFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return targetFile.setExecutable(true);
+        } catch (IOException e) {
+            // 条目刚好被淘汰，按未命中处理
+            log.debug("读取编译缓存失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 获取缓存的编译错误信息
+     *
+     * @param key 缓存键
+     * @return 编译错误信息，未命中返回 null
+     */
+    public String getCompileError(String key) {
+        if (key == null) {
+            return null;
+        }
+        File entryFile = entryFile(key, ERROR_SUFFIX);
+        if (!touch(key, entryFile)) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(entryFile.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.debug("读取编译缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 记录一次查询的结果，两种条目都没有命中时计一次未命中
+     *
+     * @param hit 是否命中
+     */
+    public void recordLookup(boolean hit) {
+        if (hit) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 缓存编译出的可执行文件
+     *
+     * @param key        缓存键
+     * @param binaryFile 可执行文件
+     */
+    public void putBinary(String key, File binaryFile) {
+        if (key == null || !binaryFile.isFile() || binaryFile.length() > maxEntryBytes) {
+            return;
+        }
+        publish(key, BINARY_SUFFIX, tempFile -> Files.copy(binaryFile.toPath(), tempFile.toPath()));
+    }
+
+    /**
+     * 缓存编译错误信息
+     *
+     * @param key          缓存键
+     * @param errorMessage 编译错误信息
+     */
+    public void putCompileError(String key, String errorMessage) {
+        byte[] bytes = StrUtil.nullToEmpty(errorMessage).getBytes(StandardCharsets.UTF_8);
+        if (key == null || bytes.length > maxEntryBytes) {
+            return;
+        }
+        publish(key, ERROR_SUFFIX, tempFile -> Files.write(tempFile.toPath(), bytes));
+    }
+
+    public synchronized CacheStats getStats() {
+        return CacheStats.builder()
+                .hitCount(hitCount.get())
+                .missCount(missCount.get())
+                .evictionCount(evictionCount.get())
+                .entryCount(index.size())
+                .byteSize(currentBytes)
+                .maxByteSize(maxBytes)
+                .build();
+    }
+
+    /**
+     * 先写临时文件，再原子改名为正式条目
+     */
+    private void publish(String key, String suffix, TempFileWriter writer) {
+        File entryFile = entryFile(key, suffix);
+        File tempFile = new File(tempDir, UUID.randomUUID() + suffix);
+        try {
+            writer.write(tempFile);
+            FileUtil.mkdir(entryFile.getParentFile());
+            Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("写入编译缓存失败: {}", e.getMessage());
+            FileUtil.del(tempFile);
+            return;
+        }
+        synchronized (this) {
+            Long old = index.put(key, entryFile.length());
+            if (old != null) {
+                currentBytes -= old;
+            }
+            currentBytes += entryFile.length();
+            Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+            while (currentBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                currentBytes -= eldest.getValue();
+                iterator.remove();
+                evictionCount.incrementAndGet();
+                // 在锁内删除，避免删掉刚重新写入的同名条目
+                FileUtil.del(entryFile(eldest.getKey(), BINARY_SUFFIX));
+                FileUtil.del(entryFile(eldest.getKey(), ERROR_SUFFIX));
+            }
+        }
+    }
+
+    /**
+     * 条目存在时更新 LRU 顺序和文件修改时间
+     */
+    private boolean touch(String key, File entryFile) {
+        synchronized (this) {
+            if (index.get(key) == null) {
+                return false;
+            }
+        }
+        if (!entryFile.isFile()) {
+            return false;
+        }
+        // 修改时间记录最近使用时间，重启后用来恢复 LRU 顺序
+        entryFile.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * 扫描缓存目录，按修改时间从旧到新重建索引，超出上限的条目直接删除
+     */
+    private void loadIndex() {
+        List<File> entryFiles = new ArrayList<>();
+        File[] shards = cacheRoot.listFiles(file -> file.isDirectory() && !TEMP_DIR_NAME.equals(file.getName()));
+        for (File shard : shards == null ? new File[0] : shards) {
+            File[] files = shard.listFiles(file -> file.isFile()
+                    && (file.getName().endsWith(BINARY_SUFFIX) || file.getName().endsWith(ERROR_SUFFIX)));
+            if (files != null) {
+                entryFiles.addAll(Arrays.asList(files));
+            }
+        }
+        entryFiles.sort(Comparator.comparingLong(File::lastModified));
+        synchronized (this) {
+            for (File entryFile : entryFiles) {
+                String name = entryFile.getName();
+                index.put(name.substring(0, name.lastIndexOf('.')), entryFile.length());
+                currentBytes += entryFile.length();
+            }
+            Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+            while (currentBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                currentBytes -= eldest.getValue();
+                iterator.remove();
+                // 在锁内删除，避免删掉刚重新写入的同名条目
+                FileUtil.del(entryFile(eldest.getKey(), BINARY_SUFFIX));
+                FileUtil.del(entryFile(eldest.getKey(), ERROR_SUFFIX));
+            }
+        }
+        log.info("C++ 编译缓存已加载, 条目数 = {}, 占用 {} 字节", index.size(), currentBytes);
+    }
+
+    private File entryFile(String key, String suffix) {
+        return new File(new File(cacheRoot, key.substring(0, 2)), key + suffix);
+    }
+
+    @FunctionalInterface
+    private interface TempFileWriter {
+        void write(File tempFile) throws IOException;
+    }
+}
@@ -0,0 +1,274 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ppx.ppxojcodesandbox.model.enums.CppCompileProfileEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * C++ 预编译头管理
+ * 为配置的常用头文件（默认 bits/stdc++.h）按编译配置各生成一份 .gch，编译提交时通过 -include 使用，
+ * 省去每次解析标准库头文件的时间。预编译头按 g++ 版本 + 编译参数 + 头文件列表的哈希存放在磁盘上，重启后直接复用；
+ * 启动时在后台生成预先配置的编译配置，其他编译配置第一次使用时再生成，生成完成前照常编译。
+ */
+@Slf4j
+@Component
+public class CppPrecompiledHeaderManager {
+
+    // 预编译头入口文件名，.gch 与它放在同一目录
+    private static final String HEADER_FILE_NAME = "sandbox_pch.h";
+
+    // 生成时 g++ 的输出文件，生成成功后删除
+    private static final String BUILD_LOG_FILE_NAME = "build.log";
+
+    // 生成单个预编译头的超时时间
+    private static final long BUILD_TIMEOUT_SECONDS = 120L;
+
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("^#\\s*include\\s*[<\"]([^>\"]+)[>\"]");
+
+    @Value("${codesandbox.cpp.pch.enabled:true}")
+    private boolean enabled;
+
+    // 预编译头存放目录，为空时使用 user.dir/cppPch
+    @Value("${codesandbox.cpp.pch.dir:}")
+    private String pchDir;
+
+    // 预编译的头文件，逗号分隔
+    @Value("${codesandbox.cpp.pch.headers:bits/stdc++.h}")
+    private String headers;
+
+    // 启动时预先生成的编译配置，逗号分隔
+    @Value("${codesandbox.cpp.pch.profiles:gnu++17-O2}")
+    private String profiles;
+
+    private File pchRoot;
+
+    private List<String> headerList;
+
+    private String compilerVersion;
+
+    // 已生成的预编译头入口文件
+    private final Map<CppCompileProfileEnum, File> readyHeaders = new ConcurrentHashMap<>();
+
+    // 已提交生成的编译配置（包括生成失败的，不再重试）
+    private final Set<CppCompileProfileEnum> submittedProfiles = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService builder;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        pchRoot = StrUtil.isBlank(pchDir) ? new File(System.getProperty("user.dir"), "cppPch") : new File(pchDir);
+        headerList = StrUtil.splitTrim(headers, ',');
+        builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cpp-pch-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        builder.execute(() -> {
+            compilerVersion = CppToolchain.getVersion();
+            if (compilerVersion == null) {
+                log.warn("g++ 不可用，不使用预编译头");
+                return;
+            }
+            removeStaleHeaders();
+        });
+        for (String profileValue : StrUtil.splitTrim(profiles, ',')) {
+            CppCompileProfileEnum profile = CppCompileProfileEnum.getEnumByValue(profileValue);
+            if (profile == null) {
+                log.warn("未知的 C++ 编译配置: {}", profileValue);
+                continue;
+            }
+            submitBuild(profile);
+        }
+    }
+
+    /**
+     * 获取编译配置对应的预编译头，还没生成时提交生成并返回 null
+     *
+     * @param profile 编译配置
+     * @param code    源代码，只有源代码按预编译头的方式包含了所有配置的头文件时才使用
+     * @return 用于 -include 的头文件，不可用时返回 null
+     */
+    public File getHeader(CppCompileProfileEnum profile, String code) {
+        if (!enabled) {
+            return null;
+        }
+        File header = readyHeaders.get(profile);
+        if (header == null) {
+            submitBuild(profile);
+            return null;
+        }
+        return isCompatible(code) ? header : null;
+    }
+
+    /**
+     * 源代码是否可以使用预编译头：配置的头文件都被包含，且它们之前只有注释和其他 #include。
+     * 预编译头会被强制放在最前面，之前如果有 #define、#pragma 等指令，它们对头文件的影响会丢失。
+     */
+    private boolean isCompatible(String code) {
+        Set<String> remaining = new HashSet<>(headerList);
+        boolean inBlockComment = false;
+        for (String rawLine : StrUtil.split(code, '\n')) {
+            String line = rawLine.trim();
+            if (inBlockComment) {
+                int end = line.indexOf("*/");
+                if (end < 0) {
+                    continue;
+                }
+                inBlockComment = false;
+                line = line.substring(end + 2).trim();
+            }
+            if (line.startsWith("/*")) {
+                int end = line.indexOf("*/", 2);
+                if (end < 0) {
+                    inBlockComment = true;
+                    continue;
+                }
+                line = line.substring(end + 2).trim();
+            }
+            if (line.isEmpty() || line.startsWith("//")) {
+                continue;
+            }
+            Matcher matcher = INCLUDE_PATTERN.matcher(line);
+            if (!matcher.find()) {
+                return false;
+            }
+            remaining.remove(matcher.group(1).trim());
+            if (remaining.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void submitBuild(CppCompileProfileEnum profile) {
+        if (submittedProfiles.add(profile)) {
+            builder.execute(() -> build(profile));
+        }
+    }
+
+    private void build(CppCompileProfileEnum profile) {
+        if (compilerVersion == null) {
+            return;
+        }
+        File targetDir = new File(pchRoot, buildKey(profile));
+        File header = new File(targetDir, HEADER_FILE_NAME);
+        if (new File(targetDir, HEADER_FILE_NAME + ".gch").isFile()) {
+            readyHeaders.put(profile, header);
+            log.info("复用已有的预编译头, profile = {}", profile.getValue());
+            return;
+        }
+        // 先在临时目录中生成，完成后整体改名，编译时不会读到生成到一半的文件
+        File tempDir = new File(pchRoot, ".tmp-" + UUID.randomUUID());
+        try {
+            File tempHeader = new File(tempDir, HEADER_FILE_NAME);
+            StringBuilder content = new StringBuilder("#ifndef SANDBOX_PCH_H\n#define SANDBOX_PCH_H\n");
+            for (String headerName : headerList) {
+                content.append("#include <").append(headerName).append(">\n");
+            }
+            content.append("#endif\n");
+            FileUtil.writeString(content.toString(), tempHeader, StandardCharsets.UTF_8);
+            List<String> command = new ArrayList<>();
+            command.add("g++");
+            command.addAll(StrUtil.splitTrim(profile.getFlags(), ' '));
+            command.add("-x");
+            command.add("c++-header");
+            command.add(tempHeader.getAbsolutePath());
+            command.add("-o");
+            command.add(tempHeader.getAbsolutePath() + ".gch");
+            long startTime = System.currentTimeMillis();
+            // 输出写到文件，不读管道，g++ 卡住时也能按时等待超时
+            File outputFile = new File(tempDir, BUILD_LOG_FILE_NAME);
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(outputFile)
+                    .start();
+            if (!process.waitFor(BUILD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                log.warn("生成预编译头超时, profile = {}", profile.getValue());
+                return;
+            }
+            if (process.exitValue() != 0) {
+                log.warn("生成预编译头失败, profile = {}, 输出: {}", profile.getValue(),
+                        FileUtil.readString(outputFile, StandardCharsets.UTF_8).trim());
+                return;
+            }
+            FileUtil.del(outputFile);
+            try {
+                Files.move(tempDir.toPath(), targetDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // 其他进程已经生成了同一份预编译头
+                if (!new File(targetDir, HEADER_FILE_NAME + ".gch").isFile()) {
+                    throw e;
+                }
+            }
+            readyHeaders.put(profile, header);
+            log.info("预编译头已生成, profile = {}, 耗时 {}ms", profile.getValue(), System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            log.warn("生成预编译头失败, profile = {}, 原因: {}", profile.getValue(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (tempDir.exists()) {
+                FileUtil.del(tempDir);
+            }
+        }
+    }
+
+    /**
+     * 预编译头只能被相同编译器和编译参数使用，目录名中包含这些信息的哈希
+     */
+    private String buildKey(CppCompileProfileEnum profile) {
+        String key = DigestUtil.sha256Hex(compilerVersion + '\u0000' + profile.getFlags() + '\u0000' + String.join(",", headerList));
+        return profile.getValue() + "-" + key.substring(0, 16);
+    }
+
+    /**
+     * 删除编译器升级或配置变更后不再使用的预编译头
+     */
+    private void removeStaleHeaders() {
+        Set<String> currentKeys = new HashSet<>();
+        for (CppCompileProfileEnum profile : CppCompileProfileEnum.values()) {
+            currentKeys.add(buildKey(profile));
+        }
+        File[] children = pchRoot.listFiles(File::isDirectory);
+        for (File child : children == null ? new File[0] : children) {
+            if (!currentKeys.contains(child.getName())) {
+                FileUtil.del(child);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (builder != null) {
+            builder.shutdownNow();
+        }
+    }
+}
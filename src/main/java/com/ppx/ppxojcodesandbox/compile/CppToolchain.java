@@ -0,0 +1,70 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 本机 C++ 编译器信息，预编译头和编译产物缓存都要按编译器版本区分
+ */
+@Slf4j
+public class CppToolchain {
+
+    private static volatile String version;
+
+    private CppToolchain() {
+    }
+
+    /**
+     * 获取 g++ 版本，第一次调用时执行 g++ 获取，之后复用
+     *
+     * @return 版本号，g++ 不可用时返回 null
+     */
+    public static String getVersion() {
+        if (version == null) {
+            synchronized (CppToolchain.class) {
+                if (version == null) {
+                    version = readVersion();
+                }
+            }
+        }
+        return version.isEmpty() ? null : version;
+    }
+
+    private static String readVersion() {
+        try {
+            Process process = new ProcessBuilder("g++", "-dumpfullversion", "-dumpversion").redirectErrorStream(true).start();
+            String output = readOutput(process).trim();
+            if (process.waitFor() == 0 && !output.isEmpty()) {
+                return output;
+            }
+            log.warn("获取 g++ 版本失败: {}", output);
+        } catch (IOException e) {
+            log.warn("获取 g++ 版本失败: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "";
+    }
+
+    /**
+     * 读取进程的全部输出
+     *
+     * @param process 进程
+     * @return 输出内容
+     * @throws IOException 读取失败
+     */
+    public static String readOutput(Process process) throws IOException {
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,382 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.tools.ToolProvider;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 常驻 JVM 中的 Java 编译器
+ * 编译交给常驻的编译 JVM（见 {@link JavaCompilerRunner}），基于 javax.tools.JavaCompiler 在内存中编译，省去每次启动 javac 进程的开销；
+ * 编译 JVM 有单独的堆上限，常量折叠、类型推断等病态代码占满内存或卡住时只影响这一个进程，不会拖垮服务 JVM。
+ * 编译在固定大小的线程池中进行，每个编译线程独占一个编译 JVM，并限制源码长度、排队长度和编译时长：
+ * 编译超时时直接结束编译 JVM，编译线程随即空出来，下次编译时重新启动；编译器繁忙时由调用方回退到 javac 进程编译。
+ */
+@Slf4j
+public class InProcessJavaCompiler {
+
+    // 同时编译的最大数量（也是编译 JVM 的数量）
+    private static final int MAX_CONCURRENT_COMPILES = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // 排队等待编译的最大数量
+    private static final int MAX_QUEUED_COMPILES = 64;
+
+    // 单次编译超时时间，从编译线程开始编译时计时，不含排队时间
+    private static final long COMPILE_TIMEOUT_MS = 10000L;
+
+    // 排队等待的最长时间，超过后取消排队并回退到 javac 进程
+    private static final long MAX_QUEUE_WAIT_MS = 30000L;
+
+    // 源码最大字符数
+    private static final int MAX_SOURCE_LENGTH = 256 * 1024;
+
+    // 编译 JVM 的最大堆内存，超过时编译 JVM 直接退出
+    private static final String COMPILER_MAX_HEAP = "256m";
+
+    private static final InProcessJavaCompiler INSTANCE = new InProcessJavaCompiler();
+
+    private final ThreadPoolExecutor compileExecutor;
+
+    // 每个编译线程独占一个编译 JVM
+    private final ThreadLocal<CompilerProcess> compilerProcess = new ThreadLocal<>();
+
+    // 编译 JVM 的启动命令，为 null 表示不可用
+    private List<String> compilerCommand;
+
+    private InProcessJavaCompiler() {
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        compileExecutor = new ThreadPoolExecutor(MAX_CONCURRENT_COMPILES, MAX_CONCURRENT_COMPILES,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_COMPILES), runnable -> {
+            Thread thread = new Thread(runnable, "java-compiler-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (ToolProvider.getSystemJavaCompiler() == null) {
+            log.warn("当前运行环境没有 JavaCompiler（JRE），编译将使用 javac 进程");
+            return;
+        }
+        try {
+            compilerCommand = buildCompilerCommand(extractRunnerClasses());
+        } catch (IOException e) {
+            log.warn("编译 JVM 初始化失败，编译将使用 javac 进程: {}", e.getMessage());
+            return;
+        }
+        // 预热：提前启动编译 JVM，加载编译器和平台类库
+        compileExecutor.prestartAllCoreThreads();
+        for (int i = 0; i < MAX_CONCURRENT_COMPILES; i++) {
+            compileExecutor.execute(() -> doCompile("Main", "public class Main { public static void main(String[] args) { } }",
+                    new AtomicBoolean(false), new AtomicReference<>()));
+        }
+    }
+
+    public static InProcessJavaCompiler getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isAvailable() {
+        return compilerCommand != null;
+    }
+
+    /**
+     * 编译用户代码文件
+     *
+     * @param userCodeFile 用户代码文件
+     * @return 编译结果，编译器繁忙（排队已满或排队过久）时返回 null，调用方应回退到 javac 进程；
+     * 编译超时或编译 JVM 异常退出时返回 {@link InProcessCompileResult#isAborted()} 为 true 的结果，它不是编译错误，不能缓存
+     */
+    public InProcessCompileResult compile(File userCodeFile) {
+        String source = FileUtil.readUtf8String(userCodeFile);
+        String className = FileUtil.mainName(userCodeFile);
+        if (source.length() > MAX_SOURCE_LENGTH) {
+            return InProcessCompileResult.failure("源代码过长", 0L);
+        }
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        AtomicReference<CompilerProcess> runningProcess = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Future<InProcessCompileResult> future;
+        try {
+            future = compileExecutor.submit(() -> {
+                started.countDown();
+                return doCompile(className, source, cancelled, runningProcess);
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("进程内编译排队已满，回退到 javac 进程");
+            return null;
+        }
+        long startTime = 0L;
+        try {
+            // 排队时间不计入编译超时，否则编译器繁忙时正常的代码也会超时
+            if (!started.await(MAX_QUEUE_WAIT_MS, TimeUnit.MILLISECONDS) && future.cancel(false)) {
+                log.warn("进程内编译排队超过 {}ms，回退到 javac 进程", MAX_QUEUE_WAIT_MS);
+                return null;
+            }
+            startTime = System.currentTimeMillis();
+            return future.get(COMPILE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // javac 不响应中断，结束编译 JVM 让编译线程返回
+            cancel(cancelled, runningProcess);
+            log.warn("编译超过 {}ms，结束编译 JVM", COMPILE_TIMEOUT_MS);
+            return InProcessCompileResult.aborted("编译超时", System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            cancel(cancelled, runningProcess);
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("编译被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("编译器异常", e.getCause());
+        }
+    }
+
+    /**
+     * 编译用户代码文件，并把 class 文件写到代码所在目录
+     *
+     * @param userCodeFile 用户代码文件
+     * @return 编译信息，编译器繁忙时返回 null；编译超时或编译 JVM 异常退出时退出码为 {@link ExitCodeConstant#COMPILE_ABORTED_EXIT_CODE}，
+     * 调用方应按系统错误处理，不是编译错误
+     */
+    public ExecuteMessage compileToDirectory(File userCodeFile) {
+        InProcessCompileResult result = compile(userCodeFile);
+        if (result == null) {
+            return null;
+        }
+        if (result.isAborted()) {
+            return result.getExecuteMessage();
+        }
+        for (Map.Entry<String, byte[]> entry : result.getClassFiles().entrySet()) {
+            FileUtil.writeBytes(entry.getValue(), new File(userCodeFile.getParentFile(), entry.getKey()));
+        }
+        return result.getExecuteMessage();
+    }
+
+    private void cancel(AtomicBoolean cancelled, AtomicReference<CompilerProcess> runningProcess) {
+        cancelled.set(true);
+        CompilerProcess process = runningProcess.get();
+        if (process != null) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * 在当前编译线程的编译 JVM 中编译，编译 JVM 退出（被结束或超过堆上限）后下次编译重新启动
+     */
+    private InProcessCompileResult doCompile(String className, String source, AtomicBoolean cancelled,
+                                             AtomicReference<CompilerProcess> runningProcess) {
+        long startTime = System.currentTimeMillis();
+        CompilerProcess process = compilerProcess.get();
+        try {
+            if (process == null || !process.isAlive()) {
+                process = CompilerProcess.start(compilerCommand);
+                compilerProcess.set(process);
+            }
+            runningProcess.set(process);
+            // 启动编译 JVM 期间已经超时
+            if (cancelled.get()) {
+                process.destroy();
+                return InProcessCompileResult.aborted("编译超时", System.currentTimeMillis() - startTime);
+            }
+            String[] reply = process.compile(className, source);
+            if (reply != null) {
+                return parseReply(reply);
+            }
+        } catch (IOException e) {
+            log.debug("编译 JVM 通信失败: {}", e.getMessage());
+        }
+        if (process != null) {
+            process.destroy();
+        }
+        compilerProcess.remove();
+        long time = System.currentTimeMillis() - startTime;
+        return cancelled.get() ? InProcessCompileResult.aborted("编译超时", time)
+                : InProcessCompileResult.aborted("编译器进程异常退出（可能超过内存上限）", time);
+    }
+
+    /**
+     * 解析编译结果，编译 JVM 因内存不足退出前会在标准输出打印提示，这类无法识别的内容按通信失败处理
+     */
+    private static InProcessCompileResult parseReply(String[] reply) throws IOException {
+        try {
+            if (JavaCompilerRunner.ERROR.equals(reply[0]) && reply.length == 3) {
+                return InProcessCompileResult.failure(new String(Base64.getDecoder().decode(reply[2]), StandardCharsets.UTF_8),
+                        Long.parseLong(reply[1]));
+            }
+            if (JavaCompilerRunner.OK.equals(reply[0]) && reply.length >= 2 && reply.length % 2 == 0) {
+                Map<String, byte[]> classFiles = new LinkedHashMap<>();
+                for (int i = 2; i < reply.length; i += 2) {
+                    classFiles.put(reply[i], Base64.getDecoder().decode(reply[i + 1]));
+                }
+                return InProcessCompileResult.success(classFiles, Long.parseLong(reply[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            // 数字或 Base64 格式不对，下面统一按无法识别处理
+        }
+        throw new IOException("编译 JVM 返回了无法识别的结果: " + reply[0]);
+    }
+
+    /**
+     * 编译器运行在独立的 JVM 中，把编译器的 class 文件释放到磁盘作为它的 classpath（服务本身可能以 jar 方式运行）
+     */
+    private static String extractRunnerClasses() throws IOException {
+        String runnerClassPath = System.getProperty("user.dir") + File.separator + "tmpCode" + File.separator + "javaCompilerRunner";
+        List<Class<?>> runnerClasses = new ArrayList<>();
+        runnerClasses.add(JavaCompilerRunner.class);
+        runnerClasses.addAll(Arrays.asList(JavaCompilerRunner.class.getDeclaredClasses()));
+        for (Class<?> runnerClass : runnerClasses) {
+            String resourceName = runnerClass.getName().replace('.', '/') + ".class";
+            try (InputStream inputStream = InProcessJavaCompiler.class.getClassLoader().getResourceAsStream(resourceName)) {
+                if (inputStream == null) {
+                    throw new IOException("找不到编译器 class 文件: " + resourceName);
+                }
+                FileUtil.writeBytes(IoUtil.readBytes(inputStream), new File(runnerClassPath, resourceName));
+            }
+        }
+        return runnerClassPath;
+    }
+
+    private static List<String> buildCompilerCommand(String runnerClassPath) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Xmx" + COMPILER_MAX_HEAP);
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-XX:+UseSerialGC");
+        // 内存不足时直接退出，不在半坏的状态下继续编译
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-cp");
+        command.add(runnerClassPath);
+        command.add(JavaCompilerRunner.class.getName());
+        return command;
+    }
+
+    /**
+     * 一个常驻的编译 JVM 进程（宿主侧句柄），同一时间只由一个编译线程使用
+     */
+    private static class CompilerProcess {
+
+        private final Process process;
+
+        private final BufferedWriter writer;
+
+        private final BufferedReader reader;
+
+        private CompilerProcess(Process process) {
+            this.process = process;
+            this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        static CompilerProcess start(List<String> command) throws IOException {
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            // 编译器本身的错误输出不再使用，编译错误通过诊断信息返回
+            processBuilder.redirectError(ProcessBuilder.Redirect.to(new File(File.separatorChar == '/' ? "/dev/null" : "NUL")));
+            CompilerProcess compilerProcess = new CompilerProcess(processBuilder.start());
+            String readyLine = compilerProcess.reader.readLine();
+            if (!JavaCompilerRunner.READY.equals(readyLine)) {
+                compilerProcess.destroy();
+                throw new IOException("编译 JVM 启动失败");
+            }
+            return compilerProcess;
+        }
+
+        /**
+         * 发送编译指令并等待结果
+         *
+         * @return 结果的各个字段，编译 JVM 已退出时返回 null
+         */
+        String[] compile(String className, String source) throws IOException {
+            writer.write(JavaCompilerRunner.COMPILE + "\t" + className + "\t"
+                    + Base64.getEncoder().encodeToString(source.getBytes(StandardCharsets.UTF_8)));
+            writer.newLine();
+            writer.flush();
+            String line = reader.readLine();
+            return line == null ? null : line.split("\t");
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * 编译结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class InProcessCompileResult {
+
+        private final ExecuteMessage executeMessage;
+
+        // class 文件名 -> 字节码
+        private final Map<String, byte[]> classFiles;
+
+        // 编译是否没有完成（超时或编译 JVM 异常退出等沙箱原因，和代码本身无关）
+        private final boolean aborted;
+
+        static InProcessCompileResult success(Map<String, byte[]> classFiles, long time) {
+            ExecuteMessage executeMessage = ExecuteMessage.builder()
+                    .exitValue(0)
+                    .message("")
+                    .time(time)
+                    .build();
+            return new InProcessCompileResult(executeMessage, classFiles, false);
+        }
+
+        static InProcessCompileResult aborted(String errorMessage, long time) {
+            ExecuteMessage executeMessage = ExecuteMessage.builder()
+                    .exitValue(ExitCodeConstant.COMPILE_ABORTED_EXIT_CODE)
+                    .message("")
+                    .errorMessage(errorMessage)
+                    .time(time)
+                    .build();
+            return new InProcessCompileResult(executeMessage, Collections.emptyMap(), true);
+        }
+
+        static InProcessCompileResult failure(String errorMessage, long time) {
+            ExecuteMessage executeMessage = ExecuteMessage.builder()
+                    .exitValue(1)
+                    .message("")
+                    .errorMessage(errorMessage)
+                    .time(time)
+                    .build();
+            return new InProcessCompileResult(executeMessage, Collections.emptyMap(), false);
+        }
+
+        public boolean isSuccess() {
+            return executeMessage.getExitValue() == 0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Java 编译结果缓存
+ * 以 源代码 + 编译参数 的哈希为键，按字节数做 LRU 淘汰，命中时跳过 javac 直接把 class 文件写到用户目录
+ */
+public class JavaCompileCache {
+
+    // 缓存总字节上限
+    private static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024L;
+
+    // 单个条目的字节上限，太大的编译产物不缓存
+    private static final long DEFAULT_MAX_ENTRY_BYTES = 4 * 1024 * 1024L;
+
+    private static final JavaCompileCache INSTANCE = new JavaCompileCache(DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRY_BYTES);
+
+    private final long maxBytes;
+
+    private final long maxEntryBytes;
+
+    // accessOrder = true，按访问顺序排列，队首为最久未使用
+    private final LinkedHashMap<String, CompileCacheEntry> cacheMap = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long currentBytes = 0L;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    private final AtomicLong evictionCount = new AtomicLong(0);
+
+    public JavaCompileCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    public static JavaCompileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 生成缓存键
+     *
+     * @param code           源代码
+     * @param compileOptions 编译参数
+     * @return 缓存键
+     */
+    public static String buildKey(String code, String compileOptions) {
+        return DigestUtil.sha256Hex(compileOptions + '\u0000' + code);
+    }
+
+    public synchronized CompileCacheEntry get(String key) {
+        CompileCacheEntry entry = cacheMap.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    public synchronized void put(String key, CompileCacheEntry entry) {
+        if (entry.getByteSize() > maxEntryBytes) {
+            return;
+        }
+        CompileCacheEntry old = cacheMap.put(key, entry);
+        if (old != null) {
+            currentBytes -= old.getByteSize();
+        }
+        currentBytes += entry.getByteSize();
+        Iterator<Map.Entry<String, CompileCacheEntry>> iterator = cacheMap.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CompileCacheEntry> eldest = iterator.next();
+            currentBytes -= eldest.getValue().getByteSize();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 收集编译产物放入缓存（目录下所有的 class 文件）
+     *
+     * @param key               缓存键
+     * @param userCodeParentDir 用户代码目录
+     */
+    public void putClassFiles(String key, File userCodeParentDir) {
+        File[] files = userCodeParentDir.listFiles((dir, name) -> name.endsWith(".class"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        for (File file : files) {
+            classFiles.put(file.getName(), FileUtil.readBytes(file));
+        }
+        put(key, CompileCacheEntry.success(classFiles));
+    }
+
+    public synchronized CacheStats getStats() {
+        return CacheStats.builder()
+                .hitCount(hitCount.get())
+                .missCount(missCount.get())
+                .evictionCount(evictionCount.get())
+                .entryCount(cacheMap.size())
+                .byteSize(currentBytes)
+                .maxByteSize(maxBytes)
+                .build();
+    }
+}
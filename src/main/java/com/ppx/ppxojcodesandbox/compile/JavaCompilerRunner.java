@@ -0,0 +1,181 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 常驻编译 JVM 中的编译器（运行在子进程中，只能依赖 JDK）
+ * 基于 javax.tools.JavaCompiler 编译，源码和 class 文件都只在内存中，标准文件管理器在多次编译间复用，平台类库的索引只加载一次。
+ * 编译器不执行用户代码，控制协议直接走标准输入输出；编译卡住或超过堆上限时由宿主结束整个进程，见 {@link InProcessJavaCompiler}。
+ *
+ * 指令格式（制表符分隔，每行一条）：COMPILE className Base64(源代码)
+ * 返回格式（制表符分隔）：OK timeMs [className.class Base64(字节码)]... 或 ERROR timeMs Base64(错误信息)
+ */
+public class JavaCompilerRunner {
+
+    public static final String READY = "READY";
+
+    public static final String COMPILE = "COMPILE";
+
+    public static final String OK = "OK";
+
+    public static final String ERROR = "ERROR";
+
+    private static final List<String> COMPILE_OPTIONS = Arrays.asList("-encoding", "utf-8", "-proc:none");
+
+    public static void main(String[] args) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return;
+        }
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, Locale.getDefault(), StandardCharsets.UTF_8);
+        // 用户代码只能依赖平台类库，不能看到编译器自己的 classpath
+        standardFileManager.setLocation(StandardLocation.CLASS_PATH, Collections.emptyList());
+        BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintStream stdout = new PrintStream(System.out, false, "UTF-8");
+        stdout.println(READY);
+        stdout.flush();
+        String line;
+        while ((line = stdin.readLine()) != null) {
+            String[] parts = line.split("\t");
+            if (parts.length != 3 || !COMPILE.equals(parts[0])) {
+                break;
+            }
+            String source = new String(Base64.getDecoder().decode(parts[2]), StandardCharsets.UTF_8);
+            stdout.println(compile(compiler, standardFileManager, parts[1], source));
+            stdout.flush();
+        }
+    }
+
+    private static String compile(JavaCompiler compiler, StandardJavaFileManager standardFileManager, String className, String source) {
+        long startTime = System.currentTimeMillis();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        MemoryClassFileManager fileManager = new MemoryClassFileManager(standardFileManager);
+        JavaFileObject sourceObject = new MemorySourceFileObject(className, source);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, COMPILE_OPTIONS,
+                null, Collections.singletonList(sourceObject));
+        boolean success = task.call();
+        long time = System.currentTimeMillis() - startTime;
+        if (!success) {
+            List<String> errorLines = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errorLines.add(String.format("%s.java:%d: error: %s", className, diagnostic.getLineNumber(),
+                            diagnostic.getMessage(Locale.getDefault())));
+                }
+            }
+            return ERROR + "\t" + time + "\t" + encode(String.join("\n", errorLines).getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder reply = new StringBuilder(OK).append('\t').append(time);
+        for (Map.Entry<String, byte[]> entry : fileManager.getClassFiles().entrySet()) {
+            reply.append('\t').append(entry.getKey()).append('\t').append(encode(entry.getValue()));
+        }
+        return reply.toString();
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * 内存中的源文件
+     */
+    private static class MemorySourceFileObject extends SimpleJavaFileObject {
+
+        private final String source;
+
+        MemorySourceFileObject(String className, String source) {
+            super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * 内存中的 class 文件
+     */
+    private static class MemoryClassFileObject extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        MemoryClassFileObject(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return outputStream;
+        }
+
+        byte[] getBytes() {
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * 把编译产物收集到内存中的文件管理器
+     */
+    private static class MemoryClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, MemoryClassFileObject> classFileObjects = new LinkedHashMap<>();
+
+        MemoryClassFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            MemoryClassFileObject classFileObject = new MemoryClassFileObject(className);
+            classFileObjects.put(className, classFileObject);
+            return classFileObject;
+        }
+
+        @Override
+        public void close() {
+            // 底层的标准文件管理器在多次编译间复用，不关闭
+        }
+
+        /**
+         * 和 javac 不带 -d 参数时一致，class 文件名不带包路径
+         */
+        Map<String, byte[]> getClassFiles() {
+            Map<String, byte[]> classFiles = new LinkedHashMap<>();
+            for (Map.Entry<String, MemoryClassFileObject> entry : classFileObjects.entrySet()) {
+                String className = entry.getKey();
+                String simpleName = className.substring(className.lastIndexOf('.') + 1);
+                classFiles.put(simpleName + JavaFileObject.Kind.CLASS.extension, entry.getValue().getBytes());
+            }
+            return classFiles;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.ppx.ppxojcodesandbox.compression;
+
+import com.ppx.ppxojcodesandbox.model.enums.ContentEncodingEnum;
+import com.ppx.ppxojcodesandbox.utils.CompressionUtil;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 压缩响应体的响应包装
+ * 先把响应缓存在内存中，超过阈值后才设置 Content-Encoding 并开始边写边压缩；
+ * 在阈值以内结束的小响应原样返回，不付出压缩的开销。SSE 等流式响应不压缩，直接透传
+ */
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ContentEncodingEnum encoding;
+
+    private final int minSize;
+
+    private CompressingOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    public CompressingResponseWrapper(HttpServletResponse response, ContentEncodingEnum encoding, int minSize) {
+        super(response);
+        this.encoding = encoding;
+        this.minSize = minSize;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() 已经被调用");
+        }
+        return getCompressingOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() 已经被调用");
+            }
+            String characterEncoding = getCharacterEncoding();
+            writer = new PrintWriter(new OutputStreamWriter(getCompressingOutputStream(),
+                    characterEncoding == null ? StandardCharsets.ISO_8859_1.name() : characterEncoding));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
+        } else {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (outputStream != null && outputStream.state == State.BUFFERING) {
+            outputStream.buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        super.reset();
+    }
+
+    /**
+     * 长度由压缩结果决定，不压缩时在 finish 中设置
+     */
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (outputStream != null && outputStream.state == State.RAW) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+            return;
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+            return;
+        }
+        super.addHeader(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+            return;
+        }
+        super.setIntHeader(name, value);
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+            return;
+        }
+        super.addIntHeader(name, value);
+    }
+
+    /**
+     * 响应写完后调用：还在缓存中的小响应原样写出，已经开始压缩的写入压缩结尾
+     *
+     * @throws IOException 写出失败
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.finish();
+        }
+    }
+
+    private CompressingOutputStream getCompressingOutputStream() {
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    private enum State {
+        BUFFERING, RAW, COMPRESSING, FINISHED
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(minSize, 32));
+
+        private State state = State.BUFFERING;
+
+        private OutputStream compressor;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkStreaming();
+            switch (state) {
+                case BUFFERING:
+                    if (buffer.size() + len <= minSize) {
+                        buffer.write(b, off, len);
+                        return;
+                    }
+                    startCompressing();
+                    compressor.write(b, off, len);
+                    return;
+                case COMPRESSING:
+                    compressor.write(b, off, len);
+                    return;
+                case RAW:
+                    getResponse().getOutputStream().write(b, off, len);
+                    return;
+                default:
+                    throw new IOException("响应已经结束");
+            }
+        }
+
+        /**
+         * 缓存阶段不刷新，否则小响应会提前提交，来不及决定是否压缩
+         */
+        @Override
+        public void flush() throws IOException {
+            checkStreaming();
+            if (state == State.COMPRESSING) {
+                compressor.flush();
+            } else if (state == State.RAW) {
+                getResponse().getOutputStream().flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("压缩的响应不支持异步写入");
+        }
+
+        private void finish() throws IOException {
+            if (state == State.BUFFERING) {
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                response.setContentLength(buffer.size());
+                buffer.writeTo(response.getOutputStream());
+                buffer.reset();
+            } else if (state == State.COMPRESSING) {
+                compressor.close();
+            }
+            state = State.FINISHED;
+        }
+
+        /**
+         * 流式响应每条消息都要立即送达，不能缓存也不能压缩
+         */
+        private void checkStreaming() throws IOException {
+            if (state != State.BUFFERING) {
+                return;
+            }
+            String contentType = getContentType();
+            if (contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+                state = State.RAW;
+                buffer.writeTo(getResponse().getOutputStream());
+                buffer.reset();
+            }
+        }
+
+        private void startCompressing() throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getValue());
+            compressor = CompressionUtil.wrapOutput(encoding, response.getOutputStream());
+            buffer.writeTo(compressor);
+            buffer.reset();
+            state = State.COMPRESSING;
+        }
+    }
+}
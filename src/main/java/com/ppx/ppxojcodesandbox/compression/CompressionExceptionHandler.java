@@ -0,0 +1,30 @@
+package com.ppx.ppxojcodesandbox.compression;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import com.ppx.ppxojcodesandbox.utils.CompressionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 请求体读取失败的处理
+ * 压缩的请求体解压后超过上限时返回 413，其他情况和 Spring 默认一样返回 400
+ */
+@Slf4j
+@RestControllerAdvice
+public class CompressionExceptionHandler {
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public void handleNotReadable(HttpMessageNotReadableException e, HttpServletResponse response) throws IOException {
+        if (ExceptionUtil.isCausedBy(e, CompressionUtil.SizeLimitExceededException.class)) {
+            log.warn("请求体过大: {}", ExceptionUtil.getRootCauseMessage(e));
+            response.sendError(413);
+            return;
+        }
+        response.sendError(400);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ppx.ppxojcodesandbox.compression;
+
+import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.model.enums.ContentEncodingEnum;
+import com.ppx.ppxojcodesandbox.utils.CompressionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 沙箱接口的请求体、响应体压缩
+ * 请求体按 Content-Encoding（gzip、lz4）边读边解压，解压后超过 max-request-bytes 时返回 413；响应体按 Accept-Encoding 协商压缩方式，
+ * 小于 min-response-size 的响应不压缩。长轮询等异步请求在异步分派结束时才写完响应，那时再结束压缩
+ */
+@Slf4j
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private static final String PATH_PREFIX = "/codesandbox/";
+
+    @Value("${codesandbox.compression.enabled:true}")
+    private boolean enabled;
+
+    // 响应体超过该字节数才压缩
+    @Value("${codesandbox.compression.min-response-size:2048}")
+    private int minResponseSize;
+
+    // 压缩的请求体解压后的字节数上限
+    @Value("${codesandbox.compression.max-request-bytes:67108864}")
+    private long maxRequestBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getServletPath().startsWith(PATH_PREFIX);
+    }
+
+    /**
+     * 异步分派时拿到的仍然是第一次分派包装过的响应，需要在这里结束压缩
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterChain.doFilter(request, response);
+            finishIfDone(request, response);
+            return;
+        }
+        HttpServletRequest requestToUse = request;
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (StrUtil.isNotBlank(contentEncoding) && !"identity".equalsIgnoreCase(contentEncoding.trim())) {
+            ContentEncodingEnum requestEncoding = ContentEncodingEnum.getEnumByValue(contentEncoding.trim());
+            if (requestEncoding == null) {
+                log.warn("不支持的请求体压缩方式: {}", contentEncoding);
+                response.setStatus(415);
+                response.setHeader(HttpHeaders.ACCEPT_ENCODING, String.join(", ", ContentEncodingEnum.getValues()));
+                return;
+            }
+            requestToUse = new DecompressingRequestWrapper(request, requestEncoding, maxRequestBytes);
+        }
+        HttpServletResponse responseToUse = response;
+        ContentEncodingEnum responseEncoding = CompressionUtil.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (responseEncoding != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            responseToUse = new CompressingResponseWrapper(response, responseEncoding, minResponseSize);
+        }
+        filterChain.doFilter(requestToUse, responseToUse);
+        finishIfDone(requestToUse, responseToUse);
+    }
+
+    private static void finishIfDone(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        CompressingResponseWrapper wrapper = WebUtils.getNativeResponse(response, CompressingResponseWrapper.class);
+        if (wrapper != null) {
+            wrapper.finish();
+        }
+    }
+}
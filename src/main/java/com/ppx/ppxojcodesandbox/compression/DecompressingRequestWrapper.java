@@ -0,0 +1,129 @@
+package com.ppx.ppxojcodesandbox.compression;
+
+import com.ppx.ppxojcodesandbox.model.enums.ContentEncodingEnum;
+import com.ppx.ppxojcodesandbox.utils.CompressionUtil;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 解压请求体的请求包装，读取时边读边解压，Jackson 直接从解压流反序列化，不会先解压出一份完整的请求体。
+ * 解压后的字节数超过上限时读取失败（{@link CompressionUtil.SizeLimitExceededException}），由 {@link CompressionExceptionHandler} 返回 413
+ */
+public class DecompressingRequestWrapper extends HttpServletRequestWrapper {
+
+    private final ContentEncodingEnum encoding;
+
+    // 解压后的字节数上限
+    private final long maxBytes;
+
+    private ServletInputStream inputStream;
+
+    private BufferedReader reader;
+
+    public DecompressingRequestWrapper(HttpServletRequest request, ContentEncodingEnum encoding, long maxBytes) {
+        super(request);
+        this.encoding = encoding;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() 已经被调用");
+        }
+        if (inputStream == null) {
+            inputStream = new DecompressingInputStream(CompressionUtil.wrapInput(encoding, super.getInputStream(), maxBytes));
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            if (inputStream != null) {
+                throw new IllegalStateException("getInputStream() 已经被调用");
+            }
+            String characterEncoding = getCharacterEncoding();
+            Charset charset = characterEncoding == null ? StandardCharsets.UTF_8 : Charset.forName(characterEncoding);
+            ServletInputStream in = new DecompressingInputStream(CompressionUtil.wrapInput(encoding, super.getInputStream(), maxBytes));
+            reader = new BufferedReader(new InputStreamReader(in, charset));
+        }
+        return reader;
+    }
+
+    /**
+     * 解压后的长度未知
+     */
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return -1L;
+    }
+
+    private static class DecompressingInputStream extends ServletInputStream {
+
+        private final InputStream in;
+
+        private boolean finished = false;
+
+        private DecompressingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                finished = true;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                finished = true;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("压缩的请求体不支持异步读取");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ppx.ppxojcodesandbox.constant;
+
+/**
+ * 沙箱内部使用的特殊退出码（真实进程的退出码不会是负数）
+ */
+public interface ExitCodeConstant {
+
+    /**
+     * 运行超时
+     */
+    int TIMEOUT_EXIT_CODE = -10001;
+
+    /**
+     * 输出超过限制
+     */
+    int OUTPUT_LIMIT_EXIT_CODE = -10002;
+
+    /**
+     * 内存超过限制
+     */
+    int MEMORY_LIMIT_EXIT_CODE = -10003;
+
+    /**
+     * 输出与期望输出不一致
+     */
+    int WRONG_ANSWER_EXIT_CODE = -10004;
+
+    /**
+     * 输出只有空白与期望输出不同
+     */
+    int PRESENTATION_ERROR_EXIT_CODE = -10005;
+
+    /**
+     * 编译没有完成（超时、编译 JVM 超过内存上限等沙箱原因，不是代码的编译错误）
+     */
+    int COMPILE_ABORTED_EXIT_CODE = -10006;
+}
@@ -1,25 +1,87 @@
 package com.ppx.ppxojcodesandbox.controller;
 
-import com.ppx.ppxojcodesandbox.CodeSandboxFactory;
-import com.ppx.ppxojcodesandbox.CodeSandboxTemplate;
+import com.ppx.ppxojcodesandbox.CodeSandbox;
+import com.ppx.ppxojcodesandbox.CodeSandboxRegistry;
+import com.ppx.ppxojcodesandbox.job.ExecuteJob;
+import com.ppx.ppxojcodesandbox.job.ExecuteJobService;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
-import com.ppx.ppxojcodesandbox.model.enums.QuestionSubmitLanguageEnum;
+import com.ppx.ppxojcodesandbox.model.ExecuteJobResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
 
 /**
- * 代码沙箱控制器，为了未来多种代码实现的扩展，这里使用了工厂模式
+ * 代码沙箱控制器，按请求的语言从沙箱注册表中取对应的沙箱
  */
 @RestController
 @RequestMapping("/codesandbox")
 public class CodeSandboxController {
 
+    @Resource
+    private CodeSandboxRegistry codeSandboxRegistry;
+
+    @Resource
+    private ExecuteJobService executeJobService;
+
     @PostMapping("/execute")
     public ExecuteCodeResponse executeCode(@RequestBody ExecuteCodeRequest executeCodeRequest) {
-        CodeSandboxTemplate sandboxTemplate = CodeSandboxFactory.getInstance(QuestionSubmitLanguageEnum.valueOf(executeCodeRequest.getLanguage()));
-        return sandboxTemplate.executeCode(executeCodeRequest);
+        CodeSandbox codeSandbox = codeSandboxRegistry.get(executeCodeRequest.getLanguage());
+        return codeSandbox.executeCode(executeCodeRequest);
+    }
+
+    /**
+     * 执行代码并以 SSE 逐个推送用例结果（case 事件），最后推送完整结果（summary 事件）
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    @PostMapping(value = "/execute/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter executeCodeStream(@RequestBody ExecuteCodeRequest executeCodeRequest) {
+        CodeSandbox codeSandbox = codeSandboxRegistry.get(executeCodeRequest.getLanguage());
+        return executeJobService.stream(codeSandbox, executeCodeRequest);
+    }
+
+    /**
+     * 异步提交执行任务，立即返回任务 id
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    @PostMapping("/jobs")
+    public ExecuteJobResponse submitJob(@RequestBody ExecuteCodeRequest executeCodeRequest) {
+        CodeSandbox codeSandbox = codeSandboxRegistry.get(executeCodeRequest.getLanguage());
+        return executeJobService.submit(codeSandbox, executeCodeRequest).toResponse();
+    }
+
+    /**
+     * 查询任务状态和结果，waitMs 大于 0 时长轮询
+     *
+     * @param jobId
+     * @param waitMs
+     * @return
+     */
+    @GetMapping("/jobs/{jobId}")
+    public DeferredResult<ExecuteJobResponse> getJob(@PathVariable String jobId,
+                                                     @RequestParam(defaultValue = "0") long waitMs,
+                                                     HttpServletResponse response) {
+        ExecuteJob job = executeJobService.getJob(jobId);
+        if (job == null) {
+            response.setStatus(404);
+            DeferredResult<ExecuteJobResponse> notFound = new DeferredResult<>();
+            notFound.setResult(null);
+            return notFound;
+        }
+        return executeJobService.poll(job, waitMs);
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,20 @@
 package com.ppx.ppxojcodesandbox.controller;
 
-import com.ppx.ppxojcodesandbox.JavaNativeCodeSandbox;
+import com.ppx.ppxojcodesandbox.CodeSandboxRegistry;
 import com.ppx.ppxojcodesandbox.JavaNativeCodeSandboxOldVersion;
+import com.ppx.ppxojcodesandbox.job.ExecuteJob;
+import com.ppx.ppxojcodesandbox.job.ExecuteJobService;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
 import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.model.ExecuteJobResponse;
+import com.ppx.ppxojcodesandbox.model.enums.QuestionSubmitLanguageEnum;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
@@ -21,9 +28,12 @@ public class MainController {
 
     private static final String AUTH_REQUEST_SECRET = "secretKey";
 
-    // 暂时全部都使用java原生代码沙箱
+    // 暂时全部都使用 Java 代码沙箱（从注册表获取，和其他入口共用并发限制）
     @Resource
-    private JavaNativeCodeSandbox javaNativeCodeSandBox;
+    private CodeSandboxRegistry codeSandboxRegistry;
+
+    @Resource
+    private ExecuteJobService executeJobService;
 
     @GetMapping("/health")
     public String healthCheck() {
@@ -49,6 +59,44 @@ public class MainController {
             throw new RuntimeException("请求参数为空！ExecuteCodeRequest is null");
         }
         // 执行native沙箱
-        return javaNativeCodeSandBox.executeCode(executeCodeRequest);
+        return codeSandboxRegistry.get(QuestionSubmitLanguageEnum.JAVA).executeCode(executeCodeRequest);
+    }
+
+    /**
+     * 异步执行代码，立即返回任务 id
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    @PostMapping("/executeCode/async")
+    ExecuteJobResponse submitExecuteCode(@RequestBody ExecuteCodeRequest executeCodeRequest, HttpServletRequest request, HttpServletResponse response) {
+        if (!AUTH_REQUEST_SECRET.equals(request.getHeader(AUTH_REQUEST_HEADER))) {
+            response.setStatus(403);
+            return null;
+        }
+        if (executeCodeRequest == null){
+            throw new RuntimeException("请求参数为空！ExecuteCodeRequest is null");
+        }
+        return executeJobService.submit(codeSandboxRegistry.get(QuestionSubmitLanguageEnum.JAVA), executeCodeRequest).toResponse();
+    }
+
+    /**
+     * 查询异步执行结果，waitMs 大于 0 时长轮询
+     *
+     * @param jobId
+     * @param waitMs
+     * @return
+     */
+    @GetMapping("/executeCode/jobs/{jobId}")
+    DeferredResult<ExecuteJobResponse> getExecuteCodeJob(@PathVariable String jobId, @RequestParam(defaultValue = "0") long waitMs,
+                                                         HttpServletRequest request, HttpServletResponse response) {
+        ExecuteJob job = AUTH_REQUEST_SECRET.equals(request.getHeader(AUTH_REQUEST_HEADER)) ? executeJobService.getJob(jobId) : null;
+        if (job == null) {
+            response.setStatus(AUTH_REQUEST_SECRET.equals(request.getHeader(AUTH_REQUEST_HEADER)) ? 404 : 403);
+            DeferredResult<ExecuteJobResponse> rejected = new DeferredResult<>();
+            rejected.setResult(null);
+            return rejected;
+        }
+        return executeJobService.poll(job, waitMs);
     }
 }
@@ -0,0 +1,97 @@
+package com.ppx.ppxojcodesandbox.controller;
+
+import com.ppx.ppxojcodesandbox.CodeSandboxRegistry;
+import com.ppx.ppxojcodesandbox.compile.CppBinaryCache;
+import com.ppx.ppxojcodesandbox.compile.JavaCompileCache;
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+import com.ppx.ppxojcodesandbox.model.RpcStats;
+import com.ppx.ppxojcodesandbox.model.SandboxStats;
+import com.ppx.ppxojcodesandbox.python.PythonBytecodeCache;
+import com.ppx.ppxojcodesandbox.rpc.RpcServer;
+import com.ppx.ppxojcodesandbox.testdata.TestDataCache;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 沙箱运行指标
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    @Resource
+    private CodeSandboxRegistry codeSandboxRegistry;
+
+    @Resource
+    private CppBinaryCache cppBinaryCache;
+
+    @Resource
+    private TestDataCache testDataCache;
+
+    @Resource
+    private RpcServer rpcServer;
+
+    /**
+     * Java 编译缓存命中情况
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/compile-cache")
+    public CacheStats compileCacheStats() {
+        return JavaCompileCache.getInstance().getStats();
+    }
+
+    /**
+     * C++ 编译产物缓存命中情况
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/cpp-binary-cache")
+    public CacheStats cppBinaryCacheStats() {
+        return cppBinaryCache.getStats();
+    }
+
+    /**
+     * Python 字节码缓存命中情况
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/python-bytecode-cache")
+    public CacheStats pythonBytecodeCacheStats() {
+        return PythonBytecodeCache.getInstance().getStats();
+    }
+
+    /**
+     * 测试数据缓存命中情况
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/test-data-cache")
+    public CacheStats testDataCacheStats() {
+        return testDataCache.getStats();
+    }
+
+    /**
+     * 各语言沙箱的并发和排队情况
+     *
+     * @return 沙箱统计
+     */
+    @GetMapping("/sandboxes")
+    public List<SandboxStats> sandboxStats() {
+        return codeSandboxRegistry.getStats();
+    }
+
+    /**
+     * 二进制 RPC 接口的连接和请求情况
+     *
+     * @return RPC 统计
+     */
+    @GetMapping("/rpc")
+    public RpcStats rpcStats() {
+        return rpcServer.getStats();
+    }
+}
@@ -0,0 +1,128 @@
+package com.ppx.ppxojcodesandbox.controller;
+
+import com.ppx.ppxojcodesandbox.model.TestDataInfo;
+import com.ppx.ppxojcodesandbox.testdata.TestDataSet;
+import com.ppx.ppxojcodesandbox.testdata.TestDataStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 题目测试数据管理，上传后执行请求通过 problemId + testDataVersion 引用
+ */
+@Slf4j
+@RestController
+@RequestMapping("/testdata")
+public class TestDataController {
+
+    // 定义鉴权请求头和密钥，和 MainController 一致
+    private static final String AUTH_REQUEST_HEADER = "auth";
+
+    private static final String AUTH_REQUEST_SECRET = "secretKey";
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    /**
+     * 上传一个版本的测试数据（multipart），input 和 output 按用例顺序各传多个文件，output 可以不传
+     *
+     * @param problemId
+     * @param version
+     * @param inputFiles
+     * @param outputFiles
+     * @param request
+     * @param response
+     * @return 测试数据概要，鉴权失败返回 403，参数错误返回 400，版本已存在返回 409
+     */
+    @PostMapping(value = "/{problemId}/{version}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public TestDataInfo upload(@PathVariable String problemId, @PathVariable String version,
+                               @RequestParam("input") List<MultipartFile> inputFiles,
+                               @RequestParam(value = "output", required = false) List<MultipartFile> outputFiles,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 基本的安全认证
+        String authHeader = request.getHeader(AUTH_REQUEST_HEADER);
+        if (!AUTH_REQUEST_SECRET.equals(authHeader)) {
+            response.setStatus(403);
+            return null;
+        }
+        try {
+            return testDataStore.save(problemId, version, inputFiles, outputFiles).toInfo();
+        } catch (IllegalArgumentException e) {
+            log.warn("上传测试数据失败: {}", e.getMessage());
+            response.setStatus(400);
+            return null;
+        } catch (IllegalStateException e) {
+            log.warn("上传测试数据失败: {}", e.getMessage());
+            response.setStatus(409);
+            return null;
+        }
+    }
+
+    /**
+     * 查询测试数据
+     *
+     * @param problemId
+     * @param version
+     * @param response
+     * @return 测试数据概要，不存在返回 404
+     */
+    @GetMapping("/{problemId}/{version}")
+    public TestDataInfo get(@PathVariable String problemId, @PathVariable String version, HttpServletResponse response) {
+        TestDataSet testDataSet;
+        try {
+            testDataSet = testDataStore.get(problemId, version);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(400);
+            return null;
+        }
+        if (testDataSet == null) {
+            response.setStatus(404);
+            return null;
+        }
+        return testDataSet.toInfo();
+    }
+
+    /**
+     * 删除测试数据
+     *
+     * @param problemId
+     * @param version
+     * @param request
+     * @param response
+     * @return 是否已删除，鉴权失败返回 403，不存在返回 404
+     */
+    @DeleteMapping("/{problemId}/{version}")
+    public Boolean delete(@PathVariable String problemId, @PathVariable String version,
+                          HttpServletRequest request, HttpServletResponse response) {
+        // 基本的安全认证
+        String authHeader = request.getHeader(AUTH_REQUEST_HEADER);
+        if (!AUTH_REQUEST_SECRET.equals(authHeader)) {
+            response.setStatus(403);
+            return null;
+        }
+        boolean deleted;
+        try {
+            deleted = testDataStore.delete(problemId, version);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(400);
+            return null;
+        }
+        if (!deleted) {
+            response.setStatus(404);
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,271 @@
+package com.ppx.ppxojcodesandbox.docker;
+
+import cn.hutool.core.io.FileUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Volume;
+import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.ppx.ppxojcodesandbox.model.enums.LanguageImageEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个镜像的预热容器池
+ * 容器提前创建并启动，借出时直接使用，归还时清理状态（杀掉残留进程、清空 /app）后再放回池中
+ */
+@Slf4j
+public class ContainerPool {
+
+    // 状态重置命令：杀掉除 1 号进程外的所有进程，清空工作目录
+    private static final String[] RESET_CMD = {"sh", "-c", "kill -9 -1 2>/dev/null; rm -rf /app/* /app/.[!.]* 2>/dev/null; true"};
+
+    // 容器内保持存活的命令
+    private static final String[] KEEP_ALIVE_CMD = {"tail", "-f", "/dev/null"};
+
+    // 状态重置超时时间
+    private static final long RESET_TIMEOUT_MS = 5000L;
+
+    private final DockerClient dockerClient;
+
+    private final DockerClientManager dockerClientManager;
+
+    private final LanguageImageEnum languageImage;
+
+    private final int minIdle;
+
+    private final int maxTotal;
+
+    private final int maxLeases;
+
+    // 宿主机上容器工作目录的根目录
+    private final String hostWorkRoot;
+
+    // 空闲容器
+    private final LinkedBlockingDeque<PooledContainer> idleContainers = new LinkedBlockingDeque<>();
+
+    // 池中容器总数（空闲 + 借出 + 重置中）
+    private final AtomicInteger totalCount = new AtomicInteger(0);
+
+    private volatile boolean closed = false;
+
+    public ContainerPool(DockerClientManager dockerClientManager, LanguageImageEnum languageImage, int minIdle, int maxTotal,
+                         int maxLeases, String hostWorkRoot) {
+        this.dockerClientManager = dockerClientManager;
+        this.dockerClient = dockerClientManager.getDockerClient();
+        this.languageImage = languageImage;
+        this.minIdle = minIdle;
+        this.maxTotal = maxTotal;
+        this.maxLeases = maxLeases;
+        this.hostWorkRoot = hostWorkRoot;
+    }
+
+    /**
+     * 借出一个容器，池中没有空闲容器且未达上限时当场创建，否则等待其他容器归还
+     *
+     * @param timeoutMs 等待超时时间
+     * @return 容器，超时返回 null
+     */
+    public PooledContainer lease(long timeoutMs) throws InterruptedException {
+        if (closed) {
+            return null;
+        }
+        PooledContainer container = idleContainers.pollFirst();
+        if (container == null && tryReserve()) {
+            try {
+                container = createContainer();
+            } catch (Exception e) {
+                totalCount.decrementAndGet();
+                log.error("创建容器失败, image = {}", languageImage.getImage(), e);
+                return null;
+            }
+        }
+        if (container == null) {
+            container = idleContainers.pollFirst(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (container != null) {
+            container.setLeaseCount(container.getLeaseCount() + 1);
+        }
+        return container;
+    }
+
+    /**
+     * 归还容器，重置状态后放回池中，重置失败或使用次数过多则直接销毁
+     *
+     * @param container 容器
+     */
+    public void release(PooledContainer container) {
+        if (closed || container.getLeaseCount() >= maxLeases || !resetContainer(container)) {
+            evict(container);
+            return;
+        }
+        container.setLastReturnTime(System.currentTimeMillis());
+        idleContainers.offerFirst(container);
+    }
+
+    /**
+     * 后台维护：剔除不健康的空闲容器，并补充到最小空闲数
+     */
+    public void maintain() {
+        if (closed) {
+            return;
+        }
+        List<PooledContainer> idleSnapshot = new ArrayList<>(idleContainers);
+        for (PooledContainer container : idleSnapshot) {
+            if (!isHealthy(container) && idleContainers.remove(container)) {
+                log.warn("容器不健康，剔除, containerId = {}", container.getContainerId());
+                evict(container);
+            }
+        }
+        while (idleContainers.size() < minIdle && tryReserve()) {
+            try {
+                idleContainers.offerLast(createContainer());
+            } catch (Exception e) {
+                totalCount.decrementAndGet();
+                log.warn("补充预热容器失败, image = {}, 原因: {}", languageImage.getImage(), e.getMessage());
+                break;
+            }
+        }
+    }
+
+    /**
+     * 关闭容器池，销毁所有空闲容器（借出中的容器在归还时销毁）
+     */
+    public void close() {
+        closed = true;
+        PooledContainer container;
+        while ((container = idleContainers.pollFirst()) != null) {
+            evict(container);
+        }
+    }
+
+    public int getIdleCount() {
+        return idleContainers.size();
+    }
+
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    private boolean tryReserve() {
+        while (true) {
+            int current = totalCount.get();
+            if (current >= maxTotal) {
+                return false;
+            }
+            if (totalCount.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 创建并启动容器，每个容器独占一个宿主机目录挂载到 /app
+     */
+    private PooledContainer createContainer() {
+        // 镜像由 DockerClientManager 在后台拉取，这里不等待
+        if (!dockerClientManager.isImageReady(languageImage)) {
+            throw new IllegalStateException("镜像未就绪: " + languageImage.getImage());
+        }
+        String hostWorkDir = hostWorkRoot + File.separator + UUID.randomUUID();
+        FileUtil.mkdir(hostWorkDir);
+
+        HostConfig hostConfig = new HostConfig();
+        hostConfig.withMemory(100 * 1000 * 1000L);
+        hostConfig.withMemorySwap(0L);
+        hostConfig.withCpuCount(1L);
+        hostConfig.setBinds(new Bind(hostWorkDir, new Volume("/app")));
+        CreateContainerResponse createContainerResponse;
+        try {
+            createContainerResponse = dockerClient.createContainerCmd(languageImage.getImage())
+                    .withHostConfig(hostConfig)
+                    .withNetworkDisabled(Boolean.TRUE)
+                    .withReadonlyRootfs(Boolean.TRUE)
+                    .withAttachStdin(Boolean.TRUE)
+                    .withAttachStderr(Boolean.TRUE)
+                    .withAttachStdout(Boolean.TRUE)
+                    .withTty(Boolean.TRUE)
+                    .withCmd(KEEP_ALIVE_CMD)
+                    .exec();
+        } catch (RuntimeException e) {
+            FileUtil.del(hostWorkDir);
+            throw e;
+        }
+        String containerId = createContainerResponse.getId();
+        try {
+            dockerClient.startContainerCmd(containerId).exec();
+        } catch (RuntimeException e) {
+            removeQuietly(containerId);
+            FileUtil.del(hostWorkDir);
+            throw e;
+        }
+        log.info("创建预热容器, image = {}, containerId = {}", languageImage.getImage(), containerId);
+        return new PooledContainer(containerId, languageImage, hostWorkDir, System.currentTimeMillis());
+    }
+
+    /**
+     * 重置容器状态：杀掉残留进程并清空 /app
+     *
+     * @return 是否重置成功
+     */
+    @SuppressWarnings("deprecation")
+    private boolean resetContainer(PooledContainer container) {
+        try {
+            ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(container.getContainerId())
+                    .withCmd(RESET_CMD)
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            boolean completed = dockerClient.execStartCmd(execCreateCmdResponse.getId())
+                    .exec(new ExecStartResultCallback())
+                    .awaitCompletion(RESET_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (!completed) {
+                log.warn("重置容器超时, containerId = {}", container.getContainerId());
+                return false;
+            }
+            Long exitCode = dockerClient.inspectExecCmd(execCreateCmdResponse.getId()).exec().getExitCodeLong();
+            // 宿主机侧再确认一次目录已清空
+            FileUtil.clean(container.getHostWorkDir());
+            return exitCode != null && exitCode == 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("重置容器失败, containerId = {}, 原因: {}", container.getContainerId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isHealthy(PooledContainer container) {
+        try {
+            InspectContainerResponse response = dockerClient.inspectContainerCmd(container.getContainerId()).exec();
+            return Boolean.TRUE.equals(response.getState().getRunning());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void evict(PooledContainer container) {
+        totalCount.decrementAndGet();
+        removeQuietly(container.getContainerId());
+        FileUtil.del(container.getHostWorkDir());
+    }
+
+    private void removeQuietly(String containerId) {
+        try {
+            dockerClient.removeContainerCmd(containerId).withForce(true).exec();
+        } catch (Exception e) {
+            log.warn("删除容器失败, containerId = {}, 原因: {}", containerId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.ppx.ppxojcodesandbox.docker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 容器内的批量执行器（运行在容器的 JDK 8 中，只能依赖 JDK）
+ * 一次 exec 依次运行所有用例，每个用例结束后立即输出一行结果，宿主机边接收边解析，
+ * 把每次提交的 Docker API 调用从每个用例一次 exec 减少到整个提交一次。
+ *
+ * 启动参数：classDir inputFile timeoutMs outputLimit stopFile
+ * 输入文件：每行一个用例，{@link #INPUT_MARKER} 后面接 Base64 编码的用例输入（按空格拆分为程序参数）；
+ * 空输入编码后是空字符串，带上标记后每个用例都占一行，执行器对每个用例恰好输出一行结果，结果下标和用例一一对应
+ * 输出格式（制表符分隔）：#CASE index exitCode timeMs memoryBytes Base64(stdout) Base64(stderr)，全部结束后输出 #END
+ * 是否失败（包括答案错误）由宿主机判断：宿主机收到失败的用例后在挂载目录中创建 stopFile，
+ * 执行器在每个用例开始前和等待期间检查，发现后结束正在运行的用例，不再运行剩下的用例
+ */
+public class DockerBatchHarness {
+
+    public static final String CASE = "#CASE";
+
+    public static final String END = "#END";
+
+    // 输入文件中每行用例的开头标记
+    public static final String INPUT_MARKER = ">";
+
+    // 超时退出码，和 ExitCodeConstant.TIMEOUT_EXIT_CODE 保持一致（执行器只依赖 JDK，不引用服务端的类）
+    private static final int TIMEOUT_EXIT_CODE = -10001;
+
+    // 输出超限退出码，和 ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE 保持一致
+    private static final int OUTPUT_LIMIT_EXIT_CODE = -10002;
+
+    // 采样内存峰值的间隔
+    private static final long SAMPLE_INTERVAL_MS = 10L;
+
+    // 进程结束后等待输出读完的时间
+    private static final long DRAIN_GRACE_MS = 1000L;
+
+    public static void main(String[] args) throws Exception {
+        String classDir = args[0];
+        List<String> inputs = Files.readAllLines(new File(args[1]).toPath(), StandardCharsets.UTF_8);
+        long timeoutMs = Long.parseLong(args[2]);
+        long outputLimit = Long.parseLong(args[3]);
+        File stopFile = args.length > 4 ? new File(args[4]) : null;
+        PrintStream out = new PrintStream(System.out, false, "UTF-8");
+        Base64.Encoder encoder = Base64.getEncoder();
+        int index = 0;
+        for (String inputLine : inputs) {
+            if (!inputLine.startsWith(INPUT_MARKER)) {
+                continue;
+            }
+            if (isStopped(stopFile)) {
+                break;
+            }
+            String encodedInput = inputLine.substring(INPUT_MARKER.length());
+            String input = new String(Base64.getDecoder().decode(encodedInput), StandardCharsets.UTF_8);
+            CaseResult result = runCase(classDir, input, timeoutMs, outputLimit, stopFile);
+            if (result == null) {
+                break;
+            }
+            out.println(CASE + "\t" + index + "\t" + result.exitCode + "\t" + result.timeMs + "\t" + result.memory
+                    + "\t" + encoder.encodeToString(result.stdout) + "\t" + encoder.encodeToString(result.stderr));
+            out.flush();
+            index++;
+        }
+        out.println(END);
+        out.flush();
+    }
+
+    /**
+     * 运行单个用例
+     *
+     * @return 用例结果，运行期间宿主机要求停止时返回 null
+     */
+    private static CaseResult runCase(String classDir, String input, long timeoutMs, long outputLimit, File stopFile) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.add("-cp");
+        command.add(classDir);
+        command.add("Main");
+        for (String arg : input.split(" ")) {
+            if (!arg.isEmpty()) {
+                command.add(arg);
+            }
+        }
+        CaseResult result = new CaseResult();
+        long startTime = System.currentTimeMillis();
+        final Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+        int pid = getPid(process);
+        AtomicLong capturedBytes = new AtomicLong(0);
+        AtomicBoolean outputLimitExceeded = new AtomicBoolean(false);
+        Drainer stdoutDrainer = new Drainer(process, process.getInputStream(), outputLimit, capturedBytes, outputLimitExceeded);
+        Drainer stderrDrainer = new Drainer(process, process.getErrorStream(), outputLimit, capturedBytes, outputLimitExceeded);
+        stdoutDrainer.start();
+        stderrDrainer.start();
+        long peakMemory = 0;
+        boolean finished = false;
+        try {
+            long deadline = startTime + timeoutMs;
+            while (!finished && System.currentTimeMillis() < deadline) {
+                if (isStopped(stopFile)) {
+                    process.destroyForcibly();
+                    return null;
+                }
+                peakMemory = Math.max(peakMemory, readPeakMemory(pid));
+                finished = process.waitFor(SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+            result.timeMs = System.currentTimeMillis() - startTime;
+            if (!finished) {
+                process.destroyForcibly();
+            }
+            stdoutDrainer.join(DRAIN_GRACE_MS);
+            stderrDrainer.join(DRAIN_GRACE_MS);
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        result.memory = peakMemory;
+        result.stdout = stdoutDrainer.toByteArray();
+        result.stderr = stderrDrainer.toByteArray();
+        if (outputLimitExceeded.get()) {
+            result.exitCode = OUTPUT_LIMIT_EXIT_CODE;
+        } else if (!finished) {
+            result.exitCode = TIMEOUT_EXIT_CODE;
+        } else {
+            result.exitCode = process.exitValue();
+        }
+        return result;
+    }
+
+    private static boolean isStopped(File stopFile) {
+        return stopFile != null && stopFile.exists();
+    }
+
+    /**
+     * JDK 8 的 Process 没有 pid()，从 UNIXProcess 的字段中读取
+     */
+    private static int getPid(Process process) {
+        try {
+            Field pidField = process.getClass().getDeclaredField("pid");
+            pidField.setAccessible(true);
+            return pidField.getInt(process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读取 /proc/[pid]/status 中的 VmHWM（常驻内存峰值），读取失败返回 0
+     */
+    private static long readPeakMemory(int pid) {
+        if (pid <= 0) {
+            return 0;
+        }
+        try {
+            for (String line : Files.readAllLines(new File("/proc/" + pid + "/status").toPath(), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    String value = line.substring("VmHWM:".length()).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 进程已经退出
+        }
+        return 0;
+    }
+
+    private static class CaseResult {
+
+        private int exitCode;
+
+        private long timeMs;
+
+        private long memory;
+
+        private byte[] stdout;
+
+        private byte[] stderr;
+    }
+
+    /**
+     * 读取一路输出，标准输出和错误输出合计超过上限时结束进程
+     */
+    private static class Drainer extends Thread {
+
+        private final Process process;
+
+        private final InputStream inputStream;
+
+        private final long outputLimit;
+
+        private final AtomicLong capturedBytes;
+
+        private final AtomicBoolean outputLimitExceeded;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private Drainer(Process process, InputStream inputStream, long outputLimit, AtomicLong capturedBytes,
+                        AtomicBoolean outputLimitExceeded) {
+            this.process = process;
+            this.inputStream = inputStream;
+            this.outputLimit = outputLimit;
+            this.capturedBytes = capturedBytes;
+            this.outputLimitExceeded = outputLimitExceeded;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            byte[] bytes = new byte[8192];
+            try (InputStream in = inputStream) {
+                int len;
+                while ((len = in.read(bytes)) != -1) {
+                    long total = capturedBytes.addAndGet(len);
+                    if (total > outputLimit) {
+                        synchronized (buffer) {
+                            buffer.write(bytes, 0, (int) Math.max(0L, len - (total - outputLimit)));
+                        }
+                        outputLimitExceeded.set(true);
+                        process.destroyForcibly();
+                        return;
+                    }
+                    synchronized (buffer) {
+                        buffer.write(bytes, 0, len);
+                    }
+                }
+            } catch (IOException e) {
+                // 进程被结束
+            }
+        }
+
+        private byte[] toByteArray() {
+            synchronized (buffer) {
+                return buffer.toByteArray();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ppx.ppxojcodesandbox.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.github.dockerjava.transport.DockerHttpClient;
+import com.ppx.ppxojcodesandbox.model.enums.LanguageImageEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Docker 客户端管理器
+ * 整个服务共用一个基于 httpclient5 连接池的 DockerClient，不再每次提交都创建客户端；
+ * 启动后在后台拉取并校验 {@link LanguageImageEnum} 中的所有镜像，拉取失败定期重试，请求线程只检查镜像是否就绪，不会等待拉取。
+ */
+@Slf4j
+@Component
+public class DockerClientManager {
+
+    // 连接池最大连接数
+    @Value("${codesandbox.docker.client.max-connections:100}")
+    private int maxConnections;
+
+    // 建立连接的超时时间
+    @Value("${codesandbox.docker.client.connection-timeout-ms:3000}")
+    private long connectionTimeoutMs;
+
+    // 等待响应的超时时间（拉取镜像、等待 exec 结束等长请求也受此限制）
+    @Value("${codesandbox.docker.client.response-timeout-ms:600000}")
+    private long responseTimeoutMs;
+
+    // 镜像拉取失败后的重试间隔
+    @Value("${codesandbox.docker.image.retry-interval-ms:30000}")
+    private long imageRetryIntervalMs;
+
+    private DockerClient dockerClient;
+
+    // 已拉取并校验通过的镜像
+    private final Map<LanguageImageEnum, Boolean> imageReadyMap = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService imagePuller;
+
+    @PostConstruct
+    public void init() {
+        DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+        DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .sslConfig(config.getSSLConfig())
+                .maxConnections(maxConnections)
+                .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                .build();
+        dockerClient = DockerClientImpl.getInstance(config, httpClient);
+        imagePuller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "docker-image-puller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        imagePuller.execute(this::prepareImages);
+    }
+
+    public DockerClient getDockerClient() {
+        return dockerClient;
+    }
+
+    /**
+     * 镜像是否已拉取并校验通过
+     *
+     * @param languageImage 语言镜像
+     * @return 是否就绪
+     */
+    public boolean isImageReady(LanguageImageEnum languageImage) {
+        return imageReadyMap.getOrDefault(languageImage, false);
+    }
+
+    /**
+     * 拉取所有缺失的镜像，有镜像未就绪时稍后重试
+     */
+    private void prepareImages() {
+        boolean allReady = true;
+        for (LanguageImageEnum languageImage : LanguageImageEnum.values()) {
+            if (isImageReady(languageImage)) {
+                continue;
+            }
+            try {
+                prepareImage(languageImage.getImage());
+                imageReadyMap.put(languageImage, true);
+                log.info("镜像已就绪, image = {}", languageImage.getImage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                allReady = false;
+                log.warn("镜像准备失败，{}ms 后重试, image = {}, 原因: {}", imageRetryIntervalMs, languageImage.getImage(), e.getMessage());
+            }
+        }
+        if (!allReady && !imagePuller.isShutdown()) {
+            imagePuller.schedule(this::prepareImages, imageRetryIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 镜像不存在时拉取，拉取后再次检查确认镜像可用
+     */
+    private void prepareImage(String image) throws InterruptedException {
+        try {
+            dockerClient.inspectImageCmd(image).exec();
+            return;
+        } catch (NotFoundException e) {
+            log.info("镜像不存在，开始拉取, image = {}", image);
+        }
+        dockerClient.pullImageCmd(image)
+                .exec(new PullImageResultCallback())
+                .awaitCompletion();
+        dockerClient.inspectImageCmd(image).exec();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (imagePuller != null) {
+            imagePuller.shutdownNow();
+        }
+        if (dockerClient != null) {
+            try {
+                dockerClient.close();
+            } catch (IOException e) {
+                log.warn("关闭 Docker 客户端失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ppx.ppxojcodesandbox.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.ppx.ppxojcodesandbox.model.enums.LanguageImageEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 预热容器池管理器，按语言镜像维护容器池，并在后台定期做健康检查和补充
+ * 只有 Java 沙箱选择 Docker 实现（codesandbox.sandbox.java.impl=docker）时才创建容器
+ */
+@Slf4j
+@Component
+public class DockerContainerPoolManager {
+
+    @Value("${codesandbox.docker.pool.enabled:true}")
+    private boolean enabled;
+
+    // Java 沙箱的实现，不是 docker 时没有请求会借容器
+    @Value("${codesandbox.sandbox.java.impl:native}")
+    private String javaImpl;
+
+    // 每个镜像最少保持的空闲容器数
+    @Value("${codesandbox.docker.pool.min-idle:2}")
+    private int minIdle;
+
+    // 每个镜像最多创建的容器数
+    @Value("${codesandbox.docker.pool.max-total:8}")
+    private int maxTotal;
+
+    // 单个容器最多被借出的次数，超过后销毁重建
+    @Value("${codesandbox.docker.pool.max-leases:100}")
+    private int maxLeases;
+
+    // 借容器的等待时间
+    @Value("${codesandbox.docker.pool.lease-timeout-ms:3000}")
+    private long leaseTimeoutMs;
+
+    // 后台维护间隔
+    @Value("${codesandbox.docker.pool.maintain-interval-ms:5000}")
+    private long maintainIntervalMs;
+
+    @Resource
+    private DockerClientManager dockerClientManager;
+
+    private final Map<LanguageImageEnum, ContainerPool> poolMap = new EnumMap<>(LanguageImageEnum.class);
+
+    // 负责健康检查、补充容器和归还时的状态重置
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (enabled && !"docker".equalsIgnoreCase(javaImpl)) {
+            log.info("Java 沙箱使用 {} 实现，不创建预热容器池", javaImpl);
+            enabled = false;
+        }
+        if (!enabled) {
+            return;
+        }
+        String hostWorkRoot = System.getProperty("user.dir") + File.separator + "tmpCode" + File.separator + "dockerPool";
+        for (LanguageImageEnum languageImage : LanguageImageEnum.values()) {
+            poolMap.put(languageImage, new ContainerPool(dockerClientManager, languageImage, minIdle, maxTotal, maxLeases,
+                    hostWorkRoot + File.separator + languageImage.getLanguage()));
+        }
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "container-pool-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, maintainIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 借出指定语言镜像的容器
+     *
+     * @param languageImage 语言镜像
+     * @return 容器，容器池不可用或等待超时返回 null，调用方需回退到临时创建容器
+     */
+    public PooledContainer lease(LanguageImageEnum languageImage) {
+        ContainerPool pool = poolMap.get(languageImage);
+        if (pool == null) {
+            return null;
+        }
+        try {
+            return pool.lease(leaseTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * 归还容器，状态重置在后台线程完成，不占用请求线程
+     *
+     * @param container 容器
+     */
+    public void release(PooledContainer container) {
+        ContainerPool pool = poolMap.get(container.getLanguageImage());
+        try {
+            scheduler.execute(() -> pool.release(container));
+        } catch (RejectedExecutionException e) {
+            pool.release(container);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public DockerClient getDockerClient() {
+        return dockerClientManager.getDockerClient();
+    }
+
+    private void maintain() {
+        for (ContainerPool pool : poolMap.values()) {
+            try {
+                pool.maintain();
+            } catch (Exception e) {
+                log.warn("容器池维护失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (ContainerPool pool : poolMap.values()) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.ppx.ppxojcodesandbox.docker;
+
+import com.ppx.ppxojcodesandbox.model.enums.LanguageImageEnum;
+import lombok.Data;
+
+/**
+ * 容器池中的预热容器
+ */
+@Data
+public class PooledContainer {
+
+    // 容器 id
+    private final String containerId;
+
+    // 容器所属的语言镜像
+    private final LanguageImageEnum languageImage;
+
+    // 宿主机上挂载到容器 /app 的目录
+    private final String hostWorkDir;
+
+    // 创建时间
+    private final long createTime;
+
+    // 已被借出的次数
+    private int leaseCount;
+
+    // 最近一次归还时间
+    private long lastReturnTime;
+}
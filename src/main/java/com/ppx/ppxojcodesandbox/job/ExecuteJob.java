@@ -0,0 +1,64 @@
+package com.ppx.ppxojcodesandbox.job;
+
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.model.ExecuteJobResponse;
+import com.ppx.ppxojcodesandbox.model.enums.ExecuteJobStatusEnum;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步执行任务
+ */
+@Getter
+public class ExecuteJob {
+
+    private final String jobId;
+
+    private final long createTime;
+
+    private volatile ExecuteJobStatusEnum status = ExecuteJobStatusEnum.PENDING;
+
+    private volatile long finishTime;
+
+    private volatile ExecuteCodeResponse executeCodeResponse;
+
+    private volatile String errorMessage;
+
+    // 任务完成时触发，用于长轮询
+    private final CompletableFuture<ExecuteJob> completion = new CompletableFuture<>();
+
+    public ExecuteJob(String jobId) {
+        this.jobId = jobId;
+        this.createTime = System.currentTimeMillis();
+    }
+
+    void markRunning() {
+        status = ExecuteJobStatusEnum.RUNNING;
+    }
+
+    void succeed(ExecuteCodeResponse executeCodeResponse) {
+        this.executeCodeResponse = executeCodeResponse;
+        finish(ExecuteJobStatusEnum.SUCCEED);
+    }
+
+    void fail(String errorMessage) {
+        this.errorMessage = errorMessage;
+        finish(ExecuteJobStatusEnum.FAILED);
+    }
+
+    private void finish(ExecuteJobStatusEnum finalStatus) {
+        finishTime = System.currentTimeMillis();
+        status = finalStatus;
+        completion.complete(this);
+    }
+
+    public ExecuteJobResponse toResponse() {
+        return ExecuteJobResponse.builder()
+                .jobId(jobId)
+                .status(status.getValue())
+                .executeCodeResponse(executeCodeResponse)
+                .message(errorMessage)
+                .build();
+    }
+}
@@ -0,0 +1,200 @@
+package com.ppx.ppxojcodesandbox.job;
+
+import com.ppx.ppxojcodesandbox.CodeSandbox;
+import com.ppx.ppxojcodesandbox.model.ExecuteCaseEvent;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.model.ExecuteJobResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步执行任务服务
+ * 提交后立即返回任务 id，代码在独立的线程池中执行，不占用 Tomcat 请求线程；
+ * 结果在内存中保留一段时间，超过保留时间或数量上限后淘汰。
+ */
+@Slf4j
+@Component
+public class ExecuteJobService {
+
+    // 执行线程数
+    @Value("${codesandbox.job.threads:4}")
+    private int jobThreads;
+
+    // 排队任务上限
+    @Value("${codesandbox.job.queue-capacity:256}")
+    private int queueCapacity;
+
+    // 内存中最多保留的任务数
+    @Value("${codesandbox.job.max-retained:10000}")
+    private int maxRetainedJobs;
+
+    // 已完成任务的保留时间
+    @Value("${codesandbox.job.ttl-ms:600000}")
+    private long jobTtlMs;
+
+    // 推送连接的超时时间
+    @Value("${codesandbox.job.stream-timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    // 长轮询最长等待时间
+    private static final long MAX_POLL_WAIT_MS = 30000L;
+
+    private final Map<String, ExecuteJob> jobMap = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        jobExecutor = new ThreadPoolExecutor(jobThreads, jobThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> new Thread(runnable, "sandbox-job-" + threadIndex.incrementAndGet()));
+        cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sandbox-job-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::evictExpiredJobs, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 提交执行任务
+     *
+     * @param codeSandbox        代码沙箱
+     * @param executeCodeRequest 执行请求
+     * @return 任务
+     */
+    public ExecuteJob submit(CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest) {
+        if (jobMap.size() >= maxRetainedJobs) {
+            evictOldestFinishedJob();
+            if (jobMap.size() >= maxRetainedJobs) {
+                throw new RuntimeException("任务过多，请稍后再试");
+            }
+        }
+        ExecuteJob job = new ExecuteJob(UUID.randomUUID().toString());
+        jobMap.put(job.getJobId(), job);
+        try {
+            jobExecutor.execute(() -> runJob(job, codeSandbox, executeCodeRequest));
+        } catch (RejectedExecutionException e) {
+            jobMap.remove(job.getJobId());
+            throw new RuntimeException("任务排队已满，请稍后再试");
+        }
+        return job;
+    }
+
+    public ExecuteJob getJob(String jobId) {
+        return jobMap.get(jobId);
+    }
+
+    /**
+     * 查询任务结果，waitMs 大于 0 时长轮询：任务完成或等待超时后才返回，等待期间不占用请求线程
+     *
+     * @param job    任务
+     * @param waitMs 最长等待时间
+     * @return 任务结果
+     */
+    public DeferredResult<ExecuteJobResponse> poll(ExecuteJob job, long waitMs) {
+        long timeout = Math.min(Math.max(waitMs, 0L), MAX_POLL_WAIT_MS);
+        DeferredResult<ExecuteJobResponse> deferredResult = new DeferredResult<>(timeout > 0 ? timeout : null);
+        if (timeout == 0 || job.getStatus().isFinished()) {
+            deferredResult.setResult(job.toResponse());
+            return deferredResult;
+        }
+        deferredResult.onTimeout(() -> deferredResult.setResult(job.toResponse()));
+        job.getCompletion().thenAccept(finishedJob -> deferredResult.setResult(finishedJob.toResponse()));
+        return deferredResult;
+    }
+
+    /**
+     * 执行代码并以 SSE 推送结果：每个用例完成时推送一个 case 事件，全部结束后推送 summary 事件
+     * 代码在任务线程池中执行，客户端断开后继续执行完但不再推送
+     *
+     * @param codeSandbox        代码沙箱
+     * @param executeCodeRequest 执行请求
+     * @return SSE 连接
+     */
+    public SseEmitter stream(CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        AtomicBoolean disconnected = new AtomicBoolean(false);
+        emitter.onTimeout(() -> disconnected.set(true));
+        emitter.onError(e -> disconnected.set(true));
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    ExecuteCodeResponse executeCodeResponse = codeSandbox.executeCode(executeCodeRequest,
+                            (index, executeMessage) -> send(emitter, disconnected, "case", ExecuteCaseEvent.of(index, executeMessage)));
+                    send(emitter, disconnected, "summary", executeCodeResponse);
+                    emitter.complete();
+                } catch (Throwable e) {
+                    log.error("推送执行结果失败", e);
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new RuntimeException("任务排队已满，请稍后再试");
+        }
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, AtomicBoolean disconnected, String eventName, Object data) {
+        if (disconnected.get()) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+        } catch (IOException | IllegalStateException e) {
+            log.warn("推送事件失败，客户端可能已断开: {}", e.getMessage());
+            disconnected.set(true);
+        }
+    }
+
+    private void runJob(ExecuteJob job, CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest) {
+        job.markRunning();
+        try {
+            job.succeed(codeSandbox.executeCode(executeCodeRequest));
+        } catch (Throwable e) {
+            log.error("异步执行任务失败, jobId = {}", job.getJobId(), e);
+            job.fail(e.getMessage());
+        }
+    }
+
+    private void evictExpiredJobs() {
+        long expireBefore = System.currentTimeMillis() - jobTtlMs;
+        jobMap.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishTime() < expireBefore);
+    }
+
+    private void evictOldestFinishedJob() {
+        Optional<ExecuteJob> oldest = jobMap.values().stream()
+                .filter(job -> job.getStatus().isFinished())
+                .min(Comparator.comparingLong(ExecuteJob::getFinishTime));
+        oldest.ifPresent(job -> jobMap.remove(job.getJobId()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cleaner.shutdownNow();
+        jobExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ppx.ppxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 缓存统计信息
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStats {
+
+    // 命中次数
+    private Long hitCount;
+
+    // 未命中次数
+    private Long missCount;
+
+    // 淘汰次数
+    private Long evictionCount;
+
+    // 当前条目数
+    private Integer entryCount;
+
+    // 当前占用字节数
+    private Long byteSize;
+
+    // 字节上限
+    private Long maxByteSize;
+}
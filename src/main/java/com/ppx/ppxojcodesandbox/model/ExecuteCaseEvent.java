@@ -0,0 +1,40 @@
+package com.ppx.ppxojcodesandbox.model;
+
+import com.ppx.ppxojcodesandbox.model.enums.JudgeInfoMessageEnum;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个用例的执行结果事件
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteCaseEvent {
+
+    /**
+     * 用例下标（从 0 开始）
+     */
+    private Integer index;
+
+    /**
+     * 执行信息
+     */
+    private ExecuteMessage executeMessage;
+
+    /**
+     * 判题信息（运行成功 / 超时 / 输出溢出 / 运行错误）
+     */
+    private String judgeMessage;
+
+    public static ExecuteCaseEvent of(int index, ExecuteMessage executeMessage) {
+        return ExecuteCaseEvent.builder()
+                .index(index)
+                .executeMessage(executeMessage)
+                .judgeMessage(JudgeInfoMessageEnum.getEnumByExecuteMessage(executeMessage).getValue())
+                .build();
+    }
+}
@@ -15,7 +15,57 @@ public class ExecuteCodeRequest {
 
     private List<String> inputList;
 
+    /**
+     * 引用已上传的测试数据时的题目 id，和 testDataVersion 一起使用，此时不能再提供 inputList
+     */
+    private String problemId;
+
+    /**
+     * 引用的测试数据版本
+     */
+    private String testDataVersion;
+
     private String code;
 
     private String language;
+
+    /**
+     * 单个用例的运行时间上限（墙钟时间，毫秒），为空时使用沙箱默认值
+     */
+    private Long timeLimit;
+
+    /**
+     * 单个用例的 CPU 时间上限（毫秒，用户态 + 内核态），为空表示不限制
+     */
+    private Long cpuTimeLimit;
+
+    /**
+     * 单个用例的输出上限（字节，标准输出和错误输出合计），为空时使用默认值
+     */
+    private Long outputLimit;
+
+    /**
+     * 单个用例的内存上限（字节），为空时使用默认值，只在启用了 cgroup 的本地运行中生效
+     */
+    private Long memoryLimit;
+
+    /**
+     * C++ 编译配置（如 gnu++17-O2，见 CppCompileProfileEnum），为空时使用默认配置，其他语言忽略
+     */
+    private String compileProfile;
+
+    /**
+     * 每个用例的期望输出，不为空时在沙箱内比较输出，只返回判题结果，不再返回输出内容
+     */
+    private List<String> expectedOutputList;
+
+    /**
+     * 输出比较方式：exact、token、float（见 CompareModeEnum），为空时为 exact
+     */
+    private String compareMode;
+
+    /**
+     * float 比较方式允许的误差（绝对误差或相对误差满足其一即可），为空时为 1e-6
+     */
+    private Double floatTolerance;
 }
@@ -29,4 +29,9 @@ public class ExecuteCodeResponse {
      * 判题信息
      */
     private JudgeInfo judgeInfo;
+
+    /**
+     * 逐个用例的判题结果，请求带了期望输出时返回，到第一个未通过的用例为止
+     */
+    private List<String> verdictList;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.ppx.ppxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 异步执行任务的查询结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteJobResponse {
+
+    /**
+     * 任务 id
+     */
+    private String jobId;
+
+    /**
+     * 任务状态（pending / running / succeed / failed）
+     */
+    private String status;
+
+    /**
+     * 执行结果，任务完成后才有值
+     */
+    private ExecuteCodeResponse executeCodeResponse;
+
+    /**
+     * 任务失败的原因
+     */
+    private String message;
+}
@@ -25,9 +25,12 @@ public class ExecuteMessage {
     // 错误输出
     private String errorMessage;
 
-    // 运行时间
+    // 运行时间（墙钟时间，毫秒）
     private Long time;
 
+    // CPU 时间（用户态 + 内核态，毫秒）
+    private Long cpuTime;
+
     // 内存
     private Long memory;
 }
@@ -14,12 +14,17 @@ public class JudgeInfo {
     private String message;
 
     /**
-     * 消耗内存
+     * 消耗内存（字节）
      */
     private Long memory;
 
     /**
-     * 消耗时间（KB）
+     * 消耗时间（ms）
      */
     private Long time;
+
+    /**
+     * 消耗 CPU 时间（ms，用户态 + 内核态）
+     */
+    private Long cpuTime;
 }
@@ -0,0 +1,37 @@
+package com.ppx.ppxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 二进制 RPC 接口统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RpcStats {
+
+    // 是否启用
+    private Boolean enabled;
+
+    // 监听端口
+    private Integer port;
+
+    // 当前连接数
+    private Integer connectionCount;
+
+    // 正在执行的请求数
+    private Integer activeCount;
+
+    // 已返回结果的请求数
+    private Long completedCount;
+
+    // 执行失败（返回错误帧）的请求数
+    private Long errorCount;
+
+    // 执行线程已满被拒绝的请求数
+    private Long rejectedCount;
+}
@@ -0,0 +1,40 @@
+package com.ppx.ppxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单种语言沙箱的并发统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SandboxStats {
+
+    // 语言
+    private String language;
+
+    // 沙箱实现
+    private String sandbox;
+
+    // 最大并发执行数
+    private Integer maxConcurrent;
+
+    // 最大排队数
+    private Integer maxQueue;
+
+    // 正在执行的提交数
+    private Integer activeCount;
+
+    // 正在排队的提交数
+    private Integer waitingCount;
+
+    // 已完成的提交数
+    private Long completedCount;
+
+    // 因排队已满或等待超时被拒绝的提交数
+    private Long rejectedCount;
+}
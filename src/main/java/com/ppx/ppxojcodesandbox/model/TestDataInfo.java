@@ -0,0 +1,31 @@
+package com.ppx.ppxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 测试数据概要信息
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestDataInfo {
+
+    // 题目 id
+    private String problemId;
+
+    // 测试数据版本
+    private String version;
+
+    // 用例数
+    private Integer caseCount;
+
+    // 是否带期望输出
+    private Boolean hasExpectedOutput;
+
+    // 所有文件的总字节数
+    private Long byteSize;
+}
@@ -0,0 +1,61 @@
+package com.ppx.ppxojcodesandbox.model.enums;
+
+import lombok.Getter;
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 输出比较方式枚举
+ */
+@Getter
+public enum CompareModeEnum {
+
+    /**
+     * 逐字节比较（忽略 \r 和末尾的空白），只有空白不同时判为格式错误
+     */
+    EXACT("exact"),
+    /**
+     * 按空白分隔的词逐个比较，忽略空白的差异
+     */
+    TOKEN("token"),
+    /**
+     * 按词比较，两个词都是数字时允许误差
+     */
+    FLOAT("float");
+
+    private final String value;
+
+    CompareModeEnum(String value) {
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return 值列表
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@link CompareModeEnum}
+     */
+    public static CompareModeEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (CompareModeEnum anEnum : CompareModeEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ppx.ppxojcodesandbox.model.enums;
+
+import lombok.Getter;
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 请求体和响应体的压缩方式（Content-Encoding），按协商时的优先级排列
+ */
+@Getter
+public enum ContentEncodingEnum {
+
+    /**
+     * LZ4 帧格式，压缩和解压都比 gzip 快很多，压缩率稍低
+     */
+    LZ4("lz4"),
+    /**
+     * gzip，兼容性最好
+     */
+    GZIP("gzip");
+
+    private final String value;
+
+    ContentEncodingEnum(String value) {
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return 值列表
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举，忽略大小写
+     *
+     * @param value 值
+     * @return {@link ContentEncodingEnum}
+     */
+    public static ContentEncodingEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ContentEncodingEnum anEnum : ContentEncodingEnum.values()) {
+            if (anEnum.value.equalsIgnoreCase(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
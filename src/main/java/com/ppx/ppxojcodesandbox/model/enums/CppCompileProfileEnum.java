@@ -0,0 +1,60 @@
+package com.ppx.ppxojcodesandbox.model.enums;
+
+import lombok.Getter;
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * C++ 编译配置（语言标准 + 优化级别）枚举
+ */
+@Getter
+public enum CppCompileProfileEnum {
+
+    GNU11_O2("gnu++11-O2", "-std=gnu++11 -O2"),
+    GNU14_O2("gnu++14-O2", "-std=gnu++14 -O2"),
+    GNU17_O2("gnu++17-O2", "-std=gnu++17 -O2"),
+    GNU20_O2("gnu++20-O2", "-std=gnu++20 -O2"),
+    GNU17("gnu++17", "-std=gnu++17");
+
+    private final String value;
+
+    /**
+     * 传给 g++ 的编译参数
+     */
+    private final String flags;
+
+    CppCompileProfileEnum(String value, String flags) {
+        this.value = value;
+        this.flags = flags;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return 值列表
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@link CppCompileProfileEnum}
+     */
+    public static CppCompileProfileEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (CppCompileProfileEnum anEnum : CppCompileProfileEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ppx.ppxojcodesandbox.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 异步执行任务状态枚举
+ */
+@Getter
+public enum ExecuteJobStatusEnum {
+
+    PENDING("排队中", "pending"),
+    RUNNING("执行中", "running"),
+    SUCCEED("已完成", "succeed"),
+    FAILED("执行失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    ExecuteJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    public boolean isFinished() {
+        return this == SUCCEED || this == FAILED;
+    }
+}
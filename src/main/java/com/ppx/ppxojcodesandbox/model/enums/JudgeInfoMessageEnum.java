@@ -1,5 +1,8 @@
 package com.ppx.ppxojcodesandbox.model.enums;
 
+import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
 import lombok.Getter;
 import org.apache.commons.lang3.ObjectUtils;
 import java.util.Arrays;
@@ -64,4 +67,33 @@ public enum JudgeInfoMessageEnum {
         return null;
     }
 
-}
\ No newline at end of file
+    /**
+     * 根据单个用例的执行信息获取判题消息（答案由沙箱内的输出比较给出，没有期望输出时只判断运行状态）
+     *
+     * @param executeMessage 执行信息
+     * @return
+     */
+    public static JudgeInfoMessageEnum getEnumByExecuteMessage(ExecuteMessage executeMessage) {
+        Integer exitValue = executeMessage.getExitValue();
+        if (exitValue != null && exitValue == ExitCodeConstant.TIMEOUT_EXIT_CODE) {
+            return TIME_LIMIT_EXCEEDED;
+        }
+        if (exitValue != null && exitValue == ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE) {
+            return OUTPUT_LIMIT_EXCEEDED;
+        }
+        if (exitValue != null && exitValue == ExitCodeConstant.MEMORY_LIMIT_EXIT_CODE) {
+            return MEMORY_LIMIT_EXCEEDED;
+        }
+        if (exitValue != null && exitValue == ExitCodeConstant.WRONG_ANSWER_EXIT_CODE) {
+            return WRONG_ANSWER;
+        }
+        if (exitValue != null && exitValue == ExitCodeConstant.PRESENTATION_ERROR_EXIT_CODE) {
+            return PRESENTATION_ERROR;
+        }
+        if ((exitValue != null && exitValue != 0) || StrUtil.isNotBlank(executeMessage.getErrorMessage())) {
+            return RUNTIME_ERROR;
+        }
+        return ACCEPTED;
+    }
+
+}
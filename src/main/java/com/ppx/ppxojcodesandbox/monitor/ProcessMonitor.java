@@ -0,0 +1,232 @@
+package com.ppx.ppxojcodesandbox.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程资源监控
+ * 所有被监控的进程共用一个采样线程，定时读取 /proc/[pid]/status 中的 VmHWM（内核记录的常驻内存峰值）
+ * 和 /proc/[pid]/stat 中的 CPU 时间（用户态 + 内核态，含已回收的子进程），CPU 时间超过上限时结束进程；
+ * 内存峰值由内核维护，采样只需在进程退出前读到即可；非 Linux 环境下不做统计。
+ * 采样间隔内就退出的进程采样不到，准确的统计在退出时由 {@link RusageWrapper} 或 cgroup 读取，
+ * 采样只负责 CPU 时间超限的检查，以及两者都不可用时的统计。
+ */
+@Slf4j
+public class ProcessMonitor {
+
+    // 采样间隔
+    private static final long SAMPLE_INTERVAL_MS = 10L;
+
+    // /proc 中 CPU 时间的单位（USER_HZ，Linux 用户态接口固定为 100）
+    private static final long CLOCK_TICKS_PER_SECOND = 100L;
+
+    private static final ProcessMonitor INSTANCE = new ProcessMonitor();
+
+    private final boolean available = new File("/proc/self/status").exists();
+
+    private final Map<Long, ProcessUsageWatch> watchMap = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService sampler;
+
+    private ProcessMonitor() {
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "process-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (available) {
+            sampler.scheduleWithFixedDelay(this::sampleAll, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static ProcessMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 开始监控进程
+     *
+     * @param process 已启动的进程
+     * @return 统计句柄，监控不可用时返回 null
+     */
+    public ProcessUsageWatch watch(Process process) {
+        return watch(process, 0L);
+    }
+
+    /**
+     * 开始监控进程，CPU 时间超过上限时结束进程
+     *
+     * @param process        已启动的进程
+     * @param cpuTimeLimitMs CPU 时间上限（毫秒），小于等于 0 表示不限制
+     * @return 统计句柄，监控不可用时返回 null
+     */
+    public ProcessUsageWatch watch(Process process, long cpuTimeLimitMs) {
+        return watch(process, cpuTimeLimitMs, false);
+    }
+
+    /**
+     * 开始监控进程，CPU 时间超过上限时结束进程
+     *
+     * @param process        已启动的进程
+     * @param cpuTimeLimitMs CPU 时间上限（毫秒），小于等于 0 表示不限制
+     * @param wrapped        进程是否为 {@link RusageWrapper} 包装过的命令，是时采样包装进程 fork 出的用户程序
+     * @return 统计句柄，监控不可用时返回 null
+     */
+    public ProcessUsageWatch watch(Process process, long cpuTimeLimitMs, boolean wrapped) {
+        long pid = getPid(process);
+        if (!available || pid <= 0) {
+            return null;
+        }
+        ProcessUsageWatch watch = new ProcessUsageWatch(pid, process, cpuTimeLimitMs, wrapped);
+        sample(watch);
+        watchMap.put(pid, watch);
+        return watch;
+    }
+
+    /**
+     * 停止监控
+     *
+     * @param watch 统计句柄
+     */
+    public void unwatch(ProcessUsageWatch watch) {
+        if (watch != null) {
+            watchMap.remove(watch.getPid(), watch);
+        }
+    }
+
+    /**
+     * 获取进程号（JDK 9 之后有 Process.pid()，JDK 8 读取 UNIXProcess 的 pid 字段）
+     *
+     * @param process 进程
+     * @return 进程号，获取失败时返回 -1
+     */
+    public static long getPid(Process process) {
+        try {
+            Method pidMethod = Process.class.getMethod("pid");
+            return (Long) pidMethod.invoke(process);
+        } catch (ReflectiveOperationException e) {
+            // JDK 8
+        }
+        try {
+            Field pidField = process.getClass().getDeclaredField("pid");
+            pidField.setAccessible(true);
+            return pidField.getInt(process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1L;
+        }
+    }
+
+    private void sampleAll() {
+        for (ProcessUsageWatch watch : watchMap.values()) {
+            sample(watch);
+        }
+    }
+
+    private void sample(ProcessUsageWatch watch) {
+        try {
+            long samplePid = watch.getSamplePid();
+            if (samplePid <= 0) {
+                samplePid = findChildPid(watch.getPid());
+                if (samplePid <= 0) {
+                    // 包装进程还没有 fork 出用户程序
+                    return;
+                }
+                watch.setSamplePid(samplePid);
+            }
+            String pid = String.valueOf(samplePid);
+            byte[] status = Files.readAllBytes(Paths.get("/proc", pid, "status"));
+            long vmHwmKb = parseStatusField(status, "VmHWM:");
+            if (vmHwmKb > 0) {
+                watch.updatePeakMemory(vmHwmKb * 1024);
+            }
+            long cpuTicks = parseStatCpuTicks(Files.readAllBytes(Paths.get("/proc", pid, "stat")));
+            if (cpuTicks >= 0) {
+                watch.updateCpuTime(cpuTicks * 1000 / CLOCK_TICKS_PER_SECOND);
+            }
+        } catch (NoSuchFileException e) {
+            // 进程已经结束
+        } catch (IOException e) {
+            log.debug("读取进程状态失败, pid = {}: {}", watch.getPid(), e.getMessage());
+        }
+    }
+
+    /**
+     * 读取进程的第一个子进程（/proc/[pid]/task/[pid]/children），没有子进程时返回 -1
+     */
+    private static long findChildPid(long pid) throws IOException {
+        String children = new String(Files.readAllBytes(Paths.get("/proc", String.valueOf(pid), "task", String.valueOf(pid), "children")),
+                StandardCharsets.US_ASCII).trim();
+        if (children.isEmpty()) {
+            return -1L;
+        }
+        int end = children.indexOf(' ');
+        try {
+            return Long.parseLong(end < 0 ? children : children.substring(0, end));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 从 /proc/[pid]/stat 的内容中读取 utime + stime + cutime + cstime（单位 clock tick）
+     * 进程名可能包含空格和括号，从最后一个右括号之后开始按空格拆分，第一个字段是第 3 列 state
+     */
+    static long parseStatCpuTicks(byte[] stat) {
+        String text = new String(stat, StandardCharsets.US_ASCII);
+        int commEnd = text.lastIndexOf(')');
+        if (commEnd < 0) {
+            return -1L;
+        }
+        String[] fields = text.substring(commEnd + 1).trim().split(" ");
+        // utime 是第 14 列，对应下标 11
+        if (fields.length < 15) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+                    + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 从 /proc/[pid]/status 的内容中读取数值字段（单位 kB）
+     */
+    static long parseStatusField(byte[] status, String fieldName) {
+        String text = new String(status, StandardCharsets.US_ASCII);
+        int index = text.indexOf(fieldName);
+        if (index < 0) {
+            return -1L;
+        }
+        long value = 0L;
+        boolean found = false;
+        for (int i = index + fieldName.length(); i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                found = true;
+            } else if (found || c == '\n') {
+                break;
+            }
+        }
+        return found ? value : -1L;
+    }
+}
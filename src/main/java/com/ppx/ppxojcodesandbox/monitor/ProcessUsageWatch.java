@@ -0,0 +1,89 @@
+package com.ppx.ppxojcodesandbox.monitor;
+
+/**
+ * 单个进程的资源统计句柄，由 {@link ProcessMonitor} 的采样线程更新
+ */
+public class ProcessUsageWatch {
+
+    private final long pid;
+
+    private final Process process;
+
+    // 进程是资源统计包装进程，需要采样它 fork 出的用户程序
+    private final boolean wrapped;
+
+    // 实际采样的进程号，包装时为用户程序的进程号，找到之前为 0
+    private volatile long samplePid;
+
+    // CPU 时间上限（毫秒），小于等于 0 表示不限制
+    private final long cpuTimeLimitMs;
+
+    // 采样到的最大常驻内存（字节）
+    private volatile long peakMemory = 0L;
+
+    // 采样到的 CPU 时间（用户态 + 内核态，毫秒）
+    private volatile long cpuTime = 0L;
+
+    private volatile boolean cpuTimeLimitExceeded = false;
+
+    ProcessUsageWatch(long pid, Process process, long cpuTimeLimitMs, boolean wrapped) {
+        this.pid = pid;
+        this.process = process;
+        this.cpuTimeLimitMs = cpuTimeLimitMs;
+        this.wrapped = wrapped;
+        this.samplePid = wrapped ? 0L : pid;
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    boolean isWrapped() {
+        return wrapped;
+    }
+
+    long getSamplePid() {
+        return samplePid;
+    }
+
+    void setSamplePid(long samplePid) {
+        this.samplePid = samplePid;
+    }
+
+    /**
+     * 目前为止的内存峰值（字节），没有采样到时为 0
+     */
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+
+    /**
+     * 最后一次采样时的 CPU 时间（毫秒），误差不超过一个采样间隔
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * 是否因为 CPU 时间超限被结束
+     */
+    public boolean isCpuTimeLimitExceeded() {
+        return cpuTimeLimitExceeded;
+    }
+
+    void updatePeakMemory(long memory) {
+        if (memory > peakMemory) {
+            peakMemory = memory;
+        }
+    }
+
+    void updateCpuTime(long cpuTimeMs) {
+        if (cpuTimeMs > cpuTime) {
+            cpuTime = cpuTimeMs;
+        }
+        if (cpuTimeLimitMs > 0 && cpuTimeMs > cpuTimeLimitMs && !cpuTimeLimitExceeded) {
+            cpuTimeLimitExceeded = true;
+            process.destroyForcibly();
+        }
+    }
+}
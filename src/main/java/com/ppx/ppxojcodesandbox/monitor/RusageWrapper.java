@@ -0,0 +1,155 @@
+package com.ppx.ppxojcodesandbox.monitor;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源统计包装进程（源代码见 resources/native/rusage_wrapper.c）
+ * 用户程序由包装进程 fork 执行，退出时用 wait4 读取 rusage 写到报告文件，内存峰值和 CPU 时间在退出时读取，
+ * 不依赖 {@link ProcessMonitor} 的采样，运行只有几毫秒的程序也能统计准确。
+ * 第一次使用时用 gcc 编译，按源代码的哈希命名，源代码不变时重启后直接复用；gcc 不可用时不包装，退回到采样统计。
+ */
+@Slf4j
+public class RusageWrapper {
+
+    private static final String SOURCE_RESOURCE = "native/rusage_wrapper.c";
+
+    // 编译的等待时间
+    private static final long COMPILE_TIMEOUT_MS = 30000L;
+
+    private static volatile RusageWrapper instance;
+
+    // 编译好的包装程序，为 null 表示不可用
+    private final File binaryFile;
+
+    // 报告文件所在目录，不放在用户程序的工作目录里
+    private final File reportDir;
+
+    private RusageWrapper(File rootDir) {
+        this.reportDir = new File(rootDir, "reports");
+        this.binaryFile = prepareBinary(rootDir);
+        if (binaryFile != null) {
+            FileUtil.del(reportDir);
+            FileUtil.mkdir(reportDir);
+        }
+    }
+
+    /**
+     * 获取实例，第一次调用时编译包装程序
+     */
+    public static RusageWrapper getInstance() {
+        if (instance == null) {
+            synchronized (RusageWrapper.class) {
+                if (instance == null) {
+                    instance = new RusageWrapper(new File(System.getProperty("user.dir"), "rusageWrapper"));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isAvailable() {
+        return binaryFile != null;
+    }
+
+    /**
+     * 为一次运行分配报告文件
+     *
+     * @return 报告文件（还不存在，由包装进程创建），不可用时返回 null
+     */
+    public File createReportFile() {
+        return binaryFile == null ? null : new File(reportDir, UUID.randomUUID() + ".txt");
+    }
+
+    /**
+     * 包装运行命令
+     *
+     * @param command    原命令
+     * @param reportFile {@link #createReportFile()} 分配的报告文件
+     * @return 包装后的命令
+     */
+    public String[] wrapCommand(String[] command, File reportFile) {
+        List<String> wrapped = new ArrayList<>(command.length + 2);
+        wrapped.add(binaryFile.getAbsolutePath());
+        wrapped.add(reportFile.getAbsolutePath());
+        wrapped.addAll(Arrays.asList(command));
+        return wrapped.toArray(new String[0]);
+    }
+
+    /**
+     * 读取报告并删除报告文件
+     *
+     * @param reportFile 报告文件
+     * @return [内存峰值（字节）, CPU 时间（毫秒）]，包装进程被结束或报告不完整时返回 null
+     */
+    public static long[] readReport(File reportFile) {
+        try {
+            if (!reportFile.isFile()) {
+                return null;
+            }
+            String[] fields = new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.US_ASCII).trim().split(" ");
+            if (fields.length != 3) {
+                return null;
+            }
+            long maxRssKb = Long.parseLong(fields[0]);
+            long cpuTimeUs = Long.parseLong(fields[1]) + Long.parseLong(fields[2]);
+            return new long[]{maxRssKb * 1024, cpuTimeUs / 1000};
+        } catch (IOException | NumberFormatException e) {
+            log.debug("读取资源统计报告失败: {}", e.getMessage());
+            return null;
+        } finally {
+            FileUtil.del(reportFile);
+        }
+    }
+
+    /**
+     * 编译包装程序，已经编译过同一份源代码时直接复用
+     */
+    private static File prepareBinary(File rootDir) {
+        try {
+            byte[] source = ResourceUtil.readBytes(SOURCE_RESOURCE);
+            File binary = new File(rootDir, "rusage_wrapper-" + DigestUtil.sha256Hex(source).substring(0, 16));
+            if (binary.canExecute()) {
+                return binary;
+            }
+            FileUtil.mkdir(rootDir);
+            File sourceFile = new File(rootDir, "rusage_wrapper.c");
+            FileUtil.writeBytes(source, sourceFile);
+            File tempBinary = new File(rootDir, binary.getName() + "." + UUID.randomUUID() + ".tmp");
+            Process process = new ProcessBuilder("gcc", "-O2", "-o", tempBinary.getAbsolutePath(), sourceFile.getAbsolutePath())
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File("/dev/null"))
+                    .start();
+            if (!process.waitFor(COMPILE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("编译超时");
+            }
+            if (process.exitValue() != 0 || !tempBinary.isFile()) {
+                FileUtil.del(tempBinary);
+                throw new IOException("gcc 退出码 " + process.exitValue());
+            }
+            Files.move(tempBinary.toPath(), binary.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("资源统计包装程序已编译: {}", binary);
+            return binary;
+        } catch (IOException | RuntimeException e) {
+            log.warn("资源统计包装程序不可用，内存和 CPU 时间退回到采样统计: {}", e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
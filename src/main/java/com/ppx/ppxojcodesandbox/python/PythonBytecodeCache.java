@@ -0,0 +1,131 @@
+package com.ppx.ppxojcodesandbox.python;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Python 字节码缓存
+ * 以源代码的哈希为键缓存编译好的 pyc（或编译错误信息），按字节数做 LRU 淘汰，相同代码再次提交时跳过编译
+ */
+public class PythonBytecodeCache {
+
+    // 缓存总字节上限
+    private static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024L;
+
+    // 单个条目的字节上限
+    private static final long DEFAULT_MAX_ENTRY_BYTES = 1024 * 1024L;
+
+    private static final PythonBytecodeCache INSTANCE = new PythonBytecodeCache(DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRY_BYTES);
+
+    private final long maxBytes;
+
+    private final long maxEntryBytes;
+
+    // accessOrder = true，按访问顺序排列，队首为最久未使用
+    private final LinkedHashMap<String, Entry> cacheMap = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long currentBytes = 0L;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    private final AtomicLong evictionCount = new AtomicLong(0);
+
+    public PythonBytecodeCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    public static PythonBytecodeCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static String buildKey(String code) {
+        return DigestUtil.sha256Hex(code);
+    }
+
+    public synchronized Entry get(String key) {
+        Entry entry = cacheMap.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        long size = entry.byteSize();
+        if (size > maxEntryBytes) {
+            return;
+        }
+        Entry old = cacheMap.put(key, entry);
+        if (old != null) {
+            currentBytes -= old.byteSize();
+        }
+        currentBytes += size;
+        Iterator<Map.Entry<String, Entry>> iterator = cacheMap.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            currentBytes -= eldest.getValue().byteSize();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return CacheStats.builder()
+                .hitCount(hitCount.get())
+                .missCount(missCount.get())
+                .evictionCount(evictionCount.get())
+                .entryCount(cacheMap.size())
+                .byteSize(currentBytes)
+                .maxByteSize(maxBytes)
+                .build();
+    }
+
+    /**
+     * 缓存条目：编译成功时保存 pyc，失败时保存错误信息
+     */
+    public static class Entry {
+
+        private final byte[] bytecode;
+
+        private final String errorMessage;
+
+        private Entry(byte[] bytecode, String errorMessage) {
+            this.bytecode = bytecode;
+            this.errorMessage = errorMessage;
+        }
+
+        public static Entry success(byte[] bytecode) {
+            return new Entry(bytecode, null);
+        }
+
+        public static Entry failure(String errorMessage) {
+            return new Entry(null, errorMessage);
+        }
+
+        public boolean isSuccess() {
+            return bytecode != null;
+        }
+
+        public byte[] getBytecode() {
+            return bytecode;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        long byteSize() {
+            return bytecode != null ? bytecode.length : errorMessage.length() * 2L;
+        }
+    }
+}
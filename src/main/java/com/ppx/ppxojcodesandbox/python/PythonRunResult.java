@@ -0,0 +1,40 @@
+package com.ppx.ppxojcodesandbox.python;
+
+import lombok.Data;
+
+/**
+ * zygote 中单个用例的执行结果
+ */
+@Data
+public class PythonRunResult {
+
+    public static final String STATUS_OK = "OK";
+
+    public static final String STATUS_TIMEOUT = "TIMEOUT";
+
+    public static final String STATUS_CPU = "CPU";
+
+    public static final String STATUS_OUTPUT = "OUTPUT";
+
+    /**
+     * 结束状态：OK 正常退出（退出码可能非 0）、TIMEOUT 超时、CPU CPU 时间超限、OUTPUT 输出超限、SIGNAL 被信号结束
+     */
+    private String status;
+
+    private int exitCode;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long time;
+
+    /**
+     * 常驻内存峰值（字节）
+     */
+    private long memory;
+
+    /**
+     * CPU 时间（毫秒）
+     */
+    private long cpuTime;
+}
@@ -0,0 +1,268 @@
+package com.ppx.ppxojcodesandbox.python;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻的 Python 解释器（zygote）
+ * 解释器启动并导入常用模块后常驻，编译和每个用例的执行都通过指令交给它，由 zygote fork 子进程编译源代码或运行字节码，
+ * 省去每个用例启动 python3 的时间。脚本见 resources/python/zygote.py。
+ * 单个请求没有按时回复时只让这个请求失败并结束它的子进程，zygote 对探测也没有回复时才重启；
+ * zygote 退出后下次使用时重新启动，启动失败时调用方退回到直接启动 python3。
+ */
+@Slf4j
+public class PythonZygote {
+
+    private static final String SCRIPT_RESOURCE = "python/zygote.py";
+
+    // 启动失败后多久内不再尝试
+    private static final long RESTART_BACKOFF_MS = 10000L;
+
+    // 等待 zygote 启动的时间
+    private static final long READY_TIMEOUT_MS = 10000L;
+
+    // 编译的等待时间
+    private static final long COMPILE_TIMEOUT_MS = 10000L;
+
+    // 除了用例本身的超时时间外，额外等待 zygote 回复的时间，也是请求超时后探测 zygote 的等待时间
+    private static final long REPLY_GRACE_MS = 2000L;
+
+    private static final PythonZygote INSTANCE = new PythonZygote("python3");
+
+    private final String pythonCmd;
+
+    private final AtomicLong requestIdGenerator = new AtomicLong(0);
+
+    // 请求 id -> 等待中的回复
+    private final Map<String, CompletableFuture<String[]>> pendingReplies = new ConcurrentHashMap<>();
+
+    private Process process;
+
+    private OutputStream controlOut;
+
+    private long lastStartFailTime;
+
+    public PythonZygote(String pythonCmd) {
+        this.pythonCmd = pythonCmd;
+    }
+
+    public static PythonZygote getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 在 zygote 中编译源文件
+     *
+     * @param srcFile 源文件
+     * @param pycFile 输出的字节码文件
+     * @return 编译错误信息，编译成功返回 null
+     * @throws IOException zygote 不可用
+     */
+    public String compile(File srcFile, File pycFile) throws IOException {
+        String[] reply = request(COMPILE_TIMEOUT_MS + REPLY_GRACE_MS, "COMPILE", srcFile.getAbsolutePath(),
+                pycFile.getAbsolutePath(), String.valueOf(COMPILE_TIMEOUT_MS));
+        if ("0".equals(reply[2])) {
+            return null;
+        }
+        return reply.length > 3 ? new String(Base64.getDecoder().decode(reply[3]), StandardCharsets.UTF_8) : "";
+    }
+
+    /**
+     * fork 子进程执行字节码，子进程的标准输入输出重定向到文件
+     *
+     * @param pycFile         字节码文件
+     * @param workDir         工作目录
+     * @param stdinFile       标准输入文件
+     * @param stdoutFile      标准输出文件
+     * @param stderrFile      错误输出文件
+     * @param timeoutMs       超时时间
+     * @param cpuTimeLimitMs  CPU 时间上限，0 表示不限制
+     * @param outputLimit     单个输出文件的大小上限
+     * @param cgroupProcsFile 子进程要加入的 cgroup.procs 文件，为 null 表示不使用 cgroup
+     * @return 执行结果
+     * @throws IOException zygote 不可用
+     */
+    public PythonRunResult run(File pycFile, File workDir, File stdinFile, File stdoutFile, File stderrFile, long timeoutMs,
+                               long cpuTimeLimitMs, long outputLimit, File cgroupProcsFile) throws IOException {
+        String[] reply = request(timeoutMs + REPLY_GRACE_MS, "RUN", pycFile.getAbsolutePath(), workDir.getAbsolutePath(),
+                stdinFile.getAbsolutePath(), stdoutFile.getAbsolutePath(), stderrFile.getAbsolutePath(),
+                String.valueOf(timeoutMs), String.valueOf(cpuTimeLimitMs), String.valueOf(outputLimit),
+                cgroupProcsFile == null ? "-" : cgroupProcsFile.getAbsolutePath());
+        PythonRunResult result = new PythonRunResult();
+        result.setStatus(reply[2]);
+        result.setExitCode(Integer.parseInt(reply[3]));
+        result.setTime(Long.parseLong(reply[4]));
+        result.setMemory(Long.parseLong(reply[5]));
+        result.setCpuTime(Long.parseLong(reply[6]));
+        return result;
+    }
+
+    private String[] request(long timeoutMs, String command, String... args) throws IOException {
+        String requestId = String.valueOf(requestIdGenerator.incrementAndGet());
+        try {
+            return sendAndWait(timeoutMs, command, requestId, args);
+        } catch (TimeoutException e) {
+            // 只放弃这个请求，zygote 还能回复时继续给其他请求使用
+            log.warn("Python 执行器没有按时回复请求 {}", command);
+            cancel(requestId);
+            if (!isResponsive()) {
+                log.warn("Python 执行器没有响应，重启");
+                destroy();
+            }
+            throw new IOException("Python 执行器没有回复");
+        }
+    }
+
+    /**
+     * 发送指令并等待回复
+     *
+     * @throws TimeoutException 没有按时回复，zygote 不一定已经卡住，由调用方决定如何处理
+     */
+    private String[] sendAndWait(long timeoutMs, String command, String requestId, String... args)
+            throws IOException, TimeoutException {
+        CompletableFuture<String[]> reply = new CompletableFuture<>();
+        pendingReplies.put(requestId, reply);
+        try {
+            synchronized (this) {
+                ensureStarted();
+                writeCommand(command, requestId, args);
+            }
+            return reply.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待 Python 执行器被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Python 执行器已退出", e.getCause());
+        } catch (IOException e) {
+            destroy();
+            throw e;
+        } finally {
+            pendingReplies.remove(requestId);
+        }
+    }
+
+    /**
+     * 让 zygote 结束请求对应的子进程，之后到达的回复会被丢弃
+     */
+    private synchronized void cancel(String requestId) {
+        if (process == null) {
+            return;
+        }
+        try {
+            writeCommand("CANCEL", requestId);
+        } catch (IOException e) {
+            log.debug("取消 Python 执行器请求失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 探测 zygote 的事件循环是否还在处理指令
+     */
+    private boolean isResponsive() {
+        try {
+            sendAndWait(REPLY_GRACE_MS, "PING", String.valueOf(requestIdGenerator.incrementAndGet()));
+            return true;
+        } catch (IOException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private void writeCommand(String command, String requestId, String... args) throws IOException {
+        StringBuilder line = new StringBuilder(command).append('\t').append(requestId);
+        for (String arg : args) {
+            line.append('\t').append(arg);
+        }
+        line.append('\n');
+        controlOut.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        controlOut.flush();
+    }
+
+    private void ensureStarted() throws IOException {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        if (System.currentTimeMillis() - lastStartFailTime < RESTART_BACKOFF_MS) {
+            throw new IOException("Python 执行器不可用");
+        }
+        try {
+            String script = ResourceUtil.readUtf8Str(SCRIPT_RESOURCE);
+            ProcessBuilder processBuilder = new ProcessBuilder(pythonCmd, "-I", "-c", script);
+            processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process newProcess = processBuilder.start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(newProcess.getInputStream(), StandardCharsets.UTF_8));
+            CompletableFuture<Void> ready = new CompletableFuture<>();
+            Thread readerThread = new Thread(() -> readReplies(newProcess, reader, ready), "python-zygote-reader");
+            readerThread.setDaemon(true);
+            readerThread.start();
+            ready.get(READY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            process = newProcess;
+            controlOut = newProcess.getOutputStream();
+            log.info("Python 执行器已启动");
+        } catch (Exception e) {
+            lastStartFailTime = System.currentTimeMillis();
+            destroy();
+            throw new IOException("启动 Python 执行器失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void readReplies(Process zygoteProcess, BufferedReader reader, CompletableFuture<Void> ready) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                if ("READY".equals(parts[0])) {
+                    ready.complete(null);
+                } else if (parts.length > 2) {
+                    CompletableFuture<String[]> reply = pendingReplies.get(parts[1]);
+                    if (reply != null) {
+                        reply.complete(parts);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.debug("读取 Python 执行器输出失败: {}", e.getMessage());
+        }
+        ready.completeExceptionally(new IOException("Python 执行器启动失败"));
+        // 只有当前的 zygote 退出时才让等待中的请求失败
+        synchronized (this) {
+            if (process == zygoteProcess || process == null) {
+                IOException exited = new IOException("Python 执行器已退出");
+                pendingReplies.values().forEach(reply -> reply.completeExceptionally(exited));
+            }
+        }
+    }
+
+    /**
+     * 结束 zygote，先发 SIGTERM 让它结束正在运行的子进程
+     */
+    public synchronized void destroy() {
+        if (process != null) {
+            process.destroy();
+            try {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            process = null;
+            controlOut = null;
+        }
+    }
+}
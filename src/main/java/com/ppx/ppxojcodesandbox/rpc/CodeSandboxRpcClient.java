@@ -0,0 +1,196 @@
+package com.ppx.ppxojcodesandbox.rpc;
+
+import com.ppx.ppxojcodesandbox.CodeSandbox;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 二进制 RPC 客户端（供判题服务使用），一个实例对应一条长连接，多个线程可以同时通过它发送请求
+ */
+@Slf4j
+public class CodeSandboxRpcClient implements CodeSandbox, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 请求消息体超过该字节数时使用 LZ4 压缩
+    private static final int COMPRESS_MIN_BYTES = 2048;
+
+    private static final int MAX_FRAME_BYTES = 256 * 1024 * 1024;
+
+    private final Socket socket;
+
+    private final DataInputStream in;
+
+    private final OutputStream out;
+
+    private final AtomicLong requestIdGenerator = new AtomicLong(0);
+
+    // 请求 id -> 等待结果的请求
+    private final Map<Long, CompletableFuture<ExecuteCodeResponse>> pendingRequests = new ConcurrentHashMap<>();
+
+    private volatile boolean closed = false;
+
+    /**
+     * 连接沙箱并完成握手
+     *
+     * @param host             沙箱地址
+     * @param port             RPC 端口
+     * @param secret           共享密钥，和沙箱的 codesandbox.rpc.secret 一致
+     * @param connectTimeoutMs 连接超时时间
+     * @throws IOException 连接失败、密钥错误或协议版本不一致
+     */
+    public CodeSandboxRpcClient(String host, int port, String secret, int connectTimeoutMs) throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length > RpcProtocol.MAX_SECRET_LENGTH) {
+            socket.close();
+            throw new IllegalArgumentException("密钥过长");
+        }
+        out.write(RpcProtocol.MAGIC);
+        out.write(RpcProtocol.VERSION);
+        out.write(secretBytes.length >>> 8);
+        out.write(secretBytes.length);
+        out.write(secretBytes);
+        out.flush();
+        byte[] preface = new byte[RpcProtocol.MAGIC.length + 1];
+        try {
+            in.readFully(preface);
+        } catch (EOFException e) {
+            socket.close();
+            throw new IOException("沙箱拒绝了连接，请检查密钥和协议版本");
+        }
+        if (!Arrays.equals(Arrays.copyOf(preface, RpcProtocol.MAGIC.length), RpcProtocol.MAGIC)
+                || preface[RpcProtocol.MAGIC.length] != RpcProtocol.VERSION) {
+            socket.close();
+            throw new IOException("沙箱 RPC 协议版本不一致");
+        }
+        Thread reader = new Thread(this::readLoop, "sandbox-rpc-client-" + host + ":" + port);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
+        try {
+            return executeCodeAsync(executeCodeRequest).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待沙箱结果被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 异步发送执行请求，不等待结果
+     *
+     * @param executeCodeRequest 执行请求
+     * @return 执行结果，沙箱返回错误或连接断开时异常结束
+     */
+    public CompletableFuture<ExecuteCodeResponse> executeCodeAsync(ExecuteCodeRequest executeCodeRequest) {
+        long requestId = requestIdGenerator.incrementAndGet();
+        CompletableFuture<ExecuteCodeResponse> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RuntimeException("沙箱连接已关闭"));
+            return future;
+        }
+        RpcCodec.FrameBuffer buffer = new RpcCodec.FrameBuffer(1024);
+        RpcCodec.writeRequest(buffer, executeCodeRequest);
+        byte flags = RpcProtocol.FLAG_ACCEPT_LZ4;
+        if (buffer.payloadLength() > COMPRESS_MIN_BYTES) {
+            RpcCodec.FrameBuffer compressed = RpcFrame.compress(buffer);
+            if (compressed != null) {
+                buffer = compressed;
+                flags |= RpcProtocol.FLAG_LZ4;
+            }
+        }
+        pendingRequests.put(requestId, future);
+        // 放入等待表的同时连接被关闭时，failPendingRequests 可能已经遍历过等待表，需要在这里结束请求
+        if (closed && pendingRequests.remove(requestId) != null) {
+            future.completeExceptionally(new RuntimeException("沙箱连接已关闭"));
+            return future;
+        }
+        try {
+            synchronized (out) {
+                RpcFrame.write(out, buffer, RpcProtocol.TYPE_EXECUTE, flags, requestId);
+            }
+        } catch (IOException e) {
+            pendingRequests.remove(requestId);
+            future.completeExceptionally(new RuntimeException("发送请求失败: " + e.getMessage()));
+            close();
+        }
+        return future;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        failPendingRequests();
+    }
+
+    private void readLoop() {
+        try {
+            RpcFrame frame;
+            while ((frame = RpcFrame.read(in, MAX_FRAME_BYTES)) != null) {
+                CompletableFuture<ExecuteCodeResponse> future = pendingRequests.remove(frame.getRequestId());
+                if (future == null) {
+                    continue;
+                }
+                if (frame.getType() == RpcProtocol.TYPE_RESULT) {
+                    future.complete(RpcCodec.readResponse(frame.getPayload()));
+                } else if (frame.getType() == RpcProtocol.TYPE_ERROR) {
+                    future.completeExceptionally(new RuntimeException(RpcCodec.readString(frame.getPayload())));
+                } else {
+                    future.completeExceptionally(new RuntimeException("不支持的帧类型: " + frame.getType()));
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                log.warn("沙箱 RPC 连接异常断开: {}", e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void failPendingRequests() {
+        for (Long requestId : pendingRequests.keySet()) {
+            CompletableFuture<ExecuteCodeResponse> future = pendingRequests.remove(requestId);
+            if (future != null) {
+                future.completeExceptionally(new RuntimeException("沙箱连接已断开"));
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.ppx.ppxojcodesandbox.rpc;
+
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.model.JudgeInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ExecuteCodeRequest / ExecuteCodeResponse 的二进制编码
+ * 每个对象先写一个 varint 位图标记哪些字段不为 null，再按字段顺序写出不为 null 的字段：
+ * 整数为 zigzag varint，字符串为 varint 长度 + UTF-8，列表为 varint 个数 + 元素（元素长度 0 表示 null，其余为长度 + 1）。
+ * 新增字段只能追加在末尾，解码时遇到不认识的字段位直接报错
+ */
+public class RpcCodec {
+
+    private static final int REQUEST_FIELD_COUNT = 13;
+
+    private static final int RESPONSE_FIELD_COUNT = 5;
+
+    private static final int JUDGE_INFO_FIELD_COUNT = 4;
+
+    public static void writeRequest(FrameBuffer out, ExecuteCodeRequest request) {
+        Object[] fields = {request.getInputList(), request.getProblemId(), request.getTestDataVersion(),
+                request.getCode(), request.getLanguage(), request.getTimeLimit(), request.getCpuTimeLimit(),
+                request.getOutputLimit(), request.getMemoryLimit(), request.getCompileProfile(),
+                request.getExpectedOutputList(), request.getCompareMode(), request.getFloatTolerance()};
+        writePresence(out, fields);
+        for (Object field : fields) {
+            writeField(out, field);
+        }
+    }
+
+    public static ExecuteCodeRequest readRequest(ByteBuffer in) throws IOException {
+        try {
+            long presence = readPresence(in, REQUEST_FIELD_COUNT);
+            ExecuteCodeRequest request = new ExecuteCodeRequest();
+            request.setInputList(has(presence, 0) ? readStringList(in) : null);
+            request.setProblemId(has(presence, 1) ? readString(in) : null);
+            request.setTestDataVersion(has(presence, 2) ? readString(in) : null);
+            request.setCode(has(presence, 3) ? readString(in) : null);
+            request.setLanguage(has(presence, 4) ? readString(in) : null);
+            request.setTimeLimit(has(presence, 5) ? readSignedVarLong(in) : null);
+            request.setCpuTimeLimit(has(presence, 6) ? readSignedVarLong(in) : null);
+            request.setOutputLimit(has(presence, 7) ? readSignedVarLong(in) : null);
+            request.setMemoryLimit(has(presence, 8) ? readSignedVarLong(in) : null);
+            request.setCompileProfile(has(presence, 9) ? readString(in) : null);
+            request.setExpectedOutputList(has(presence, 10) ? readStringList(in) : null);
+            request.setCompareMode(has(presence, 11) ? readString(in) : null);
+            request.setFloatTolerance(has(presence, 12) ? in.getDouble() : null);
+            checkFinished(in);
+            return request;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("执行请求不完整");
+        }
+    }
+
+    public static void writeResponse(FrameBuffer out, ExecuteCodeResponse response) {
+        Object[] fields = {response.getOutputList(), response.getMessage(), response.getStatus(),
+                response.getJudgeInfo(), response.getVerdictList()};
+        writePresence(out, fields);
+        for (Object field : fields) {
+            if (field instanceof JudgeInfo) {
+                JudgeInfo judgeInfo = (JudgeInfo) field;
+                Object[] judgeInfoFields = {judgeInfo.getMessage(), judgeInfo.getMemory(), judgeInfo.getTime(), judgeInfo.getCpuTime()};
+                writePresence(out, judgeInfoFields);
+                for (Object judgeInfoField : judgeInfoFields) {
+                    writeField(out, judgeInfoField);
+                }
+            } else {
+                writeField(out, field);
+            }
+        }
+    }
+
+    public static ExecuteCodeResponse readResponse(ByteBuffer in) throws IOException {
+        try {
+            long presence = readPresence(in, RESPONSE_FIELD_COUNT);
+            ExecuteCodeResponse response = new ExecuteCodeResponse();
+            response.setOutputList(has(presence, 0) ? readStringList(in) : null);
+            response.setMessage(has(presence, 1) ? readString(in) : null);
+            response.setStatus(has(presence, 2) ? (int) readSignedVarLong(in) : null);
+            if (has(presence, 3)) {
+                long judgeInfoPresence = readPresence(in, JUDGE_INFO_FIELD_COUNT);
+                JudgeInfo judgeInfo = new JudgeInfo();
+                judgeInfo.setMessage(has(judgeInfoPresence, 0) ? readString(in) : null);
+                judgeInfo.setMemory(has(judgeInfoPresence, 1) ? readSignedVarLong(in) : null);
+                judgeInfo.setTime(has(judgeInfoPresence, 2) ? readSignedVarLong(in) : null);
+                judgeInfo.setCpuTime(has(judgeInfoPresence, 3) ? readSignedVarLong(in) : null);
+                response.setJudgeInfo(judgeInfo);
+            }
+            response.setVerdictList(has(presence, 4) ? readStringList(in) : null);
+            checkFinished(in);
+            return response;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("执行结果不完整");
+        }
+    }
+
+    public static void writeString(FrameBuffer out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public static String readString(ByteBuffer in) throws IOException {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length - 1 > in.remaining()) {
+            throw new IOException("字符串长度超出消息体");
+        }
+        int size = (int) (length - 1);
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), size, StandardCharsets.UTF_8);
+            in.position(in.position() + size);
+        } else {
+            byte[] bytes = new byte[size];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static void writeField(FrameBuffer out, Object field) {
+        if (field == null) {
+            return;
+        }
+        if (field instanceof String) {
+            writeString(out, (String) field);
+        } else if (field instanceof Long || field instanceof Integer) {
+            writeSignedVarLong(out, ((Number) field).longValue());
+        } else if (field instanceof Double) {
+            long bits = Double.doubleToLongBits((Double) field);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (field instanceof List) {
+            List<?> list = (List<?>) field;
+            writeVarLong(out, list.size());
+            for (Object item : list) {
+                writeString(out, (String) item);
+            }
+        } else {
+            throw new IllegalArgumentException("不支持编码的字段类型: " + field.getClass());
+        }
+    }
+
+    private static List<String> readStringList(ByteBuffer in) throws IOException {
+        long size = readVarLong(in);
+        // 每个元素至少占 1 字节
+        if (size < 0 || size > in.remaining()) {
+            throw new IOException("列表长度超出消息体");
+        }
+        List<String> list = new ArrayList<>((int) size);
+        for (long i = 0; i < size; i++) {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    private static void writePresence(FrameBuffer out, Object[] fields) {
+        long presence = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                presence |= 1L << i;
+            }
+        }
+        writeVarLong(out, presence);
+    }
+
+    private static long readPresence(ByteBuffer in, int fieldCount) throws IOException {
+        long presence = readVarLong(in);
+        if ((presence >>> fieldCount) != 0) {
+            throw new IOException("消息包含不支持的字段，请确认客户端和沙箱的协议版本");
+        }
+        return presence;
+    }
+
+    private static boolean has(long presence, int index) {
+        return (presence & (1L << index)) != 0;
+    }
+
+    private static void writeSignedVarLong(FrameBuffer out, long value) {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSignedVarLong(ByteBuffer in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(FrameBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint 格式错误");
+    }
+
+    private static void checkFinished(ByteBuffer in) throws IOException {
+        if (in.hasRemaining()) {
+            throw new IOException("消息体末尾有多余的数据");
+        }
+    }
+
+    /**
+     * 编码用的缓冲区，开头预留帧长度和帧头，写完消息体后补上，整帧一次写出
+     */
+    public static class FrameBuffer extends ByteArrayOutputStream {
+
+        public static final int PREFIX_LENGTH = 4 + RpcProtocol.HEADER_LENGTH;
+
+        public FrameBuffer(int initialSize) {
+            super(Math.max(initialSize, PREFIX_LENGTH));
+            count = PREFIX_LENGTH;
+        }
+
+        @Override
+        public synchronized void reset() {
+            count = PREFIX_LENGTH;
+        }
+
+        /**
+         * 消息体长度
+         */
+        public int payloadLength() {
+            return count - PREFIX_LENGTH;
+        }
+
+        /**
+         * 消息体的视图，不复制数据
+         */
+        public ByteBuffer payload() {
+            return ByteBuffer.wrap(buf, PREFIX_LENGTH, payloadLength()).slice();
+        }
+
+        public void writePayloadTo(OutputStream out) throws IOException {
+            out.write(buf, PREFIX_LENGTH, payloadLength());
+        }
+
+        /**
+         * 补上帧长度和帧头，返回整帧的底层数组（有效长度为 size()）
+         */
+        public byte[] finishFrame(byte type, byte flags, long requestId) {
+            ByteBuffer prefix = ByteBuffer.wrap(buf, 0, PREFIX_LENGTH);
+            prefix.putInt(count - 4).put(type).put(flags).putLong(requestId);
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.ppx.ppxojcodesandbox.rpc;
+
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 服务端的一个 RPC 连接
+ * 读线程只负责读帧，请求的解码、执行和编码都在执行线程中完成；响应完成一个写一个，写出时对连接加锁
+ */
+@Slf4j
+class RpcConnection implements Runnable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RpcServer server;
+
+    private final Socket socket;
+
+    private final DataInputStream in;
+
+    private final OutputStream out;
+
+    // 单个连接同时执行的请求数，用完后读线程阻塞，对客户端形成背压
+    private final Semaphore inFlight;
+
+    private volatile boolean closed = false;
+
+    RpcConnection(RpcServer server, Socket socket, int maxInFlight) throws IOException {
+        this.server = server;
+        this.socket = socket;
+        this.inFlight = new Semaphore(maxInFlight);
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (!handshake()) {
+                return;
+            }
+            RpcFrame frame;
+            while ((frame = RpcFrame.read(in, server.getMaxFrameBytes())) != null) {
+                switch (frame.getType()) {
+                    case RpcProtocol.TYPE_EXECUTE:
+                        dispatch(frame);
+                        break;
+                    case RpcProtocol.TYPE_PING:
+                        send(RpcProtocol.TYPE_PONG, new RpcCodec.FrameBuffer(0), frame.getRequestId(), false);
+                        break;
+                    default:
+                        throw new IOException("不支持的帧类型: " + frame.getType());
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                log.warn("RPC 连接 {} 异常断开: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    void close() {
+        closed = true;
+        server.onClose(this);
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * 校验客户端发来的魔数、版本和共享密钥，全部正确时回复服务端的版本，否则直接关闭连接
+     */
+    private boolean handshake() throws IOException {
+        socket.setSoTimeout(server.getHandshakeTimeoutMs());
+        byte[] preface = new byte[RpcProtocol.MAGIC.length + 1];
+        in.readFully(preface);
+        if (!Arrays.equals(Arrays.copyOf(preface, RpcProtocol.MAGIC.length), RpcProtocol.MAGIC)) {
+            log.warn("RPC 连接 {} 不是沙箱协议，已关闭", socket.getRemoteSocketAddress());
+            return false;
+        }
+        if (preface[RpcProtocol.MAGIC.length] != RpcProtocol.VERSION) {
+            log.warn("RPC 连接 {} 协议版本不一致: {}", socket.getRemoteSocketAddress(), preface[RpcProtocol.MAGIC.length]);
+            return false;
+        }
+        int secretLength = in.readUnsignedShort();
+        if (secretLength > RpcProtocol.MAX_SECRET_LENGTH) {
+            log.warn("RPC 连接 {} 密钥过长，已关闭", socket.getRemoteSocketAddress());
+            return false;
+        }
+        byte[] clientSecret = new byte[secretLength];
+        in.readFully(clientSecret);
+        if (!server.checkSecret(clientSecret)) {
+            log.warn("RPC 连接 {} 密钥错误，已关闭", socket.getRemoteSocketAddress());
+            return false;
+        }
+        synchronized (out) {
+            out.write(RpcProtocol.MAGIC);
+            out.write(RpcProtocol.VERSION);
+            out.flush();
+        }
+        socket.setSoTimeout(0);
+        return true;
+    }
+
+    private void dispatch(RpcFrame frame) throws InterruptedException, IOException {
+        inFlight.acquire();
+        try {
+            server.getExecutor().execute(() -> handle(frame));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            server.onRejected();
+            sendError(frame.getRequestId(), "沙箱繁忙，请稍后再试");
+        }
+    }
+
+    private void handle(RpcFrame frame) {
+        server.onStart();
+        boolean success = false;
+        try {
+            ExecuteCodeRequest executeCodeRequest = RpcCodec.readRequest(frame.getPayload());
+            ExecuteCodeResponse executeCodeResponse = server.execute(executeCodeRequest);
+            RpcCodec.FrameBuffer buffer = new RpcCodec.FrameBuffer(1024);
+            RpcCodec.writeResponse(buffer, executeCodeResponse);
+            send(RpcProtocol.TYPE_RESULT, buffer, frame.getRequestId(), frame.hasFlag(RpcProtocol.FLAG_ACCEPT_LZ4));
+            success = true;
+        } catch (IOException e) {
+            if (!closed) {
+                log.warn("RPC 请求 {} 处理失败: {}", frame.getRequestId(), e.getMessage());
+                sendError(frame.getRequestId(), e.getMessage());
+            }
+        } catch (Exception e) {
+            log.error("RPC 请求 {} 执行失败", frame.getRequestId(), e);
+            sendError(frame.getRequestId(), e.getMessage());
+        } finally {
+            inFlight.release();
+            server.onFinish(success);
+        }
+    }
+
+    private void sendError(long requestId, String message) {
+        RpcCodec.FrameBuffer buffer = new RpcCodec.FrameBuffer(64);
+        RpcCodec.writeString(buffer, message == null ? "沙箱内部错误" : message);
+        try {
+            send(RpcProtocol.TYPE_ERROR, buffer, requestId, false);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void send(byte type, RpcCodec.FrameBuffer buffer, long requestId, boolean acceptLz4) throws IOException {
+        byte flags = 0;
+        if (acceptLz4 && buffer.payloadLength() > server.getCompressMinBytes()) {
+            RpcCodec.FrameBuffer compressed = RpcFrame.compress(buffer);
+            if (compressed != null) {
+                buffer = compressed;
+                flags = RpcProtocol.FLAG_LZ4;
+            }
+        }
+        synchronized (out) {
+            RpcFrame.write(out, buffer, type, flags, requestId);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.ppx.ppxojcodesandbox.rpc;
+
+import com.ppx.ppxojcodesandbox.model.enums.ContentEncodingEnum;
+import com.ppx.ppxojcodesandbox.utils.CompressionUtil;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 收到的一帧，消息体已经解压
+ */
+@Getter
+public class RpcFrame {
+
+    private final byte type;
+
+    private final byte flags;
+
+    private final long requestId;
+
+    private final ByteBuffer payload;
+
+    private RpcFrame(byte type, byte flags, long requestId, ByteBuffer payload) {
+        this.type = type;
+        this.flags = flags;
+        this.requestId = requestId;
+        this.payload = payload;
+    }
+
+    public boolean hasFlag(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * 读取一帧
+     *
+     * @param in            输入
+     * @param maxFrameBytes 消息体上限（解压前后都不能超过）
+     * @return 帧，对方正常关闭连接时返回 null
+     * @throws IOException 读取失败或帧不合法，连接不能再继续使用
+     */
+    public static RpcFrame read(DataInputStream in, int maxFrameBytes) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < RpcProtocol.HEADER_LENGTH || length - RpcProtocol.HEADER_LENGTH > maxFrameBytes) {
+            throw new IOException("帧长度不合法: " + length);
+        }
+        byte type = in.readByte();
+        byte flags = in.readByte();
+        long requestId = in.readLong();
+        byte[] payload = new byte[length - RpcProtocol.HEADER_LENGTH];
+        in.readFully(payload);
+        if ((flags & RpcProtocol.FLAG_LZ4) == 0) {
+            return new RpcFrame(type, flags, requestId, ByteBuffer.wrap(payload));
+        }
+        return new RpcFrame(type, flags, requestId, decompress(payload, maxFrameBytes));
+    }
+
+    /**
+     * 写出一帧，调用方需要保证同一连接上的写出互斥
+     *
+     * @param out       输出
+     * @param frame     已写入消息体的缓冲区
+     * @param type      帧类型
+     * @param flags     帧标志
+     * @param requestId 请求 id
+     * @throws IOException 写出失败
+     */
+    public static void write(OutputStream out, RpcCodec.FrameBuffer frame, byte type, byte flags, long requestId) throws IOException {
+        out.write(frame.finishFrame(type, flags, requestId), 0, frame.size());
+        out.flush();
+    }
+
+    /**
+     * 压缩消息体，压缩后没有变小时返回 null
+     *
+     * @param frame 已写入消息体的缓冲区
+     * @return 压缩后的缓冲区
+     */
+    public static RpcCodec.FrameBuffer compress(RpcCodec.FrameBuffer frame) {
+        RpcCodec.FrameBuffer compressed = new RpcCodec.FrameBuffer(RpcCodec.FrameBuffer.PREFIX_LENGTH + frame.payloadLength() / 2);
+        try (OutputStream out = CompressionUtil.wrapOutput(ContentEncodingEnum.LZ4, compressed)) {
+            frame.writePayloadTo(out);
+        } catch (IOException e) {
+            return null;
+        }
+        return compressed.payloadLength() < frame.payloadLength() ? compressed : null;
+    }
+
+    private static ByteBuffer decompress(byte[] payload, int maxFrameBytes) throws IOException {
+        RpcCodec.FrameBuffer decompressed = new RpcCodec.FrameBuffer(
+                (int) Math.min(RpcCodec.FrameBuffer.PREFIX_LENGTH + payload.length * 3L, maxFrameBytes));
+        try (InputStream in = CompressionUtil.wrapInput(ContentEncodingEnum.LZ4, new ByteArrayInputStream(payload))) {
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if ((long) decompressed.payloadLength() + n > maxFrameBytes) {
+                    throw new IOException("解压后的消息体超过上限");
+                }
+                decompressed.write(chunk, 0, n);
+            }
+        }
+        return decompressed.payload();
+    }
+}
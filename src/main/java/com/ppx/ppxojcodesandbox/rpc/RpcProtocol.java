@@ -0,0 +1,57 @@
+package com.ppx.ppxojcodesandbox.rpc;
+
+/**
+ * 二进制 RPC 协议常量
+ * 连接建立后客户端先发送 4 字节魔数、1 字节版本、2 字节长度 + UTF-8 的共享密钥，
+ * 密钥正确时服务端回复魔数和版本后开始收发帧，否则直接关闭连接。
+ * 每一帧：int 帧长度（不含自身）| byte 类型 | byte 标志 | long 请求 id | 消息体。
+ * 同一连接上可以同时有多个未完成的请求，响应按完成顺序返回，通过请求 id 对应
+ */
+public class RpcProtocol {
+
+    public static final byte[] MAGIC = {'P', 'X', 'R', 'P'};
+
+    public static final byte VERSION = 2;
+
+    /**
+     * 共享密钥的最大字节数
+     */
+    public static final int MAX_SECRET_LENGTH = 1024;
+
+    /**
+     * 帧头长度（类型 + 标志 + 请求 id）
+     */
+    public static final int HEADER_LENGTH = 1 + 1 + 8;
+
+    /**
+     * 执行请求，消息体为编码后的 ExecuteCodeRequest
+     */
+    public static final byte TYPE_EXECUTE = 1;
+
+    /**
+     * 执行结果，消息体为编码后的 ExecuteCodeResponse
+     */
+    public static final byte TYPE_RESULT = 2;
+
+    /**
+     * 执行失败（对应 HTTP 接口的 500），消息体为 UTF-8 错误信息
+     */
+    public static final byte TYPE_ERROR = 3;
+
+    /**
+     * 心跳，服务端用相同的请求 id 回复 PONG
+     */
+    public static final byte TYPE_PING = 4;
+
+    public static final byte TYPE_PONG = 5;
+
+    /**
+     * 消息体经过 LZ4 帧格式压缩
+     */
+    public static final byte FLAG_LZ4 = 0x01;
+
+    /**
+     * 请求方可以接收 LZ4 压缩的响应
+     */
+    public static final byte FLAG_ACCEPT_LZ4 = 0x02;
+}
@@ -0,0 +1,230 @@
+package com.ppx.ppxojcodesandbox.rpc;
+
+import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.CodeSandbox;
+import com.ppx.ppxojcodesandbox.CodeSandboxRegistry;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.model.RpcStats;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 二进制 RPC 服务端
+ * 判题服务通过长连接发送长度前缀的二进制帧（见 {@link RpcProtocol}），省去 JSON 序列化和 Spring MVC 的开销；
+ * 一个连接上可以同时有多个请求在执行，执行走和 /codesandbox/execute 相同的沙箱注册表，并发和排队限制、结果都一致。
+ * 连接上可以执行任意代码，默认关闭，只监听内网地址，握手时必须提供共享密钥；没有配置密钥时不启动
+ */
+@Slf4j
+@Component
+public class RpcServer {
+
+    @Value("${codesandbox.rpc.enabled:false}")
+    private boolean enabled;
+
+    // 监听地址，只应该是回环地址或内网地址
+    @Value("${codesandbox.rpc.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    @Value("${codesandbox.rpc.port:8091}")
+    private int port;
+
+    // 握手时客户端必须提供的共享密钥
+    @Value("${codesandbox.rpc.secret:}")
+    private String secret;
+
+    // 握手的超时时间，避免不发送握手的连接一直占用连接数
+    @Value("${codesandbox.rpc.handshake-timeout-ms:5000}")
+    @Getter
+    private int handshakeTimeoutMs;
+
+    @Value("${codesandbox.rpc.max-connections:64}")
+    private int maxConnections;
+
+    // 单个连接上同时执行的请求上限，超过后暂停读取该连接
+    @Value("${codesandbox.rpc.max-in-flight:64}")
+    private int maxInFlight;
+
+    // 执行线程上限，和 Tomcat 的请求线程作用相同，排队由各语言沙箱自己限制
+    @Value("${codesandbox.rpc.threads:200}")
+    private int threads;
+
+    // 单帧消息体的上限（解压前后）
+    @Value("${codesandbox.rpc.max-frame-bytes:268435456}")
+    @Getter
+    private int maxFrameBytes;
+
+    // 响应消息体超过该字节数且请求方接受时使用 LZ4 压缩
+    @Value("${codesandbox.rpc.compress-min-bytes:2048}")
+    @Getter
+    private int compressMinBytes;
+
+    @Resource
+    private CodeSandboxRegistry codeSandboxRegistry;
+
+    private final Set<RpcConnection> connections = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+
+    private final AtomicLong completedCount = new AtomicLong(0);
+
+    private final AtomicLong errorCount = new AtomicLong(0);
+
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+
+    @Getter
+    private ThreadPoolExecutor executor;
+
+    private ServerSocket serverSocket;
+
+    private volatile boolean closed = false;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (StrUtil.isBlank(secret)) {
+            log.error("没有配置 codesandbox.rpc.secret，二进制 RPC 服务不启动");
+            enabled = false;
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> new Thread(runnable, "sandbox-rpc-" + threadIndex.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+        Thread acceptor = new Thread(this::acceptLoop, "sandbox-rpc-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("二进制 RPC 服务已启动，地址: {}:{}", bindAddress, port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        closed = true;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                log.warn("关闭 RPC 服务失败: {}", e.getMessage());
+            }
+        }
+        for (RpcConnection connection : connections) {
+            connection.close();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void acceptLoop() {
+        AtomicInteger connectionIndex = new AtomicInteger(0);
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    log.error("接受 RPC 连接失败", e);
+                }
+                continue;
+            }
+            if (connections.size() >= maxConnections) {
+                log.warn("RPC 连接数已达上限，拒绝连接: {}", socket.getRemoteSocketAddress());
+                closeQuietly(socket);
+                continue;
+            }
+            try {
+                RpcConnection connection = new RpcConnection(this, socket, maxInFlight);
+                connections.add(connection);
+                Thread reader = new Thread(connection, "sandbox-rpc-conn-" + connectionIndex.incrementAndGet());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                log.warn("初始化 RPC 连接失败: {}", e.getMessage());
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * 执行请求，和 CodeSandboxController#executeCode 相同
+     *
+     * @param executeCodeRequest 执行请求
+     * @return 执行结果
+     */
+    ExecuteCodeResponse execute(ExecuteCodeRequest executeCodeRequest) {
+        CodeSandbox codeSandbox = codeSandboxRegistry.get(executeCodeRequest.getLanguage());
+        return codeSandbox.executeCode(executeCodeRequest);
+    }
+
+    /**
+     * 校验客户端提供的密钥（比较时间和内容无关）
+     */
+    boolean checkSecret(byte[] clientSecret) {
+        return MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), clientSecret);
+    }
+
+    void onStart() {
+        activeCount.incrementAndGet();
+    }
+
+    void onFinish(boolean success) {
+        activeCount.decrementAndGet();
+        if (success) {
+            completedCount.incrementAndGet();
+        } else {
+            errorCount.incrementAndGet();
+        }
+    }
+
+    void onRejected() {
+        rejectedCount.incrementAndGet();
+    }
+
+    void onClose(RpcConnection connection) {
+        connections.remove(connection);
+    }
+
+    public RpcStats getStats() {
+        return RpcStats.builder()
+                .enabled(enabled)
+                .port(enabled ? port : null)
+                .connectionCount(connections.size())
+                .activeCount(activeCount.get())
+                .completedCount(completedCount.get())
+                .errorCount(errorCount.get())
+                .rejectedCount(rejectedCount.get())
+                .build();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.ppx.ppxojcodesandbox.runner;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+import com.ppx.ppxojcodesandbox.utils.ProcessRunOptions;
+import com.ppx.ppxojcodesandbox.workspace.WorkspaceProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 常驻执行器 JVM 池
+ * 每个用例不再单独启动 java 进程，而是交给常驻的执行器 JVM 用新的类加载器执行，
+ * 执行器在执行一定次数后或任何一次超限（超时、内存溢出、遗留线程）后销毁重建。
+ */
+@Slf4j
+@Component
+public class WarmJvmPool {
+
+    @Value("${codesandbox.java.warm-jvm.enabled:false}")
+    private boolean enabled;
+
+    // 最多同时存在的执行器数量
+    @Value("${codesandbox.java.warm-jvm.max-workers:4}")
+    private int maxWorkers;
+
+    // 启动时预热的执行器数量
+    @Value("${codesandbox.java.warm-jvm.min-idle:0}")
+    private int minIdle;
+
+    // 单个执行器最多执行的次数
+    @Value("${codesandbox.java.warm-jvm.max-runs:50}")
+    private int maxRunsPerWorker;
+
+    // 执行器最大堆内存
+    @Value("${codesandbox.java.warm-jvm.max-heap:256m}")
+    private String maxHeap;
+
+    // 执行器工作目录的分类
+    private static final String WORKER_WORKSPACE_NAME = "tmpCode" + File.separator + "warmJvmWorkspace";
+
+    // 等待空闲执行器的超时时间
+    private static final long LEASE_TIMEOUT_MS = 10000L;
+
+    private final LinkedBlockingDeque<WarmJvmWorker> idleWorkers = new LinkedBlockingDeque<>();
+
+    private Semaphore workerPermits;
+
+    private List<String> workerCommand;
+
+    private ScheduledExecutorService watchdog;
+
+    @Resource
+    private WorkspaceProvider workspaceProvider;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        workerPermits = new Semaphore(maxWorkers);
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "warm-jvm-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String runnerClassPath = extractRunnerClasses();
+            // 和单独启动 JVM 时一样限制写出的单个文件大小
+            workerCommand = Arrays.asList(workspaceProvider.wrapCommand(buildWorkerCommand(runnerClassPath).toArray(new String[0])));
+        } catch (IOException e) {
+            log.error("常驻执行器初始化失败，回退到每个用例启动一个 JVM", e);
+            enabled = false;
+            return;
+        }
+        // 后台预热
+        watchdog.execute(() -> {
+            for (int i = 0; i < minIdle; i++) {
+                try {
+                    idleWorkers.offerLast(startWorker());
+                } catch (IOException e) {
+                    log.warn("预热执行器失败: {}", e.getMessage());
+                    return;
+                }
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 在常驻执行器中执行一个用例
+     *
+     * @param userCodeParentPath 用户 class 文件目录
+     * @param inputArgs          程序参数（空白分隔，和命令行方式一致）
+     * @param runOptions         运行限制（超时时间、CPU 时间、输出上限）
+     * @return 执行信息
+     */
+    public ExecuteMessage execute(String userCodeParentPath, String inputArgs, ProcessRunOptions runOptions) {
+        long timeoutMs = runOptions.getTimeoutMs();
+        List<String> args = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(inputArgs);
+        while (tokenizer.hasMoreTokens()) {
+            args.add(tokenizer.nextToken());
+        }
+        File stdoutFile = null;
+        File stderrFile = null;
+        WarmJvmWorker worker = null;
+        boolean recycle = true;
+        try {
+            worker = lease();
+            File userCodeParentDir = new File(userCodeParentPath);
+            stdoutFile = File.createTempFile("stdout", ".txt", userCodeParentDir);
+            stderrFile = File.createTempFile("stderr", ".txt", userCodeParentDir);
+            long startTime = System.currentTimeMillis();
+            long[] result = worker.run(userCodeParentPath, args, null, stdoutFile, stderrFile, timeoutMs,
+                    runOptions.getCpuTimeLimitMs(), runOptions.getOutputLimit(), watchdog);
+            ExecuteMessage executeMessage = new ExecuteMessage();
+            OutputChecker outputChecker = runOptions.getOutputChecker();
+            if (outputChecker != null) {
+                // 有期望输出时直接比较输出文件，不读入内存
+                outputChecker.feedFile(stdoutFile);
+            } else {
+                executeMessage.setMessage(readLines(stdoutFile));
+            }
+            if (result == null) {
+                // 执行器异常退出：被兜底超时杀掉，或用户代码直接结束了 JVM
+                long elapsed = System.currentTimeMillis() - startTime;
+                Integer exitValue = worker.waitForExit(1000L);
+                boolean timeout = elapsed >= timeoutMs;
+                executeMessage.setExitValue(timeout || exitValue == null ? ExitCodeConstant.TIMEOUT_EXIT_CODE : exitValue);
+                executeMessage.setTime(elapsed);
+                if (timeout) {
+                    executeMessage.setErrorMessage("超时");
+                } else if (exitValue == null || exitValue != 0) {
+                    executeMessage.setErrorMessage(readLines(stderrFile));
+                }
+                checkQuota(executeMessage, worker, userCodeParentDir, stdoutFile, stderrFile);
+                return executeMessage;
+            }
+            int exitValue = (int) result[0];
+            recycle = result[2] != 0;
+            executeMessage.setExitValue(exitValue);
+            executeMessage.setTime(result[1]);
+            executeMessage.setMemory(result[3]);
+            executeMessage.setCpuTime(result[4]);
+            if (exitValue == ExitCodeConstant.TIMEOUT_EXIT_CODE) {
+                executeMessage.setErrorMessage("超时");
+            } else if (exitValue == ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE) {
+                executeMessage.setMessage(null);
+                executeMessage.setErrorMessage("输出溢出");
+            } else if (exitValue != 0) {
+                executeMessage.setErrorMessage(readLines(stderrFile));
+            }
+            checkQuota(executeMessage, worker, userCodeParentDir, stdoutFile, stderrFile);
+            return executeMessage;
+        } catch (IOException e) {
+            throw new RuntimeException("常驻执行器执行失败", e);
+        } finally {
+            FileUtil.del(stdoutFile);
+            FileUtil.del(stderrFile);
+            if (worker != null) {
+                release(worker, recycle);
+            }
+        }
+    }
+
+    /**
+     * 写出的文件超过工作目录配额按输出超限处理，输出文件已经读完，先删除再统计，不计入配额
+     * 执行器的工作目录在多次执行间复用，检查后清空，下一次执行看不到这次写出的文件
+     */
+    private void checkQuota(ExecuteMessage executeMessage, WarmJvmWorker worker, File userCodeParentDir,
+                            File stdoutFile, File stderrFile) {
+        FileUtil.del(stdoutFile);
+        FileUtil.del(stderrFile);
+        if (workspaceProvider.isOverQuota(userCodeParentDir) || workspaceProvider.isOverQuota(worker.getWorkDir())) {
+            executeMessage.setExitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE);
+            executeMessage.setMessage(null);
+            executeMessage.setErrorMessage("输出溢出");
+        }
+        FileUtil.clean(worker.getWorkDir());
+    }
+
+    private WarmJvmWorker lease() throws IOException {
+        try {
+            if (!workerPermits.tryAcquire(LEASE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("等待常驻执行器超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待常驻执行器被中断", e);
+        }
+        WarmJvmWorker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+            discard(worker);
+        }
+        try {
+            return startWorker();
+        } catch (IOException e) {
+            workerPermits.release();
+            throw e;
+        }
+    }
+
+    private void release(WarmJvmWorker worker, boolean recycle) {
+        if (recycle || !worker.isAlive() || worker.getRunCount() >= maxRunsPerWorker) {
+            discard(worker);
+        } else {
+            idleWorkers.offerFirst(worker);
+        }
+        workerPermits.release();
+    }
+
+    /**
+     * 启动执行器，每个执行器有单独的工作目录
+     */
+    private WarmJvmWorker startWorker() throws IOException {
+        File workDir = workspaceProvider.createWorkspace(WORKER_WORKSPACE_NAME);
+        try {
+            return WarmJvmWorker.start(workerCommand, workDir);
+        } catch (IOException e) {
+            workspaceProvider.release(workDir);
+            throw e;
+        }
+    }
+
+    private void discard(WarmJvmWorker worker) {
+        worker.destroy();
+        workspaceProvider.release(worker.getWorkDir());
+    }
+
+    /**
+     * 和 javac/java 进程方式的输出处理保持一致：逐行读取后用换行符拼接
+     */
+    private String readLines(File file) {
+        return StrUtil.join("\n", FileUtil.readLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 执行器运行在独立的 JVM 中，把执行器的 class 文件释放到磁盘作为它的 classpath（服务本身可能以 jar 方式运行）
+     */
+    private String extractRunnerClasses() throws IOException {
+        String runnerClassPath = System.getProperty("user.dir") + File.separator + "tmpCode" + File.separator + "warmJvmRunner";
+        List<Class<?>> runnerClasses = new ArrayList<>();
+        runnerClasses.add(WarmJvmRunner.class);
+        runnerClasses.addAll(Arrays.asList(WarmJvmRunner.class.getDeclaredClasses()));
+        for (Class<?> runnerClass : runnerClasses) {
+            String resourceName = runnerClass.getName().replace('.', '/') + ".class";
+            try (InputStream inputStream = WarmJvmPool.class.getClassLoader().getResourceAsStream(resourceName)) {
+                if (inputStream == null) {
+                    throw new IOException("找不到执行器 class 文件: " + resourceName);
+                }
+                FileUtil.writeBytes(IoUtil.readBytes(inputStream), new File(runnerClassPath, resourceName));
+            }
+        }
+        return runnerClassPath;
+    }
+
+    private List<String> buildWorkerCommand(String runnerClassPath) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Xmx" + maxHeap);
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-XX:+UseSerialGC");
+        // JDK 12 之后需要显式允许运行时设置安全管理器（用于拦截 System.exit）
+        if (!System.getProperty("java.specification.version").startsWith("1.")
+                && Integer.parseInt(System.getProperty("java.specification.version")) >= 12) {
+            command.add("-Djava.security.manager=allow");
+        }
+        command.add("-cp");
+        command.add(runnerClassPath);
+        command.add(WarmJvmRunner.class.getName());
+        return command;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        WarmJvmWorker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            discard(worker);
+        }
+    }
+}
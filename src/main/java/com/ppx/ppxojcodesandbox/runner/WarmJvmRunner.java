@@ -0,0 +1,435 @@
+package com.ppx.ppxojcodesandbox.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ReflectPermission;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.security.Permission;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.security.SecurityPermission;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ * 常驻 JVM 中的执行器（运行在子进程中，只能依赖 JDK）
+ * 每个用例用一个新的类加载器加载用户代码，执行完即丢弃；用户程序的标准输入输出被重定向到指令指定的文件。
+ *
+ * 用户代码和执行器在同一个 JVM 中，标准输出等进程级的 fd 用户代码都能写，所以控制协议不走标准输入输出：
+ * 启动后从标准输入读一行 "端口 令牌"，连接宿主在回环地址上监听的端口并回传令牌，之后指令和结果都走这条连接。
+ * 连接只保存在 main 的局部变量中，用户类加载器加载的代码被禁止反射访问私有成员、直接操作 fd、替换安全管理器，拿不到这条连接；
+ * 每条指令带一个随机 nonce，结果必须带回同一个 nonce，宿主收到任何不匹配的内容都会销毁执行器。
+ *
+ * 指令格式（制表符分隔）：RUN nonce classDir stdinFile stdoutFile stderrFile timeoutMs cpuTimeLimitMs outputLimit [args...]
+ * 返回格式（制表符分隔）：DONE nonce exitCode timeMs recycle memoryBytes cpuTimeMs
+ */
+public class WarmJvmRunner {
+
+    public static final String READY = "READY";
+
+    public static final String RUN = "RUN";
+
+    public static final String DONE = "DONE";
+
+    // 表示没有标准输入
+    public static final String NO_INPUT = "-";
+
+    // 超时退出码，和 ExitCodeConstant.TIMEOUT_EXIT_CODE 保持一致（执行器只依赖 JDK，不引用服务端的类）
+    private static final int TIMEOUT_EXIT_CODE = -10001;
+
+    // 输出超限退出码，和 ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE 保持一致
+    private static final int OUTPUT_LIMIT_EXIT_CODE = -10002;
+
+    // 等待用户线程时检查输出和 CPU 时间是否超限的间隔
+    private static final long CHECK_INTERVAL_MS = 20L;
+
+    // 运行前堆占用超过该值时先做一次垃圾回收
+    private static final long GC_BEFORE_RUN_THRESHOLD = 4L * 1024 * 1024;
+
+    // 用户代码主类
+    private static final String MAIN_CLASS_NAME = "Main";
+
+    public static void main(String[] args) throws Exception {
+        BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String hello = stdin.readLine();
+        String[] helloParts = hello == null ? new String[0] : hello.split("\t");
+        if (helloParts.length != 2) {
+            return;
+        }
+        // 控制连接只保存在局部变量中
+        Socket controlSocket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(helloParts[0]));
+        controlSocket.setTcpNoDelay(true);
+        PrintStream controlOut = new PrintStream(new BufferedOutputStream(controlSocket.getOutputStream()), false, "UTF-8");
+        BufferedReader controlIn = new BufferedReader(new InputStreamReader(controlSocket.getInputStream(), StandardCharsets.UTF_8));
+        controlOut.println(helloParts[1]);
+        boolean exitTrapped = installSandbox();
+        controlOut.println(READY + "\t" + (exitTrapped ? 1 : 0));
+        controlOut.flush();
+        String line;
+        while ((line = controlIn.readLine()) != null) {
+            String[] parts = line.split("\t");
+            if (parts.length < 9 || !RUN.equals(parts[0])) {
+                // 宿主只会发送合法的指令，收到其他内容说明连接已经不可信
+                break;
+            }
+            String nonce = parts[1];
+            String[] userArgs = Arrays.copyOfRange(parts, 9, parts.length);
+            long[] result = runOnce(parts[2], parts[3], parts[4], parts[5], Long.parseLong(parts[6]),
+                    Long.parseLong(parts[7]), Long.parseLong(parts[8]), userArgs);
+            controlOut.println(DONE + "\t" + nonce + "\t" + result[0] + "\t" + result[1] + "\t" + result[2]
+                    + "\t" + result[3] + "\t" + result[4]);
+            controlOut.flush();
+        }
+        // 宿主关闭连接后直接结束，遗留的用户线程由宿主销毁进程
+    }
+
+    /**
+     * 执行一次用户程序
+     *
+     * @return [退出码, 耗时毫秒, 是否需要回收该 JVM, 堆内存增量峰值, 用户主线程 CPU 时间毫秒]
+     */
+    private static long[] runOnce(String classDir, String stdinFile, String stdoutFile, String stderrFile,
+                                  long timeoutMs, long cpuTimeLimitMs, long outputLimit, String[] userArgs) {
+        Properties savedProperties = (Properties) System.getProperties().clone();
+        Locale savedLocale = Locale.getDefault();
+        TimeZone savedTimeZone = TimeZone.getDefault();
+        InputStream savedIn = System.in;
+        PrintStream savedOut = System.out;
+        PrintStream savedErr = System.err;
+
+        final int[] exitCode = {0};
+        final boolean[] recycle = {false};
+        long time = 0L;
+        long memory = 0L;
+        long cpuTime = 0L;
+        // 用户主线程的 CPU 时间（纳秒），线程结束前由它自己记录
+        final long[] cpuTimeNanos = {0L};
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        ThreadGroup userGroup = new ThreadGroup("user-code");
+        // 标准输出和错误输出合计的字节数
+        final long[] outputBytes = {0L};
+        try (URLClassLoader classLoader = new UserClassLoader(new URL[]{new File(classDir).toURI().toURL()},
+                ClassLoader.getSystemClassLoader().getParent());
+             InputStream userIn = NO_INPUT.equals(stdinFile) ? new ByteArrayInputStream(new byte[0]) : new FileInputStream(stdinFile);
+             LimitedOutputStream limitedOut = new LimitedOutputStream(new FileOutputStream(stdoutFile), outputBytes, outputLimit);
+             LimitedOutputStream limitedErr = new LimitedOutputStream(new FileOutputStream(stderrFile), outputBytes, outputLimit);
+             PrintStream userOut = new PrintStream(new BufferedOutputStream(limitedOut), false, "UTF-8");
+             PrintStream userErr = new PrintStream(new BufferedOutputStream(limitedErr), false, "UTF-8")) {
+            Method mainMethod = classLoader.loadClass(MAIN_CLASS_NAME).getMethod("main", String[].class);
+            System.setIn(userIn);
+            System.setOut(userOut);
+            System.setErr(userErr);
+            Thread userThread = new Thread(userGroup, () -> {
+                try {
+                    mainMethod.invoke(null, (Object) userArgs);
+                    cpuTimeNanos[0] = threadMXBean.getCurrentThreadCpuTime();
+                } catch (InvocationTargetException e) {
+                    cpuTimeNanos[0] = threadMXBean.getCurrentThreadCpuTime();
+                    Throwable cause = e.getCause();
+                    ExitTrappedException exit = findExit(cause);
+                    if (exit != null) {
+                        exitCode[0] = exit.status;
+                        return;
+                    }
+                    exitCode[0] = 1;
+                    if (cause instanceof OutOfMemoryError) {
+                        recycle[0] = true;
+                    }
+                    userErr.print("Exception in thread \"main\" ");
+                    trimRunnerFrames(cause);
+                    cause.printStackTrace(userErr);
+                } catch (IllegalAccessException e) {
+                    exitCode[0] = 1;
+                    e.printStackTrace(userErr);
+                }
+            }, "main");
+            // 用户代码和执行器共用一个 JVM，内存按本次运行期间堆占用峰值相对开始时的增量统计
+            long heapUsedBefore = resetHeapPeak();
+            long startTime = System.nanoTime();
+            userThread.start();
+            long deadline = startTime + timeoutMs * 1000000L;
+            boolean outputLimitExceeded = false;
+            boolean cpuTimeLimitExceeded = false;
+            while (userThread.isAlive()) {
+                // 输出超限后用户线程可能仍在死循环输出，不再等待
+                if (limitedOut.isExceeded() || limitedErr.isExceeded()) {
+                    outputLimitExceeded = true;
+                    break;
+                }
+                long threadCpuTime = threadMXBean.getThreadCpuTime(userThread.getId());
+                if (threadCpuTime > 0) {
+                    cpuTimeNanos[0] = Math.max(cpuTimeNanos[0], threadCpuTime);
+                }
+                if (cpuTimeLimitMs > 0 && cpuTimeNanos[0] / 1000000L > cpuTimeLimitMs) {
+                    cpuTimeLimitExceeded = true;
+                    break;
+                }
+                long remainingMs = (deadline - System.nanoTime()) / 1000000L;
+                if (remainingMs <= 0) {
+                    break;
+                }
+                userThread.join(Math.min(remainingMs, CHECK_INTERVAL_MS));
+            }
+            time = (System.nanoTime() - startTime) / 1000000L;
+            cpuTime = cpuTimeNanos[0] / 1000000L;
+            memory = Math.max(0L, getHeapPeak() - heapUsedBefore);
+            if (outputLimitExceeded || limitedOut.isExceeded() || limitedErr.isExceeded()) {
+                exitCode[0] = OUTPUT_LIMIT_EXIT_CODE;
+                recycle[0] = true;
+            } else if (cpuTimeLimitExceeded || userThread.isAlive()
+                    || (cpuTimeLimitMs > 0 && cpuTime > cpuTimeLimitMs)) {
+                exitCode[0] = TIMEOUT_EXIT_CODE;
+                recycle[0] = true;
+            }
+            userOut.flush();
+            userErr.flush();
+        } catch (Throwable e) {
+            exitCode[0] = 1;
+            recycle[0] = true;
+        } finally {
+            System.setIn(savedIn);
+            System.setOut(savedOut);
+            System.setErr(savedErr);
+            System.setProperties(savedProperties);
+            Locale.setDefault(savedLocale);
+            TimeZone.setDefault(savedTimeZone);
+        }
+        // 用户代码留下了仍在运行的线程，这个 JVM 已经不干净了
+        if (userGroup.activeCount() > 0) {
+            recycle[0] = true;
+        }
+        return new long[]{exitCode[0], time, recycle[0] ? 1 : 0, memory, cpuTime};
+    }
+
+    /**
+     * 重置各堆内存区的峰值统计，上一次运行留下的垃圾较多时先回收，避免本次运行触发回收后峰值被低估
+     *
+     * @return 当前堆占用（字节）
+     */
+    private static long resetHeapPeak() {
+        if (getHeapUsed() > GC_BEFORE_RUN_THRESHOLD) {
+            System.gc();
+        }
+        long used = 0L;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                memoryPool.resetPeakUsage();
+                used += memoryPool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long getHeapUsed() {
+        long used = 0L;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                used += memoryPool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * 各堆内存区峰值之和（字节）
+     */
+    private static long getHeapPeak() {
+        long peak = 0L;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                peak += memoryPool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * 去掉执行器通过反射调用 main 方法产生的栈帧，和直接用 java 命令运行时的异常信息保持一致
+     */
+    private static void trimRunnerFrames(Throwable throwable) {
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        for (int i = 0; i < stackTrace.length; i++) {
+            String className = stackTrace[i].getClassName();
+            if (className.startsWith("sun.reflect.") || className.startsWith("jdk.internal.reflect.")
+                    || className.equals(Method.class.getName())) {
+                throwable.setStackTrace(Arrays.copyOf(stackTrace, i));
+                return;
+            }
+        }
+    }
+
+    private static ExitTrappedException findExit(Throwable throwable) {
+        while (throwable != null) {
+            if (throwable instanceof ExitTrappedException) {
+                return (ExitTrappedException) throwable;
+            }
+            throwable = throwable.getCause();
+        }
+        return null;
+    }
+
+    /**
+     * 安装安全管理器：拦截用户代码中的 System.exit，转换成退出码，避免整个 JVM 退出；
+     * 同时禁止用户代码做能拿到控制连接或解除限制的操作
+     *
+     * @return 是否安装成功（高版本 JDK 不再支持安全管理器）
+     */
+    private static boolean installSandbox() {
+        try {
+            Policy.setPolicy(new UserCodePolicy());
+            System.setSecurityManager(new ExitTrapSecurityManager());
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * 用户代码不允许的权限：反射访问私有成员、直接读写 fd、加载本地库、替换安全管理器或策略
+     */
+    private static boolean isRestricted(Permission perm) {
+        if (perm instanceof ReflectPermission) {
+            return "suppressAccessChecks".equals(perm.getName());
+        }
+        if (perm instanceof RuntimePermission) {
+            String name = perm.getName();
+            return "writeFileDescriptor".equals(name) || "readFileDescriptor".equals(name)
+                    || "setSecurityManager".equals(name) || name.startsWith("loadLibrary.");
+        }
+        if (perm instanceof SecurityPermission) {
+            return "setPolicy".equals(perm.getName());
+        }
+        return false;
+    }
+
+    /**
+     * 用户类加载器，用来在权限检查时区分用户代码
+     */
+    private static class UserClassLoader extends URLClassLoader {
+
+        UserClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+    }
+
+    /**
+     * 用户类加载器加载的代码没有受限的权限，其余代码不做限制
+     */
+    private static class UserCodePolicy extends Policy {
+
+        @Override
+        public boolean implies(ProtectionDomain domain, Permission permission) {
+            return !(domain.getClassLoader() instanceof UserClassLoader) || !isRestricted(permission);
+        }
+    }
+
+    /**
+     * 拦截 System.exit；受限的权限按调用栈检查（JDK 内部 doPrivileged 的调用不受影响），其余权限不做限制
+     */
+    private static class ExitTrapSecurityManager extends SecurityManager {
+
+        @Override
+        public void checkPermission(Permission perm) {
+            if (isRestricted(perm)) {
+                AccessController.checkPermission(perm);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+            checkPermission(perm);
+        }
+
+        @Override
+        public void checkExit(int status) {
+            throw new ExitTrappedException(status);
+        }
+    }
+
+    /**
+     * 限制写入字节数的输出流，标准输出和错误输出共用一个计数，超过上限的部分直接丢弃
+     */
+    private static class LimitedOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final long[] writtenBytes;
+
+        private final long limit;
+
+        private volatile boolean exceeded = false;
+
+        LimitedOutputStream(OutputStream out, long[] writtenBytes, long limit) {
+            this.out = out;
+            this.writtenBytes = writtenBytes;
+            this.limit = limit;
+        }
+
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long allowed;
+            synchronized (writtenBytes) {
+                allowed = Math.max(0L, Math.min(len, limit - writtenBytes[0]));
+                writtenBytes[0] += len;
+            }
+            if (allowed > 0) {
+                out.write(b, off, (int) allowed);
+            }
+            if (allowed < len) {
+                exceeded = true;
+                throw new IOException("输出超过上限");
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static class ExitTrappedException extends SecurityException {
+
+        private final int status;
+
+        ExitTrappedException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+}
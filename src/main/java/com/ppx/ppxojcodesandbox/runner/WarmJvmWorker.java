@@ -0,0 +1,232 @@
+package com.ppx.ppxojcodesandbox.runner;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import cn.hutool.core.util.HexUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个常驻的执行器 JVM 进程（宿主侧句柄）
+ * 控制协议走回环地址上的一条私有连接，不使用执行器的标准输入输出（用户代码可以写），见 {@link WarmJvmRunner}
+ */
+@Slf4j
+public class WarmJvmWorker {
+
+    // 宿主侧超时兜底，在执行器自身超时控制之外额外等待的时间
+    private static final long WATCHDOG_GRACE_MS = 2000L;
+
+    // 等待执行器连接控制端口并就绪的时间
+    private static final int START_TIMEOUT_MS = 30000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Process process;
+
+    private final Socket controlSocket;
+
+    private final BufferedWriter controlWriter;
+
+    private final BufferedReader controlReader;
+
+    // 执行器的工作目录，用户程序以相对路径写出的文件落在这里
+    @Getter
+    private final File workDir;
+
+    // 已执行的次数
+    @Getter
+    private int runCount = 0;
+
+    private WarmJvmWorker(Process process, Socket controlSocket, BufferedReader controlReader, File workDir) throws IOException {
+        this.process = process;
+        this.controlSocket = controlSocket;
+        this.controlWriter = new BufferedWriter(new OutputStreamWriter(controlSocket.getOutputStream(), StandardCharsets.UTF_8));
+        this.controlReader = controlReader;
+        this.workDir = workDir;
+    }
+
+    /**
+     * 启动执行器 JVM，建立控制连接并等待其就绪
+     *
+     * @param command 启动命令
+     * @param workDir 工作目录
+     * @return 执行器
+     */
+    public static WarmJvmWorker start(List<String> command, File workDir) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(workDir);
+        // 执行器的标准输出和错误输出都不再使用，直接丢弃；用户程序的输出写在单独的文件中
+        File nullFile = new File(File.separatorChar == '/' ? "/dev/null" : "NUL");
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.to(nullFile));
+        processBuilder.redirectError(ProcessBuilder.Redirect.to(nullFile));
+        String token = randomHex(16);
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout(START_TIMEOUT_MS);
+            Process process = processBuilder.start();
+            try {
+                // 端口和令牌通过标准输入传给执行器，不出现在命令行中
+                try (OutputStream stdin = process.getOutputStream()) {
+                    stdin.write((serverSocket.getLocalPort() + "\t" + token + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+                ControlConnection connection = acceptControlConnection(serverSocket, token);
+                connection.socket.setTcpNoDelay(true);
+                WarmJvmWorker worker = new WarmJvmWorker(process, connection.socket, connection.reader, workDir);
+                String readyLine = connection.reader.readLine();
+                if (readyLine == null || !readyLine.startsWith(WarmJvmRunner.READY)) {
+                    worker.destroy();
+                    throw new IOException("执行器 JVM 启动失败");
+                }
+                connection.socket.setSoTimeout(0);
+                return worker;
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 接受执行器的控制连接，第一行必须是启动时下发的令牌，其他连接直接关闭
+     */
+    private static ControlConnection acceptControlConnection(ServerSocket serverSocket, String token) throws IOException {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketTimeoutException e) {
+                break;
+            }
+            socket.setSoTimeout(START_TIMEOUT_MS);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                line = null;
+            }
+            if (token.equals(line)) {
+                return new ControlConnection(socket, reader);
+            }
+            socket.close();
+        }
+        throw new IOException("执行器 JVM 没有连接控制端口");
+    }
+
+    private static String randomHex(int bytes) {
+        byte[] random = new byte[bytes];
+        RANDOM.nextBytes(random);
+        return HexUtil.encodeHexStr(random);
+    }
+
+    /**
+     * 在执行器中执行一次用户程序
+     *
+     * @param classDir   用户 class 文件目录
+     * @param args       程序参数
+     * @param stdinFile  标准输入文件，null 表示没有输入
+     * @param stdoutFile 标准输出文件
+     * @param stderrFile 错误输出文件
+     * @param timeoutMs  超时时间
+     * @param cpuTimeLimitMs CPU 时间上限，小于等于 0 表示不限制
+     * @param outputLimit 输出上限（字节，标准输出和错误输出合计）
+     * @param watchdog   兜底超时的调度器
+     * @return [退出码, 耗时毫秒, 是否需要回收, 堆内存增量峰值, CPU 时间毫秒]，执行器异常退出时返回 null
+     */
+    public long[] run(String classDir, List<String> args, File stdinFile, File stdoutFile, File stderrFile,
+                      long timeoutMs, long cpuTimeLimitMs, long outputLimit, ScheduledExecutorService watchdog) {
+        runCount++;
+        String nonce = randomHex(8);
+        StringBuilder command = new StringBuilder(WarmJvmRunner.RUN)
+                .append('\t').append(nonce)
+                .append('\t').append(classDir)
+                .append('\t').append(stdinFile == null ? WarmJvmRunner.NO_INPUT : stdinFile.getAbsolutePath())
+                .append('\t').append(stdoutFile.getAbsolutePath())
+                .append('\t').append(stderrFile.getAbsolutePath())
+                .append('\t').append(timeoutMs)
+                .append('\t').append(cpuTimeLimitMs)
+                .append('\t').append(outputLimit);
+        for (String arg : args) {
+            command.append('\t').append(arg);
+        }
+        // 执行器卡死（如用户代码耗尽内存导致无法响应）时强制结束进程
+        ScheduledFuture<?> watchdogFuture = watchdog.schedule(this::destroy, timeoutMs + WATCHDOG_GRACE_MS, TimeUnit.MILLISECONDS);
+        try {
+            controlWriter.write(command.toString());
+            controlWriter.newLine();
+            controlWriter.flush();
+            // 每条指令只对应一行结果，结果不匹配时执行器已经不可信，销毁而不是放回池中
+            String line = controlReader.readLine();
+            if (line == null) {
+                return null;
+            }
+            String[] parts = line.split("\t");
+            if (parts.length != 7 || !WarmJvmRunner.DONE.equals(parts[0]) || !nonce.equals(parts[1])) {
+                log.warn("执行器返回了不匹配的结果，销毁执行器");
+                destroy();
+                return null;
+            }
+            return new long[]{Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4]),
+                    Long.parseLong(parts[5]), Long.parseLong(parts[6])};
+        } catch (IOException | NumberFormatException e) {
+            log.warn("执行器通信失败: {}", e.getMessage());
+            destroy();
+            return null;
+        } finally {
+            watchdogFuture.cancel(false);
+        }
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * 等待执行器退出并返回退出码（用户代码调用 System.exit 且无法拦截时会导致执行器退出）
+     */
+    public Integer waitForExit(long timeoutMs) {
+        try {
+            return process.waitFor(timeoutMs, TimeUnit.MILLISECONDS) ? process.exitValue() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    public void destroy() {
+        process.destroyForcibly();
+        try {
+            controlSocket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static class ControlConnection {
+
+        private final Socket socket;
+
+        private final BufferedReader reader;
+
+        private ControlConnection(Socket socket, BufferedReader reader) {
+            this.socket = socket;
+            this.reader = reader;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ppx.ppxojcodesandbox.testdata;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次执行请求的用例来源
+ * 用例输入和期望输出要么直接放在请求中（inputList、expectedOutputList），要么引用 {@link TestDataStore} 中的测试数据，
+ * 引用时输入以缓存或内存映射的缓冲区交给进程，不会读成字符串；请求中同时给了 expectedOutputList 时以请求中的为准。
+ */
+public class TestCaseSource {
+
+    private final ExecuteCodeRequest executeCodeRequest;
+
+    private final TestDataStore testDataStore;
+
+    // 引用的测试数据，用例直接放在请求中时为 null
+    private final TestDataSet testDataSet;
+
+    private TestCaseSource(ExecuteCodeRequest executeCodeRequest, TestDataStore testDataStore, TestDataSet testDataSet) {
+        this.executeCodeRequest = executeCodeRequest;
+        this.testDataStore = testDataStore;
+        this.testDataSet = testDataSet;
+    }
+
+    /**
+     * 解析请求的用例来源并校验
+     *
+     * @param executeCodeRequest 执行请求
+     * @param testDataStore      测试数据存储，不可用时为 null
+     * @return 用例来源
+     */
+    public static TestCaseSource of(ExecuteCodeRequest executeCodeRequest, TestDataStore testDataStore) {
+        String problemId = executeCodeRequest.getProblemId();
+        if (StrUtil.isEmpty(problemId)) {
+            OutputChecker.validate(executeCodeRequest);
+            return new TestCaseSource(executeCodeRequest, testDataStore, null);
+        }
+        if (executeCodeRequest.getInputList() != null && !executeCodeRequest.getInputList().isEmpty()) {
+            throw new IllegalArgumentException("引用测试数据时不能同时提供 inputList");
+        }
+        if (testDataStore == null) {
+            throw new IllegalArgumentException("测试数据存储不可用");
+        }
+        TestDataSet testDataSet = testDataStore.get(problemId, executeCodeRequest.getTestDataVersion());
+        if (testDataSet == null) {
+            throw new IllegalArgumentException("测试数据不存在: " + problemId + "/" + executeCodeRequest.getTestDataVersion());
+        }
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        if (expectedOutputList != null && expectedOutputList.size() != testDataSet.size()) {
+            throw new IllegalArgumentException("期望输出的数量和测试数据的用例数量不一致");
+        }
+        OutputChecker.resolveCompareMode(executeCodeRequest.getCompareMode());
+        return new TestCaseSource(executeCodeRequest, testDataStore, testDataSet);
+    }
+
+    public int size() {
+        return testDataSet != null ? testDataSet.size() : executeCodeRequest.getInputList().size();
+    }
+
+    /**
+     * 请求中的输入
+     *
+     * @param index 用例下标
+     * @return 输入内容，引用测试数据时返回 null（使用 {@link #readInputData}）
+     */
+    public String getInput(int index) {
+        return testDataSet != null ? null : executeCodeRequest.getInputList().get(index);
+    }
+
+    /**
+     * 测试数据中的输入
+     * 不返回测试数据文件本身：文件和期望输出在同一目录，直接交给进程会暴露期望输出的路径
+     *
+     * @param index 用例下标
+     * @return 输入内容（只读），用例直接放在请求中时返回 null
+     */
+    public ByteBuffer readInputData(int index) {
+        if (testDataSet == null) {
+            return null;
+        }
+        try {
+            return testDataStore.readInput(testDataSet, index);
+        } catch (IOException e) {
+            throw new RuntimeException("读取测试数据失败", e);
+        }
+    }
+
+    /**
+     * 是否需要在沙箱内比较输出
+     */
+    public boolean isChecked() {
+        return executeCodeRequest.getExpectedOutputList() != null || (testDataSet != null && testDataSet.hasExpectedOutput());
+    }
+
+    /**
+     * 为某个用例创建输出比较器
+     *
+     * @param index 用例下标
+     * @return 比较器，不需要比较时返回 null
+     */
+    public OutputChecker createChecker(int index) {
+        if (executeCodeRequest.getExpectedOutputList() != null || testDataSet == null || !testDataSet.hasExpectedOutput()) {
+            return OutputChecker.fromRequest(executeCodeRequest, index);
+        }
+        ByteBuffer expected;
+        try {
+            // 期望输出直接在缓存或内存映射的缓冲区上比较
+            expected = testDataStore.readExpectedOutput(testDataSet, index);
+        } catch (IOException e) {
+            throw new RuntimeException("读取期望输出失败", e);
+        }
+        return new OutputChecker(expected, OutputChecker.resolveCompareMode(executeCodeRequest.getCompareMode()),
+                OutputChecker.resolveTolerance(executeCodeRequest.getFloatTolerance()));
+    }
+
+    /**
+     * 把引用的测试数据读入请求，供只能通过字符串传递输入的沙箱使用（如以程序参数传入输入的 Java 沙箱）
+     *
+     * @return 用例都放在请求中的执行请求，用例本来就在请求中时返回原请求
+     */
+    public ExecuteCodeRequest toInlineRequest() {
+        if (testDataSet == null) {
+            return executeCodeRequest;
+        }
+        List<String> inputList = new ArrayList<>(testDataSet.size());
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        boolean inlineExpectedOutput = expectedOutputList == null && testDataSet.hasExpectedOutput();
+        if (inlineExpectedOutput) {
+            expectedOutputList = new ArrayList<>(testDataSet.size());
+        }
+        try {
+            for (int i = 0; i < testDataSet.size(); i++) {
+                inputList.add(StandardCharsets.UTF_8.decode(testDataStore.readInput(testDataSet, i)).toString());
+                if (inlineExpectedOutput) {
+                    expectedOutputList.add(StandardCharsets.UTF_8.decode(testDataStore.readExpectedOutput(testDataSet, i)).toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取测试数据失败", e);
+        }
+        ExecuteCodeRequest inlineRequest = new ExecuteCodeRequest();
+        BeanUtil.copyProperties(executeCodeRequest, inlineRequest);
+        inlineRequest.setInputList(inputList);
+        inlineRequest.setExpectedOutputList(expectedOutputList);
+        inlineRequest.setProblemId(null);
+        inlineRequest.setTestDataVersion(null);
+        return inlineRequest;
+    }
+}
@@ -0,0 +1,236 @@
+package com.ppx.ppxojcodesandbox.testdata;
+
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试数据内存缓存
+ * 按 (problemId, version) 缓存整套测试数据的输入和期望输出，比赛期间被频繁提交的少数题目直接从内存读取。
+ * 一套测试数据放在一块堆外内存中，文件通过 FileChannel 直接读入，不占用堆内存；按字节数做 LRU 淘汰，
+ * 同一套测试数据同时未命中时只加载一次。超过单条上限的测试数据不缓存，由调用方直接从文件读取。
+ */
+@Slf4j
+@Component
+public class TestDataCache {
+
+    @Value("${codesandbox.test-data.cache.enabled:true}")
+    private boolean enabled;
+
+    // 缓存总字节上限（堆外内存，需要小于 -XX:MaxDirectMemorySize）
+    @Value("${codesandbox.test-data.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    // 单套测试数据的字节上限
+    @Value("${codesandbox.test-data.cache.max-entry-bytes:67108864}")
+    private long maxEntryBytes;
+
+    // problemId/version -> 缓存的测试数据，accessOrder = true，队首为最久未使用
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    // 正在加载的测试数据，避免同时未命中时重复读取
+    private final Map<String, CompletableFuture<Entry>> loadingEntries = new ConcurrentHashMap<>();
+
+    private long currentBytes = 0L;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    private final AtomicLong evictionCount = new AtomicLong(0);
+
+    /**
+     * 获取测试数据的缓存，未命中时加载
+     *
+     * @param testDataSet 测试数据
+     * @return 缓存条目，缓存关闭、测试数据太大或读取失败时返回 null
+     */
+    public Entry get(TestDataSet testDataSet) {
+        if (!enabled || testDataSet.getByteSize() > maxEntryBytes || testDataSet.getByteSize() > maxBytes) {
+            return null;
+        }
+        String key = key(testDataSet.getProblemId(), testDataSet.getVersion());
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            // 同一版本被删除后重新上传时 TestDataSet 会变化，旧的缓存不能再用
+            if (entry != null && entry.testDataSet == testDataSet) {
+                hitCount.incrementAndGet();
+                return entry;
+            }
+        }
+        missCount.incrementAndGet();
+        CompletableFuture<Entry> loading = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = loadingEntries.putIfAbsent(key, loading);
+        if (existing != null) {
+            Entry entry = existing.join();
+            return entry != null && entry.testDataSet == testDataSet ? entry : null;
+        }
+        Entry entry = null;
+        try {
+            entry = load(testDataSet);
+            put(key, entry);
+        } catch (IOException e) {
+            log.warn("加载测试数据失败, problemId = {}, version = {}: {}", testDataSet.getProblemId(), testDataSet.getVersion(), e.getMessage());
+        } finally {
+            loading.complete(entry);
+            loadingEntries.remove(key, loading);
+        }
+        return entry;
+    }
+
+    /**
+     * 使某个版本的缓存失效
+     *
+     * @param problemId 题目 id
+     * @param version   版本
+     */
+    public synchronized void invalidate(String problemId, String version) {
+        Entry entry = entries.remove(key(problemId, version));
+        if (entry != null) {
+            currentBytes -= entry.byteSize;
+        }
+    }
+
+    /**
+     * 使某个题目所有版本的缓存失效，上传新版本后旧版本通常不再使用
+     *
+     * @param problemId 题目 id
+     */
+    public synchronized void invalidateProblem(String problemId) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.testDataSet.getProblemId().equals(problemId)) {
+                currentBytes -= entry.byteSize;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return CacheStats.builder()
+                .hitCount(hitCount.get())
+                .missCount(missCount.get())
+                .evictionCount(evictionCount.get())
+                .entryCount(entries.size())
+                .byteSize(currentBytes)
+                .maxByteSize(maxBytes)
+                .build();
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            currentBytes -= old.byteSize;
+        }
+        currentBytes += entry.byteSize;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            // 堆外内存在正在使用它的比较器结束后由 GC 回收
+            currentBytes -= eldest.getValue().byteSize;
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 把整套测试数据读入一块堆外内存，每个文件对应其中的一段
+     */
+    private static Entry load(TestDataSet testDataSet) throws IOException {
+        int caseCount = testDataSet.size();
+        long totalBytes = 0L;
+        for (int i = 0; i < caseCount; i++) {
+            totalBytes += testDataSet.getInputFiles().get(i).length();
+            if (testDataSet.hasExpectedOutput()) {
+                totalBytes += testDataSet.getOutputFiles().get(i).length();
+            }
+        }
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IOException("测试数据太大");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) totalBytes);
+        ByteBuffer[] inputs = new ByteBuffer[caseCount];
+        ByteBuffer[] outputs = testDataSet.hasExpectedOutput() ? new ByteBuffer[caseCount] : null;
+        for (int i = 0; i < caseCount; i++) {
+            inputs[i] = readInto(buffer, testDataSet.getInputFiles().get(i));
+            if (outputs != null) {
+                outputs[i] = readInto(buffer, testDataSet.getOutputFiles().get(i));
+            }
+        }
+        return new Entry(testDataSet, inputs, outputs, totalBytes);
+    }
+
+    /**
+     * 把文件读到缓冲区的当前位置，返回对应的只读片段
+     */
+    private static ByteBuffer readInto(ByteBuffer buffer, File file) throws IOException {
+        int start = buffer.position();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > buffer.remaining()) {
+                throw new IOException("测试数据文件在加载过程中被修改: " + file.getName());
+            }
+            buffer.limit(start + (int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("测试数据文件在加载过程中被修改: " + file.getName());
+                }
+            }
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        ByteBuffer segment = slice.slice().asReadOnlyBuffer();
+        buffer.limit(buffer.capacity());
+        return segment;
+    }
+
+    private static String key(String problemId, String version) {
+        return problemId + "/" + version;
+    }
+
+    /**
+     * 缓存的一套测试数据，返回的缓冲区互相独立，调用方可以自由修改位置
+     */
+    public static class Entry {
+
+        private final TestDataSet testDataSet;
+
+        private final ByteBuffer[] inputs;
+
+        private final ByteBuffer[] outputs;
+
+        private final long byteSize;
+
+        private Entry(TestDataSet testDataSet, ByteBuffer[] inputs, ByteBuffer[] outputs, long byteSize) {
+            this.testDataSet = testDataSet;
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.byteSize = byteSize;
+        }
+
+        public ByteBuffer getInput(int index) {
+            return inputs[index].duplicate();
+        }
+
+        public ByteBuffer getExpectedOutput(int index) {
+            return outputs == null ? null : outputs[index].duplicate();
+        }
+    }
+}
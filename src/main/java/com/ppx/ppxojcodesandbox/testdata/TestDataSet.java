@@ -0,0 +1,47 @@
+package com.ppx.ppxojcodesandbox.testdata;
+
+import com.ppx.ppxojcodesandbox.model.TestDataInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 某个题目某个版本的测试数据，文件发布后不再修改
+ */
+@Data
+@AllArgsConstructor
+public class TestDataSet {
+
+    private String problemId;
+
+    private String version;
+
+    // 按用例顺序排列的输入文件
+    private List<File> inputFiles;
+
+    // 按用例顺序排列的期望输出文件，上传时没有期望输出则为 null
+    private List<File> outputFiles;
+
+    // 所有文件的总字节数
+    private long byteSize;
+
+    public int size() {
+        return inputFiles.size();
+    }
+
+    public boolean hasExpectedOutput() {
+        return outputFiles != null;
+    }
+
+    public TestDataInfo toInfo() {
+        return TestDataInfo.builder()
+                .problemId(problemId)
+                .version(version)
+                .caseCount(size())
+                .hasExpectedOutput(hasExpectedOutput())
+                .byteSize(byteSize)
+                .build();
+    }
+}
@@ -0,0 +1,252 @@
+package com.ppx.ppxojcodesandbox.testdata;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 题目测试数据存储
+ * 测试数据按题目和版本上传一次，执行请求通过 problemId + testDataVersion 引用，不必每次在请求体中携带全部输入。
+ * 版本发布后不可修改，更新测试数据需要上传新版本；上传先写到临时目录，完成后整体改名发布，不会读到上传到一半的数据。
+ * 读取用例内容时优先使用 {@link TestDataCache}，不在缓存中时内存映射文件。
+ *
+ * 目录布局：root/problemId/version/1.in、1.out、2.in ...（用例从 1 开始编号，没有期望输出时不存在 .out 文件）
+ */
+@Slf4j
+@Component
+public class TestDataStore {
+
+    private static final String INPUT_SUFFIX = ".in";
+
+    private static final String OUTPUT_SUFFIX = ".out";
+
+    // 临时目录前缀，启动时清理
+    private static final String TEMP_DIR_PREFIX = ".tmp-";
+
+    // 题目 id 和版本只允许这些字符，避免路径穿越
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9_.-]{0,63}");
+
+    // 测试数据目录，为空时使用 user.dir/testData
+    @Value("${codesandbox.test-data.dir:}")
+    private String dataDir;
+
+    private File dataRoot;
+
+    @Resource
+    private TestDataCache testDataCache;
+
+    // problemId/version -> 已加载的测试数据
+    private final Map<String, TestDataSet> loadedSets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        dataRoot = StrUtil.isBlank(dataDir) ? new File(System.getProperty("user.dir"), "testData") : new File(dataDir);
+        FileUtil.mkdir(dataRoot);
+        File[] tempDirs = dataRoot.listFiles(file -> file.getName().startsWith(TEMP_DIR_PREFIX));
+        for (File tempDir : tempDirs == null ? new File[0] : tempDirs) {
+            FileUtil.del(tempDir);
+        }
+    }
+
+    /**
+     * 上传一个版本的测试数据
+     *
+     * @param problemId   题目 id
+     * @param version     版本
+     * @param inputFiles  按用例顺序排列的输入文件
+     * @param outputFiles 按用例顺序排列的期望输出文件，可以为空
+     * @return 测试数据
+     * @throws IOException 写入失败
+     */
+    public TestDataSet save(String problemId, String version, List<MultipartFile> inputFiles, List<MultipartFile> outputFiles) throws IOException {
+        checkId(problemId, version);
+        if (inputFiles == null || inputFiles.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个输入文件");
+        }
+        boolean hasOutput = outputFiles != null && !outputFiles.isEmpty();
+        if (hasOutput && outputFiles.size() != inputFiles.size()) {
+            throw new IllegalArgumentException("期望输出文件的数量和输入文件的数量不一致");
+        }
+        File versionDir = versionDir(problemId, version);
+        if (versionDir.exists()) {
+            throw new IllegalStateException("测试数据版本已存在: " + problemId + "/" + version);
+        }
+        File tempDir = new File(dataRoot, TEMP_DIR_PREFIX + UUID.randomUUID());
+        try {
+            FileUtil.mkdir(tempDir);
+            for (int i = 0; i < inputFiles.size(); i++) {
+                // 上传的临时文件和目标在同一文件系统时直接移动，不复制
+                inputFiles.get(i).transferTo(new File(tempDir, (i + 1) + INPUT_SUFFIX));
+                if (hasOutput) {
+                    outputFiles.get(i).transferTo(new File(tempDir, (i + 1) + OUTPUT_SUFFIX));
+                }
+            }
+            FileUtil.mkdir(versionDir.getParentFile());
+            try {
+                Files.move(tempDir.toPath(), versionDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                throw new IllegalStateException("测试数据版本已存在: " + problemId + "/" + version);
+            }
+        } finally {
+            if (tempDir.exists()) {
+                FileUtil.del(tempDir);
+            }
+        }
+        // 新版本发布后旧版本通常不再使用，释放它们占用的缓存
+        testDataCache.invalidateProblem(problemId);
+        TestDataSet testDataSet = load(problemId, version);
+        log.info("测试数据已上传, problemId = {}, version = {}, 用例数 = {}", problemId, version, testDataSet.size());
+        return testDataSet;
+    }
+
+    /**
+     * 获取测试数据
+     *
+     * @param problemId 题目 id
+     * @param version   版本
+     * @return 测试数据，不存在时返回 null
+     */
+    public TestDataSet get(String problemId, String version) {
+        checkId(problemId, version);
+        TestDataSet testDataSet = loadedSets.get(key(problemId, version));
+        if (testDataSet != null) {
+            return testDataSet;
+        }
+        return versionDir(problemId, version).isDirectory() ? load(problemId, version) : null;
+    }
+
+    /**
+     * 删除测试数据，正在使用这些文件的用例不受影响
+     *
+     * @param problemId 题目 id
+     * @param version   版本
+     * @return 是否存在并已删除
+     */
+    public boolean delete(String problemId, String version) {
+        checkId(problemId, version);
+        loadedSets.remove(key(problemId, version));
+        File versionDir = versionDir(problemId, version);
+        if (!versionDir.isDirectory()) {
+            return false;
+        }
+        // 先改名再删除，删除过程中不会被当作有效的测试数据读取
+        File tempDir = new File(dataRoot, TEMP_DIR_PREFIX + UUID.randomUUID());
+        if (!versionDir.renameTo(tempDir)) {
+            return false;
+        }
+        // 改名前并发的 get 可能又加载了一次
+        loadedSets.remove(key(problemId, version));
+        testDataCache.invalidate(problemId, version);
+        FileUtil.del(tempDir);
+        log.info("测试数据已删除, problemId = {}, version = {}", problemId, version);
+        return true;
+    }
+
+    /**
+     * 读取用例的输入
+     *
+     * @param testDataSet 测试数据
+     * @param index       用例下标
+     * @return 输入内容，只读
+     * @throws IOException 读取失败
+     */
+    public ByteBuffer readInput(TestDataSet testDataSet, int index) throws IOException {
+        TestDataCache.Entry entry = testDataCache.get(testDataSet);
+        return entry != null ? entry.getInput(index) : map(testDataSet.getInputFiles().get(index));
+    }
+
+    /**
+     * 读取用例的期望输出
+     *
+     * @param testDataSet 测试数据
+     * @param index       用例下标
+     * @return 期望输出，只读，测试数据没有期望输出时返回 null
+     * @throws IOException 读取失败
+     */
+    public ByteBuffer readExpectedOutput(TestDataSet testDataSet, int index) throws IOException {
+        if (!testDataSet.hasExpectedOutput()) {
+            return null;
+        }
+        TestDataCache.Entry entry = testDataCache.get(testDataSet);
+        return entry != null ? entry.getExpectedOutput(index) : map(testDataSet.getOutputFiles().get(index));
+    }
+
+    /**
+     * 内存映射文件，映射在缓冲区被回收前一直有效，文件被删除也不影响
+     */
+    private static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * 扫描版本目录，按编号收集用例文件
+     *
+     * @return 测试数据，目录中没有用例时返回 null
+     */
+    private TestDataSet load(String problemId, String version) {
+        File versionDir = versionDir(problemId, version);
+        List<File> inputFiles = new ArrayList<>();
+        List<File> outputFiles = new ArrayList<>();
+        long byteSize = 0L;
+        for (int i = 1; ; i++) {
+            File inputFile = new File(versionDir, i + INPUT_SUFFIX);
+            if (!inputFile.isFile()) {
+                break;
+            }
+            inputFiles.add(inputFile);
+            byteSize += inputFile.length();
+            File outputFile = new File(versionDir, i + OUTPUT_SUFFIX);
+            if (outputFile.isFile()) {
+                outputFiles.add(outputFile);
+                byteSize += outputFile.length();
+            }
+        }
+        if (inputFiles.isEmpty()) {
+            // 目录已被删除
+            return null;
+        }
+        TestDataSet testDataSet = new TestDataSet(problemId, version, inputFiles,
+                outputFiles.size() == inputFiles.size() ? outputFiles : null, byteSize);
+        loadedSets.put(key(problemId, version), testDataSet);
+        return testDataSet;
+    }
+
+    private File versionDir(String problemId, String version) {
+        return new File(new File(dataRoot, problemId), version);
+    }
+
+    private static String key(String problemId, String version) {
+        return problemId + "/" + version;
+    }
+
+    private static void checkId(String problemId, String version) {
+        if (problemId == null || !ID_PATTERN.matcher(problemId).matches()) {
+            throw new IllegalArgumentException("题目 id 不合法: " + problemId);
+        }
+        if (version == null || !ID_PATTERN.matcher(version).matches()) {
+            throw new IllegalArgumentException("测试数据版本不合法: " + version);
+        }
+    }
+}
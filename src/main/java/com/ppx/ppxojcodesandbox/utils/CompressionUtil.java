@@ -0,0 +1,187 @@
+package com.ppx.ppxojcodesandbox.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.model.enums.ContentEncodingEnum;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 压缩工具类，解压和压缩都是流式的，不会把整个内容读到内存
+ */
+public class CompressionUtil {
+
+    private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 包装解压输入流
+     *
+     * @param encoding 压缩方式
+     * @param in       压缩后的输入
+     * @return 解压后的输入
+     * @throws IOException 压缩数据的头部不合法
+     */
+    public static InputStream wrapInput(ContentEncodingEnum encoding, InputStream in) throws IOException {
+        switch (encoding) {
+            case LZ4:
+                return new LZ4FrameInputStream(in);
+            case GZIP:
+                return new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+            default:
+                throw new IllegalArgumentException("不支持的压缩方式: " + encoding);
+        }
+    }
+
+    /**
+     * 包装解压输入流，并限制解压后的总字节数，防止很小的压缩数据解压出巨大的内容
+     *
+     * @param encoding 压缩方式
+     * @param in       压缩后的输入
+     * @param maxBytes 解压后的字节数上限
+     * @return 解压后的输入，读到的字节数超过上限时抛出 {@link SizeLimitExceededException}
+     * @throws IOException 压缩数据的头部不合法
+     */
+    public static InputStream wrapInput(ContentEncodingEnum encoding, InputStream in, long maxBytes) throws IOException {
+        return new LimitedInputStream(wrapInput(encoding, in), maxBytes);
+    }
+
+    /**
+     * 包装压缩输出流，关闭返回的流时写入结尾并关闭 out
+     *
+     * @param encoding 压缩方式
+     * @param out      压缩后的输出
+     * @return 压缩输出流
+     * @throws IOException 写入头部失败
+     */
+    public static OutputStream wrapOutput(ContentEncodingEnum encoding, OutputStream out) throws IOException {
+        switch (encoding) {
+            case LZ4:
+                // 默认的 4MB 块对单个响应来说太大，每个流都要分配两块
+                return new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+            case GZIP:
+                return new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+            default:
+                throw new IllegalArgumentException("不支持的压缩方式: " + encoding);
+        }
+    }
+
+    /**
+     * 根据 Accept-Encoding 选择响应的压缩方式，q 值高的优先，q 值相同时按 {@link ContentEncodingEnum} 的顺序
+     *
+     * @param acceptEncoding Accept-Encoding 请求头，可以为空
+     * @return 压缩方式，不接受任何支持的压缩方式时返回 null
+     */
+    public static ContentEncodingEnum negotiate(String acceptEncoding) {
+        if (StrUtil.isBlank(acceptEncoding)) {
+            return null;
+        }
+        ContentEncodingEnum[] encodings = ContentEncodingEnum.values();
+        double[] qualities = new double[encodings.length];
+        boolean[] listed = new boolean[encodings.length];
+        double wildcardQuality = 0;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.trim().split(";");
+            String coding = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if ("*".equals(coding)) {
+                wildcardQuality = quality;
+                continue;
+            }
+            ContentEncodingEnum encoding = ContentEncodingEnum.getEnumByValue(coding);
+            if (encoding != null) {
+                qualities[encoding.ordinal()] = quality;
+                listed[encoding.ordinal()] = true;
+            }
+        }
+        ContentEncodingEnum best = null;
+        double bestQuality = 0;
+        for (ContentEncodingEnum encoding : encodings) {
+            // 只通过 * 接受时选 gzip，不能假设对方能解 lz4
+            double quality = listed[encoding.ordinal()] ? qualities[encoding.ordinal()]
+                    : (encoding == ContentEncodingEnum.GZIP ? wildcardQuality : 0);
+            if (quality > bestQuality) {
+                best = encoding;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 解压后的内容超过上限
+     */
+    public static class SizeLimitExceededException extends IOException {
+
+        public SizeLimitExceededException(long maxBytes) {
+            super("解压后的内容超过 " + maxBytes + " 字节");
+        }
+    }
+
+    /**
+     * 统计读到的字节数，超过上限时抛出异常
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+
+        private long count = 0;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) throws SizeLimitExceededException {
+            count += n;
+            if (count > maxBytes) {
+                throw new SizeLimitExceededException(maxBytes);
+            }
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
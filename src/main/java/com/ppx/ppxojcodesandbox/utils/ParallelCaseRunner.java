@@ -0,0 +1,164 @@
+package com.ppx.ppxojcodesandbox.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * 测试用例并行执行工具类
+ * 所有提交共用一个按 CPU 核数设置大小的线程池，单次提交的并行度另有上限；
+ * 结果按输入顺序返回，某个用例失败时取消排在它后面的用例，返回结果和回调都和顺序执行遇错即停完全一致。
+ */
+public class ParallelCaseRunner {
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    // 单次提交默认的并行度上限
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Math.min(4, CPU_COUNT / 2));
+
+    private static final ThreadPoolExecutor CASE_EXECUTOR;
+
+    static {
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        // 队列满时由提交线程自己执行，退化为顺序执行而不是拒绝
+        CASE_EXECUTOR = new ThreadPoolExecutor(CPU_COUNT, CPU_COUNT, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(CPU_COUNT * 16), runnable -> {
+            Thread thread = new Thread(runnable, "case-runner-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        CASE_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 执行所有用例
+     *
+     * @param caseCount   用例数量
+     * @param parallelism 本次提交的并行度，小于等于 1 时顺序执行
+     * @param caseTask    执行单个用例（参数为用例下标）
+     * @param isFailure   判断用例是否失败
+     * @return 按输入顺序排列的结果，有失败时截止到第一个失败的用例（包含）
+     */
+    public static <T> List<T> runAll(int caseCount, int parallelism, IntFunction<T> caseTask, Predicate<T> isFailure) {
+        return runAll(caseCount, parallelism, caseTask, isFailure, (result, index) -> {
+        });
+    }
+
+    /**
+     * 执行所有用例，按输入顺序回调：用例完成且排在它前面的用例都已回调时立即回调，先完成的后面的用例暂存到轮到它为止，
+     * 回调都在调用线程中执行
+     *
+     * @param caseCount   用例数量
+     * @param parallelism 本次提交的并行度，小于等于 1 时顺序执行
+     * @param caseTask    执行单个用例（参数为用例下标）
+     * @param isFailure   判断用例是否失败
+     * @param onResult    用例完成回调（参数为结果和用例下标），排在第一个失败用例之后的结果不会回调
+     * @return 按输入顺序排列的结果，有失败时截止到第一个失败的用例（包含）
+     */
+    public static <T> List<T> runAll(int caseCount, int parallelism, IntFunction<T> caseTask, Predicate<T> isFailure,
+                                      ObjIntConsumer<T> onResult) {
+        if (parallelism <= 1 || caseCount <= 1) {
+            List<T> resultList = new ArrayList<>();
+            for (int i = 0; i < caseCount; i++) {
+                T result = caseTask.apply(i);
+                resultList.add(result);
+                onResult.accept(result, i);
+                if (isFailure.test(result)) {
+                    break;
+                }
+            }
+            return resultList;
+        }
+
+        ExecutorCompletionService<T> completionService = new ExecutorCompletionService<>(CASE_EXECUTOR);
+        List<Future<T>> futureList = new ArrayList<>(caseCount);
+        Object[] results = new Object[caseCount];
+        boolean[] completed = new boolean[caseCount];
+        // 下一个要回调的用例下标
+        int nextToDeliver = 0;
+        // 第一个失败用例的下标
+        int firstFailure = caseCount;
+        int inFlight = 0;
+        RuntimeException firstError = null;
+        int firstErrorIndex = caseCount;
+        try {
+            while (futureList.size() < Math.min(parallelism, caseCount)) {
+                submit(completionService, futureList, caseTask);
+                inFlight++;
+            }
+            while (inFlight > 0) {
+                Future<T> future = completionService.take();
+                inFlight--;
+                int index = futureList.indexOf(future);
+                try {
+                    T result = future.get();
+                    results[index] = result;
+                    completed[index] = true;
+                    if (isFailure.test(result) && index < firstFailure) {
+                        firstFailure = index;
+                    }
+                    // 按顺序回调已经完成的用例，不超过第一个失败的用例
+                    while (nextToDeliver < caseCount && nextToDeliver <= firstFailure && completed[nextToDeliver]) {
+                        @SuppressWarnings("unchecked")
+                        T deliverResult = (T) results[nextToDeliver];
+                        onResult.accept(deliverResult, nextToDeliver);
+                        nextToDeliver++;
+                    }
+                } catch (CancellationException e) {
+                    continue;
+                } catch (ExecutionException e) {
+                    if (index < firstErrorIndex) {
+                        firstErrorIndex = index;
+                        firstError = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                    }
+                    if (index < firstFailure) {
+                        firstFailure = index;
+                    }
+                }
+                // 已经有用例失败：取消排在它后面仍在执行的用例
+                for (int i = firstFailure + 1; i < futureList.size(); i++) {
+                    futureList.get(i).cancel(true);
+                }
+                if (futureList.size() < firstFailure && futureList.size() < caseCount) {
+                    submit(completionService, futureList, caseTask);
+                    inFlight++;
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<T> future : futureList) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("用例执行被中断", e);
+        }
+        if (firstError != null && firstErrorIndex <= firstFailure) {
+            throw firstError;
+        }
+        int resultCount = Math.min(firstFailure + 1, caseCount);
+        List<T> resultList = new ArrayList<>(resultCount);
+        for (Object result : Arrays.copyOf(results, resultCount)) {
+            @SuppressWarnings("unchecked")
+            T typedResult = (T) result;
+            resultList.add(typedResult);
+        }
+        return resultList;
+    }
+
+    private static <T> void submit(ExecutorCompletionService<T> completionService, List<Future<T>> futureList,
+                                   IntFunction<T> caseTask) {
+        int index = futureList.size();
+        futureList.add(completionService.submit(() -> caseTask.apply(index)));
+    }
+}
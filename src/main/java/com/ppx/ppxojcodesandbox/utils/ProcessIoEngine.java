@@ -0,0 +1,265 @@
+package com.ppx.ppxojcodesandbox.utils;
+
+import cn.hutool.core.io.FileUtil;
+import com.ppx.ppxojcodesandbox.cgroup.RunCgroup;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.monitor.ProcessMonitor;
+import com.ppx.ppxojcodesandbox.monitor.ProcessUsageWatch;
+import com.ppx.ppxojcodesandbox.monitor.RusageWrapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程 IO 引擎
+ * 进程运行期间并发读取标准输出和错误输出、在单独的线程写入标准输入，
+ * 避免输出超过管道缓冲区（约 64KB）后进程阻塞、被误判为超时；
+ * 读取线程复用读缓冲区，按字节块读取，不再逐行拼接字符串；
+ * 输出合计超过上限时立即结束进程，单次执行占用的内存不会超过输出上限；
+ * 有输出比较器时标准输出边读边比较、不再保存，确定答案错误后立即结束进程。
+ */
+@Slf4j
+public class ProcessIoEngine {
+
+    // 读缓冲区大小
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // 进程结束后等待输出读完的时间（子进程可能继承了管道导致读不到结尾）
+    private static final long DRAIN_GRACE_MS = 1000L;
+
+    private static final ExecutorService IO_EXECUTOR;
+
+    // 每个 IO 线程复用自己的读缓冲区
+    private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[READ_BUFFER_SIZE]);
+
+    static {
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        IO_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "process-io-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 执行进程：写入标准输入，并发读取输出，等待进程结束（超时或 CPU 时间超限则强制结束）
+     *
+     * @param process 已启动的进程
+     * @param options 执行参数
+     * @return 执行结果
+     */
+    public static ProcessIoResult run(Process process, ProcessRunOptions options) {
+        long startTime = System.currentTimeMillis();
+        ProcessMonitor processMonitor = ProcessMonitor.getInstance();
+        ProcessUsageWatch usageWatch = processMonitor.watch(process, options.getCpuTimeLimitMs(), options.getUsageReportFile() != null);
+        long outputLimit = options.getOutputLimit() > 0 ? options.getOutputLimit() : ProcessRunOptions.DEFAULT_OUTPUT_LIMIT;
+        // 标准输出和错误输出合计的字节数
+        AtomicLong capturedBytes = new AtomicLong(0);
+        AtomicBoolean outputLimitExceeded = new AtomicBoolean(false);
+        Runnable onOutputLimitExceeded = () -> {
+            if (outputLimitExceeded.compareAndSet(false, true)) {
+                process.destroyForcibly();
+            }
+        };
+        OutputChecker outputChecker = options.getOutputChecker();
+        Future<byte[]> stdoutFuture = IO_EXECUTOR.submit(() -> drain(process.getInputStream(), outputLimit, capturedBytes, onOutputLimitExceeded,
+                outputChecker, process));
+        Future<byte[]> stderrFuture = IO_EXECUTOR.submit(() -> drain(process.getErrorStream(), outputLimit, capturedBytes, onOutputLimitExceeded,
+                null, process));
+        Future<?> stdinFuture = IO_EXECUTOR.submit(() -> writeStdin(process.getOutputStream(), options.getStdin(), options.getStdinData()));
+
+        ProcessIoResult result = new ProcessIoResult();
+        try {
+            boolean finished;
+            if (options.getTimeoutMs() > 0) {
+                finished = process.waitFor(options.getTimeoutMs(), TimeUnit.MILLISECONDS);
+            } else {
+                process.waitFor();
+                finished = true;
+            }
+            result.setTime(System.currentTimeMillis() - startTime);
+            result.setOutputLimitExceeded(outputLimitExceeded.get());
+            if (usageWatch != null) {
+                result.setMemory(usageWatch.getPeakMemory());
+                result.setCpuTime(usageWatch.getCpuTime());
+                result.setCpuTimeLimitExceeded(usageWatch.isCpuTimeLimitExceeded());
+            }
+            if (options.getUsageReportFile() != null) {
+                readWrapperUsage(options.getUsageReportFile(), result);
+            }
+            if (options.getCgroup() != null) {
+                readCgroupUsage(options.getCgroup(), result);
+            }
+            if (finished) {
+                result.setExitValue(process.exitValue());
+            } else {
+                result.setTimeout(true);
+                process.destroyForcibly();
+            }
+            result.setStdout(await(stdoutFuture));
+            result.setStderr(await(stderrFuture));
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待进程结束被中断", e);
+        } finally {
+            processMonitor.unwatch(usageWatch);
+            stdinFuture.cancel(true);
+            if (options.getUsageReportFile() != null) {
+                FileUtil.del(options.getUsageReportFile());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 包装进程在用户程序退出时读取的 rusage 不受采样间隔影响，有报告时覆盖采样得到的值
+     */
+    private static void readWrapperUsage(File reportFile, ProcessIoResult result) {
+        long[] usage = RusageWrapper.readReport(reportFile);
+        if (usage != null) {
+            result.setMemory(usage[0]);
+            result.setCpuTime(usage[1]);
+        }
+    }
+
+    /**
+     * cgroup 的统计包含所有子进程且不受采样间隔影响，可用时覆盖采样得到的值
+     */
+    private static void readCgroupUsage(RunCgroup cgroup, ProcessIoResult result) {
+        long memoryPeak = cgroup.readMemoryPeak();
+        if (memoryPeak >= 0) {
+            result.setMemory(memoryPeak);
+        }
+        long cpuTimeMs = cgroup.readCpuTimeMs();
+        if (cpuTimeMs >= 0) {
+            result.setCpuTime(cpuTimeMs);
+        }
+        result.setMemoryLimitExceeded(cgroup.isOomKilled());
+    }
+
+    /**
+     * 把输出按行拆分后用指定分隔符拼接，和逐行 readLine 再拼接的结果一致
+     *
+     * @param bytes     输出内容
+     * @param delimiter 行分隔符
+     * @return 拼接后的字符串
+     */
+    public static String joinLines(byte[] bytes, String delimiter) {
+        if (bytes == null || bytes.length == 0) {
+            return "";
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        StringBuilder stringBuilder = new StringBuilder(text.length());
+        int length = text.length();
+        boolean firstLine = true;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c != '\n' && c != '\r') {
+                continue;
+            }
+            if (!firstLine) {
+                stringBuilder.append(delimiter);
+            }
+            stringBuilder.append(text, lineStart, i);
+            firstLine = false;
+            if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                i++;
+            }
+            lineStart = i + 1;
+        }
+        // 最后一行没有换行符
+        if (lineStart < length) {
+            if (!firstLine) {
+                stringBuilder.append(delimiter);
+            }
+            stringBuilder.append(text, lineStart, length);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * 读取输出直到结束，合计字节数超过上限时只保留上限以内的部分并结束进程；
+     * 有比较器时只比较不保存，确定答案错误后结束进程
+     */
+    private static byte[] drain(InputStream inputStream, long outputLimit, AtomicLong capturedBytes,
+                                Runnable onOutputLimitExceeded, OutputChecker outputChecker, Process process) throws IOException {
+        byte[] buffer = READ_BUFFER.get();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream in = inputStream) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                long total = capturedBytes.addAndGet(len);
+                if (total > outputLimit) {
+                    int keep = (int) Math.max(0L, len - (total - outputLimit));
+                    if (outputChecker == null) {
+                        outputStream.write(buffer, 0, keep);
+                    }
+                    onOutputLimitExceeded.run();
+                    break;
+                }
+                if (outputChecker == null) {
+                    outputStream.write(buffer, 0, len);
+                    continue;
+                }
+                outputChecker.feed(buffer, 0, len);
+                if (outputChecker.isRejected()) {
+                    process.destroyForcibly();
+                    break;
+                }
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static void writeStdin(OutputStream outputStream, byte[] stdin, ByteBuffer stdinData) {
+        try (OutputStream out = outputStream) {
+            if (stdinData != null) {
+                // 复制一份位置，缓冲区是多个用例共用的缓存或内存映射
+                WritableByteChannel channel = Channels.newChannel(out);
+                ByteBuffer buffer = stdinData.duplicate();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                out.flush();
+            } else if (stdin != null && stdin.length > 0) {
+                out.write(stdin);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // 进程没有读完输入就退出了（管道已关闭），忽略
+            log.debug("写入标准输入失败: {}", e.getMessage());
+        }
+    }
+
+    private static byte[] await(Future<byte[]> future) throws InterruptedException {
+        try {
+            return future.get(DRAIN_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("进程已结束但输出未读完，放弃剩余输出");
+            return new byte[0];
+        } catch (ExecutionException e) {
+            log.warn("读取进程输出失败: {}", e.getCause().getMessage());
+            return new byte[0];
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ppx.ppxojcodesandbox.utils;
+
+import lombok.Data;
+
+/**
+ * 进程执行结果（原始字节）
+ */
+@Data
+public class ProcessIoResult {
+
+    /**
+     * 退出码，超时被杀掉时为 null
+     */
+    private Integer exitValue;
+
+    /**
+     * 是否超时
+     */
+    private boolean timeout;
+
+    /**
+     * 是否因为 CPU 时间超限被结束
+     */
+    private boolean cpuTimeLimitExceeded;
+
+    /**
+     * 是否超过输出上限（超过后进程被结束，输出截断在上限处）
+     */
+    private boolean outputLimitExceeded;
+
+    /**
+     * 是否因为内存超过 cgroup 限制被内核结束
+     */
+    private boolean memoryLimitExceeded;
+
+    /**
+     * 标准输出
+     */
+    private byte[] stdout;
+
+    /**
+     * 错误输出
+     */
+    private byte[] stderr;
+
+    /**
+     * 从开始等待到进程结束的耗时（毫秒）
+     */
+    private long time;
+
+    /**
+     * CPU 时间（用户态 + 内核态，毫秒），无法统计时为 null
+     */
+    private Long cpuTime;
+
+    /**
+     * 常驻内存峰值（字节），无法统计时为 null
+     */
+    private Long memory;
+}
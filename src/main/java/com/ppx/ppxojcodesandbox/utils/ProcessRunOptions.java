@@ -0,0 +1,128 @@
+package com.ppx.ppxojcodesandbox.utils;
+
+import com.ppx.ppxojcodesandbox.cgroup.RunCgroup;
+import com.ppx.ppxojcodesandbox.checker.OutputChecker;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.monitor.RusageWrapper;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * 进程执行参数
+ */
+@Data
+@Builder
+public class ProcessRunOptions {
+
+    /**
+     * 写入标准输入的内容，为 null 时直接关闭标准输入
+     */
+    private byte[] stdin;
+
+    /**
+     * 来自测试数据的标准输入（缓存或内存映射的只读缓冲区），不为 null 时代替 stdin 通过管道写给进程。
+     * 不把测试数据文件直接重定向给进程，否则用户程序可以通过 /proc/self/fd/0 找到同目录下的期望输出
+     */
+    private ByteBuffer stdinData;
+
+    /**
+     * 默认输出上限 16MB
+     */
+    public static final long DEFAULT_OUTPUT_LIMIT = 16L * 1024 * 1024;
+
+    /**
+     * 允许请求设置的最大输出上限 64MB
+     */
+    public static final long MAX_OUTPUT_LIMIT = 64L * 1024 * 1024;
+
+    /**
+     * 超时时间（毫秒），小于等于 0 表示不限制
+     */
+    private long timeoutMs;
+
+    /**
+     * CPU 时间上限（毫秒，用户态 + 内核态），超过后结束进程，小于等于 0 表示不限制
+     */
+    private long cpuTimeLimitMs;
+
+    /**
+     * 输出上限（字节，标准输出和错误输出合计），超过后结束进程，小于等于 0 时使用默认值
+     */
+    private long outputLimit;
+
+    /**
+     * 进程所在的临时 cgroup，进程结束后从中读取内存峰值、CPU 时间和 OOM 情况，为 null 表示没有使用 cgroup
+     */
+    private RunCgroup cgroup;
+
+    /**
+     * 资源统计包装进程的报告文件，不为 null 时进程是 {@link RusageWrapper} 包装过的命令，
+     * 退出后从报告中读取内存峰值和 CPU 时间，采样只用于 CPU 时间超限的检查和包装进程被结束时的统计
+     */
+    private File usageReportFile;
+
+    /**
+     * 标准输出的比较器，不为 null 时边读边比较、不保存标准输出，确定答案错误后立即结束进程
+     */
+    private OutputChecker outputChecker;
+
+    /**
+     * 根据执行请求生成单个用例的运行限制
+     *
+     * @param executeCodeRequest 执行请求
+     * @param defaultTimeoutMs   沙箱默认的超时时间
+     * @return 运行限制（不含标准输入）
+     */
+    public static ProcessRunOptions fromRequest(ExecuteCodeRequest executeCodeRequest, long defaultTimeoutMs) {
+        return ProcessRunOptions.builder()
+                .timeoutMs(resolveTimeoutMs(executeCodeRequest.getTimeLimit(), executeCodeRequest.getCpuTimeLimit(), defaultTimeoutMs))
+                .cpuTimeLimitMs(resolveCpuTimeLimitMs(executeCodeRequest.getCpuTimeLimit()))
+                .outputLimit(resolveOutputLimit(executeCodeRequest.getOutputLimit()))
+                .build();
+    }
+
+    /**
+     * 根据请求计算实际的运行超时时间（墙钟时间）
+     * 只限制 CPU 时间时，墙钟超时放宽为 CPU 时间上限的 2 倍，只用来兜底挂起（如等待输入、sleep）的程序
+     *
+     * @param requestTimeLimit   请求中的运行时间上限，可以为空
+     * @param requestCpuTimeLimit 请求中的 CPU 时间上限，可以为空
+     * @param defaultTimeoutMs   沙箱默认的超时时间
+     * @return 超时时间（毫秒）
+     */
+    public static long resolveTimeoutMs(Long requestTimeLimit, Long requestCpuTimeLimit, long defaultTimeoutMs) {
+        if (requestTimeLimit != null && requestTimeLimit > 0) {
+            return requestTimeLimit;
+        }
+        if (requestCpuTimeLimit != null && requestCpuTimeLimit > 0) {
+            return Math.max(defaultTimeoutMs, requestCpuTimeLimit * 2);
+        }
+        return defaultTimeoutMs;
+    }
+
+    /**
+     * 根据请求的 CPU 时间上限计算实际使用的上限
+     *
+     * @param requestCpuTimeLimit 请求中的 CPU 时间上限，可以为空
+     * @return CPU 时间上限（毫秒），0 表示不限制
+     */
+    public static long resolveCpuTimeLimitMs(Long requestCpuTimeLimit) {
+        return requestCpuTimeLimit == null || requestCpuTimeLimit <= 0 ? 0L : requestCpuTimeLimit;
+    }
+
+    /**
+     * 根据请求的输出上限计算实际使用的上限
+     *
+     * @param requestOutputLimit 请求中的输出上限，可以为空
+     * @return 输出上限
+     */
+    public static long resolveOutputLimit(Long requestOutputLimit) {
+        if (requestOutputLimit == null || requestOutputLimit <= 0) {
+            return DEFAULT_OUTPUT_LIMIT;
+        }
+        return Math.min(requestOutputLimit, MAX_OUTPUT_LIMIT);
+    }
+}
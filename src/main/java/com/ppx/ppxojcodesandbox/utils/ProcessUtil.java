@@ -1,13 +1,11 @@
 package com.ppx.ppxojcodesandbox.utils;
 
 import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
 import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * 进程处理工具类
@@ -26,57 +24,82 @@ public class ProcessUtil {
      * @return {@link ExecuteMessage}
      */
     public static ExecuteMessage handleProcessMessage(Process runProcess, String operationName) {
-        int exitCode;
-        StringBuilder output = new StringBuilder();
-        StringBuilder errorOutput = new StringBuilder();
-        try {
-            exitCode = runProcess.waitFor();
-            if (exitCode == 0) {
-                log.info(operationName + "成功");
-            } else {
-                log.error(operationName + "失败，错误码为: {}", exitCode);
-                BufferedReader errorBufferedReader = new BufferedReader(new InputStreamReader(runProcess.getErrorStream()));
-                String errorRunOutputLine;
-                while ((errorRunOutputLine = errorBufferedReader.readLine()) != null) {
-                    errorOutput.append(errorRunOutputLine);
-                }
-                log.error("错误输出为：{}", errorOutput);
-            }
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-            String runOutputLine;
-            while ((runOutputLine = bufferedReader.readLine()) != null) {
-                output.append(runOutputLine);
-            }
-            if (StrUtil.isNotBlank(output)) {
-                log.info("正常输出：{}", output);
-            }
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        return ExecuteMessage.builder()
-                .exitValue(exitCode)
-                .message(output.toString())
-                .errorMessage(errorOutput.toString())
-                .build();
+        return handleProcess(runProcess, operationName, ProcessRunOptions.builder().build());
     }
 
 
     public static ExecuteMessage handleProcessInteraction(Process runProcess, String input, String operationName) {
-        OutputStream outputStream = runProcess.getOutputStream();
-        try {
-            outputStream.write((input + "\n").getBytes());
-            outputStream.flush();
-            outputStream.close();
-            return handleProcessMessage(runProcess, operationName);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            try {
-                outputStream.close();
-            } catch (IOException e) {
-                log.error("关闭输入流失败");
-            }
+        return handleProcessInteraction(runProcess, input, operationName, ProcessRunOptions.builder().build());
+    }
+
+    /**
+     * 运行交互进程，超过运行限制后强制结束
+     *
+     * @param runProcess    运行进程
+     * @param input         输入，为 null 时不写标准输入（标准输入已重定向到文件）
+     * @param operationName 操作名称
+     * @param options       运行限制（超时时间、CPU 时间、输出上限）
+     * @return {@link ExecuteMessage}，超时时退出码为 {@link ExitCodeConstant#TIMEOUT_EXIT_CODE}，
+     * 输出超限时退出码为 {@link ExitCodeConstant#OUTPUT_LIMIT_EXIT_CODE}，
+     * 内存超限时退出码为 {@link ExitCodeConstant#MEMORY_LIMIT_EXIT_CODE}
+     */
+    public static ExecuteMessage handleProcessInteraction(Process runProcess, String input, String operationName,
+                                                          ProcessRunOptions options) {
+        options.setStdin(input == null ? null : (input + "\n").getBytes(StandardCharsets.UTF_8));
+        return handleProcess(runProcess, operationName, options);
+    }
+
+    private static ExecuteMessage handleProcess(Process runProcess, String operationName, ProcessRunOptions options) {
+        ProcessIoResult ioResult = ProcessIoEngine.run(runProcess, options);
+        if (ioResult.isMemoryLimitExceeded()) {
+            log.error(operationName + "内存超过上限");
+            return ExecuteMessage.builder()
+                    .exitValue(ExitCodeConstant.MEMORY_LIMIT_EXIT_CODE)
+                    .errorMessage("内存溢出")
+                    .time(ioResult.getTime())
+                    .cpuTime(ioResult.getCpuTime())
+                    .memory(ioResult.getMemory())
+                    .build();
+        }
+        if (ioResult.isOutputLimitExceeded()) {
+            log.error(operationName + "输出超过上限");
+            return ExecuteMessage.builder()
+                    .exitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE)
+                    .errorMessage("输出溢出")
+                    .time(ioResult.getTime())
+                    .cpuTime(ioResult.getCpuTime())
+                    .build();
+        }
+        if (ioResult.isTimeout() || ioResult.isCpuTimeLimitExceeded()) {
+            log.error(operationName + "超时");
+            return ExecuteMessage.builder()
+                    .exitValue(ExitCodeConstant.TIMEOUT_EXIT_CODE)
+                    .errorMessage("超时")
+                    .time(ioResult.getTime())
+                    .cpuTime(ioResult.getCpuTime())
+                    .build();
         }
+        int exitCode = ioResult.getExitValue();
+        String errorOutput = "";
+        if (exitCode == 0) {
+            log.info(operationName + "成功");
+        } else {
+            log.error(operationName + "失败，错误码为: {}", exitCode);
+            errorOutput = ProcessIoEngine.joinLines(ioResult.getStderr(), "");
+            log.error("错误输出为：{}", errorOutput);
+        }
+        String output = ProcessIoEngine.joinLines(ioResult.getStdout(), "");
+        if (StrUtil.isNotBlank(output)) {
+            log.info("正常输出：{}", output);
+        }
+        return ExecuteMessage.builder()
+                .exitValue(exitCode)
+                .message(output)
+                .errorMessage(errorOutput)
+                .time(ioResult.getTime())
+                .cpuTime(ioResult.getCpuTime())
+                .memory(ioResult.getMemory())
+                .build();
     }
 
 }
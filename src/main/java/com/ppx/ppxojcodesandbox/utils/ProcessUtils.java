@@ -1,13 +1,10 @@
 package com.ppx.ppxojcodesandbox.utils;
 
 import cn.hutool.core.util.StrUtil;
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
 import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
-import org.apache.commons.lang3.StringUtils;
-import org.springframework.util.StopWatch;
 
-import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 /**
  * 进程工具类
@@ -22,56 +19,53 @@ public class ProcessUtils {
      * @return
      */
     public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName) {
-        ExecuteMessage executeMessage = new ExecuteMessage();
-
-        try {
-            // 计时
-            StopWatch stopWatch = new StopWatch();
-            stopWatch.start();
-            // 等待程序执行，获取错误码
-            int exitValue = runProcess.waitFor();
-            executeMessage.setExitValue(exitValue);
-            // 正常退出
-            if (exitValue == 0) {
-                System.out.println(opName + "成功");
-                // 分批获取进程的正常输出
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                List<String> outputStrList = new ArrayList<>();
-                // 逐行读取
-                String compileOutputLine;
-                while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                    outputStrList.add(compileOutputLine);
-                }
-                // 处理换行符
-                executeMessage.setMessage(StringUtils.join(outputStrList, "\n"));
-            } else {
-                // 异常退出
-                System.out.println(opName + "失败，错误码： " + exitValue);
-                // 分批获取进程的正常输出
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                List<String> outputStrList = new ArrayList<>();
-                // 逐行读取
-                String compileOutputLine;
-                while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                    outputStrList.add(compileOutputLine);
-                }
-                executeMessage.setMessage(StringUtils.join(outputStrList, "\n"));
+        return runProcessAndGetMessage(runProcess, opName, ProcessRunOptions.builder().build());
+    }
 
-                // 分批获取进程的错误输出
-                BufferedReader errorBufferedReader = new BufferedReader(new InputStreamReader(runProcess.getErrorStream()));
-                // 逐行读取
-                List<String> errorOutputStrList = new ArrayList<>();
-                // 逐行读取
-                String errorCompileOutputLine;
-                while ((errorCompileOutputLine = errorBufferedReader.readLine()) != null) {
-                    errorOutputStrList.add(errorCompileOutputLine);
-                }
-                executeMessage.setErrorMessage(StringUtils.join(errorOutputStrList, "\n"));
-            }
-            stopWatch.stop();
-            executeMessage.setTime(stopWatch.getLastTaskTimeMillis());
-        } catch (Exception e) {
-//            e.printStackTrace();
+    /**
+     * 执行进程并获取信息，超过运行限制后强制结束进程
+     *
+     * @param runProcess
+     * @param opName
+     * @param options 运行限制（超时时间、CPU 时间、输出上限）
+     * @return
+     */
+    public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName, ProcessRunOptions options) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        // 运行期间并发读取输出，避免输出过多时进程阻塞
+        ProcessIoResult ioResult = ProcessIoEngine.run(runProcess, options);
+        executeMessage.setTime(ioResult.getTime());
+        executeMessage.setCpuTime(ioResult.getCpuTime());
+        executeMessage.setMemory(ioResult.getMemory());
+        if (ioResult.isMemoryLimitExceeded()) {
+            System.out.println(opName + "内存超过上限");
+            executeMessage.setExitValue(ExitCodeConstant.MEMORY_LIMIT_EXIT_CODE);
+            executeMessage.setErrorMessage("内存溢出");
+            return executeMessage;
+        }
+        if (ioResult.isOutputLimitExceeded()) {
+            System.out.println(opName + "输出超过上限");
+            executeMessage.setExitValue(ExitCodeConstant.OUTPUT_LIMIT_EXIT_CODE);
+            executeMessage.setErrorMessage("输出溢出");
+            return executeMessage;
+        }
+        // 处理换行符
+        executeMessage.setMessage(ProcessIoEngine.joinLines(ioResult.getStdout(), "\n"));
+        if (ioResult.isTimeout() || ioResult.isCpuTimeLimitExceeded()) {
+            System.out.println(opName + "超时");
+            executeMessage.setExitValue(ExitCodeConstant.TIMEOUT_EXIT_CODE);
+            executeMessage.setErrorMessage("超时");
+            return executeMessage;
+        }
+        int exitValue = ioResult.getExitValue();
+        executeMessage.setExitValue(exitValue);
+        // 正常退出
+        if (exitValue == 0) {
+            System.out.println(opName + "成功");
+        } else {
+            // 异常退出
+            System.out.println(opName + "失败，错误码： " + exitValue);
+            executeMessage.setErrorMessage(ProcessIoEngine.joinLines(ioResult.getStderr(), "\n"));
         }
         return executeMessage;
     }
@@ -85,35 +79,15 @@ public class ProcessUtils {
      */
     public static ExecuteMessage runInteractProcessAndGetMessage(Process runProcess, String args) {
         ExecuteMessage executeMessage = new ExecuteMessage();
-
-        try {
-            // 向控制台输入程序
-            OutputStream outputStream = runProcess.getOutputStream();
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-            String[] s = args.split(" ");
-            String join = StrUtil.join("\n", s) + "\n";
-            outputStreamWriter.write(join);
-            // 相当于按了回车，执行输入的发送
-            outputStreamWriter.flush();
-
-            // 分批获取进程的正常输出
-            InputStream inputStream = runProcess.getInputStream();
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
-            StringBuilder compileOutputStringBuilder = new StringBuilder();
-            // 逐行读取
-            String compileOutputLine;
-            while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                compileOutputStringBuilder.append(compileOutputLine);
-            }
-            executeMessage.setMessage(compileOutputStringBuilder.toString());
-            // 记得资源的释放，否则会卡死
-            outputStreamWriter.close();
-            outputStream.close();
-            inputStream.close();
-            runProcess.destroy();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // 向控制台输入程序，每个参数一行
+        String[] s = args.split(" ");
+        String join = StrUtil.join("\n", s) + "\n";
+        ProcessIoResult ioResult = ProcessIoEngine.run(runProcess, ProcessRunOptions.builder()
+                .stdin(join.getBytes(StandardCharsets.UTF_8))
+                .build());
+        executeMessage.setExitValue(ioResult.getExitValue());
+        executeMessage.setMessage(ProcessIoEngine.joinLines(ioResult.getStdout(), ""));
+        executeMessage.setTime(ioResult.getTime());
         return executeMessage;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,393 @@
+package com.ppx.ppxojcodesandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 提交工作目录管理
+ * 用户代码、编译产物和运行时写出的文件优先放在内存文件系统（默认 /dev/shm）上，避免每次提交都读写磁盘；
+ * 可用内存或 tmpfs 剩余空间不足时退回到 user.dir 下的磁盘目录。
+ * 每个工作目录有字节配额：
+ * 有挂载权限时，内存文件系统上的每个工作目录单独挂载一个大小等于配额的 tmpfs，运行期间写满即 ENOSPC，配额在运行中生效；
+ * 不能挂载（非 root、容器内没有 CAP_SYS_ADMIN）或工作目录在磁盘上时，只能通过 ulimit -f 限制单个文件大小，
+ * 运行结束后再检查整个目录的占用，运行期间写出多个文件的总量可以短暂超过配额
+ * （使用 cgroup 时写入 tmpfs 的页面计入运行 cgroup 的 memory.max，总量仍受内存上限约束）。
+ * 每个服务实例的工作目录放在自己的实例目录下，再按 uuid 前两位分成 256 个子目录（name/instance-xxx/ab/ab12...），
+ * 单个目录下的条目数不会随提交量无限增长。实例目录中的 .lock 文件在实例运行期间一直持有文件锁，
+ * 多个实例共用同一个根目录时，启动清理只删除锁已经释放（所属进程已退出）的实例目录，不会删掉其他实例正在使用的目录。
+ * 用完的目录交给 {@link WorkspaceReaper} 在后台删除，进程崩溃留下的目录在下次启动时清理。
+ * 配置见 application.yml 中的 codesandbox.workspace。
+ */
+@Slf4j
+@Component
+public class WorkspaceProvider {
+
+    // ulimit -f 的单位（sh 下为 512 字节的块）
+    private static final long ULIMIT_BLOCK_SIZE = 512L;
+
+    // 启动时清理的磁盘目录（相对 user.dir），和各沙箱的工作目录分类对应
+    private static final String[] DISK_SWEEP_DIRS = {"tmpCode", "tempCode"};
+
+    // 分片之前工作目录直接放在这些目录下（相对 user.dir），没有所属实例，按修改时间清理
+    private static final String[] LEGACY_WORKSPACE_DIRS = {"tmpCode", "tempCode/cpp"};
+
+    private static final String INSTANCE_DIR_PREFIX = "instance-";
+
+    // 实例目录中持有文件锁的文件
+    private static final String LOCK_FILE_NAME = ".lock";
+
+    // 启动清理时向下查找的最大深度
+    private static final int SWEEP_MAX_DEPTH = 4;
+
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private static final Pattern INSTANCE_PATTERN = Pattern.compile(INSTANCE_DIR_PREFIX + UUID_PATTERN.pattern());
+
+    // mount / umount 命令的超时时间
+    private static final long MOUNT_TIMEOUT_MS = 5000L;
+
+    // 内存文件系统上的根目录，为空表示只使用磁盘
+    @Value("${codesandbox.workspace.tmpfs-root:/dev/shm/ppxoj-code-sandbox}")
+    private String tmpfsRootPath;
+
+    // 单个工作目录的字节配额
+    @Value("${codesandbox.workspace.quota-bytes:67108864}")
+    private long quotaBytes;
+
+    // 使用内存文件系统时至少保留的可用内存（扣除本次配额后）
+    @Value("${codesandbox.workspace.min-free-memory-bytes:536870912}")
+    private long minFreeMemoryBytes;
+
+    // 是否为内存文件系统上的工作目录单独挂载 tmpfs（没有挂载权限时自动关闭）
+    @Value("${codesandbox.workspace.mount-tmpfs:true}")
+    private boolean mountTmpfs;
+
+    // 内存文件系统上的根目录，为 null 表示不可用
+    private File tmpfsRoot;
+
+    // 当前实例的目录名，每次启动都不同
+    private final String instanceDirName = INSTANCE_DIR_PREFIX + UUID.randomUUID();
+
+    // 当前实例在各个分类下的实例目录 -> 持有文件锁的通道，通道关闭（包括进程退出）时锁释放
+    private final Map<String, FileChannel> instanceLocks = new ConcurrentHashMap<>();
+
+    // 单独挂载了 tmpfs 的工作目录，释放时需要先卸载
+    private final Set<String> mountedWorkspaces = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        if (StrUtil.isNotBlank(tmpfsRootPath)) {
+            File candidate = new File(tmpfsRootPath);
+            if ((candidate.isDirectory() || candidate.mkdirs()) && candidate.canWrite()) {
+                tmpfsRoot = candidate;
+            } else {
+                log.info("内存文件系统目录不可用，工作目录使用磁盘: {}", tmpfsRootPath);
+            }
+        }
+        mountTmpfs = mountTmpfs && tmpfsRoot != null && probeMount(tmpfsRoot);
+        if (mountTmpfs) {
+            log.info("工作目录单独挂载 tmpfs，配额 {} 字节", quotaBytes);
+        }
+    }
+
+    public long getQuotaBytes() {
+        return quotaBytes;
+    }
+
+    /**
+     * 创建一个工作目录
+     *
+     * @param name 工作目录的分类（相对路径，如 tmpCode），磁盘上的位置和原来的 user.dir/name 保持一致
+     * @return 新建的空目录
+     */
+    public File createWorkspace(String name) {
+        boolean inMemory = hasRoomInMemory();
+        File parent = inMemory
+                ? new File(tmpfsRoot, name)
+                : new File(System.getProperty("user.dir"), name);
+        String uuid = UUID.randomUUID().toString();
+        File workspaceDir = new File(new File(instanceDir(parent), uuid.substring(0, 2)), uuid);
+        FileUtil.mkdir(workspaceDir);
+        // 挂载失败时仍使用这个目录，配额退回到 ulimit -f 和运行后的检查
+        if (inMemory && mountTmpfs && mount(workspaceDir, quotaBytes)) {
+            mountedWorkspaces.add(workspaceDir.getAbsolutePath());
+        }
+        return workspaceDir;
+    }
+
+    /**
+     * 释放工作目录，目录在后台删除
+     *
+     * @param workspaceDir 工作目录
+     * @return 是否已提交删除
+     */
+    public boolean release(File workspaceDir) {
+        // 卸载后 tmpfs 的内容立即释放，只剩空的挂载点目录交给后台删除
+        if (mountedWorkspaces.remove(workspaceDir.getAbsolutePath())) {
+            unmount(workspaceDir);
+        }
+        return WorkspaceReaper.getInstance().submit(workspaceDir);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (FileChannel channel : instanceLocks.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 清理已退出的实例（包括进程崩溃）留下的工作目录，其他实例正在使用的目录不处理
+     *
+     * @return 提交删除的目录数
+     */
+    public int sweepOrphans() {
+        List<File> orphans = new ArrayList<>();
+        if (tmpfsRoot != null) {
+            collectOrphans(tmpfsRoot, 0, orphans);
+        }
+        for (String diskDir : DISK_SWEEP_DIRS) {
+            collectOrphans(new File(System.getProperty("user.dir"), diskDir), 0, orphans);
+        }
+        long startTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+        for (String legacyDir : LEGACY_WORKSPACE_DIRS) {
+            File[] children = new File(System.getProperty("user.dir"), legacyDir).listFiles(File::isDirectory);
+            for (File child : children == null ? new File[0] : children) {
+                if (UUID_PATTERN.matcher(child.getName()).matches() && child.lastModified() < startTime) {
+                    orphans.add(child);
+                }
+            }
+        }
+        // 进程崩溃时单独挂载的 tmpfs 没有卸载，需要先卸载才能删除目录
+        List<String> mountPoints = readMountPoints();
+        for (File orphan : orphans) {
+            String orphanPath = orphan.getAbsolutePath();
+            for (String mountPoint : mountPoints) {
+                if (mountPoint.equals(orphanPath) || mountPoint.startsWith(orphanPath + File.separator)) {
+                    unmount(new File(mountPoint));
+                }
+            }
+            WorkspaceReaper.getInstance().submit(orphan);
+        }
+        return orphans.size();
+    }
+
+    /**
+     * 查找所属实例已经退出的实例目录，其他目录（如容器池的挂载目录）不处理
+     */
+    private void collectOrphans(File dir, int depth, List<File> orphans) {
+        File[] children = dir.listFiles(File::isDirectory);
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (INSTANCE_PATTERN.matcher(child.getName()).matches()) {
+                // 不能对自己的锁文件打开再关闭通道，同一进程关闭任何一个通道都会释放该文件上的锁
+                if (!instanceLocks.containsKey(child.getAbsolutePath()) && isOwnerGone(child)) {
+                    orphans.add(child);
+                }
+            } else if (depth < SWEEP_MAX_DEPTH && !UUID_PATTERN.matcher(child.getName()).matches()) {
+                collectOrphans(child, depth + 1, orphans);
+            }
+        }
+    }
+
+    /**
+     * 实例目录的文件锁能否拿到，拿到说明所属进程已经退出
+     */
+    private static boolean isOwnerGone(File instanceDir) {
+        File lockFile = new File(instanceDir, LOCK_FILE_NAME);
+        if (!lockFile.isFile()) {
+            // 实例创建目录后还没来得及创建锁文件，只清理当前进程启动前就存在的目录
+            return instanceDir.lastModified() < ManagementFactory.getRuntimeMXBean().getStartTime();
+        }
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+            return channel.tryLock() != null;
+        } catch (IOException | OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 获取分类目录下当前实例的目录，第一次使用时创建并加锁
+     */
+    private File instanceDir(File parent) {
+        File instanceDir = new File(parent, instanceDirName);
+        instanceLocks.computeIfAbsent(instanceDir.getAbsolutePath(), path -> {
+            FileUtil.mkdir(instanceDir);
+            File lockFile = new File(instanceDir, LOCK_FILE_NAME);
+            try {
+                FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                if (channel.tryLock() == null) {
+                    channel.close();
+                    throw new IOException("文件已被锁定");
+                }
+                return channel;
+            } catch (IOException e) {
+                // 拿不到锁时目录仍然可以使用，只是其他实例启动时可能把它当作遗留目录清理
+                log.warn("锁定实例目录失败: {}, 原因: {}", instanceDir, e.getMessage());
+                return null;
+            }
+        });
+        return instanceDir;
+    }
+
+    /**
+     * 包装运行命令，限制进程写出的单个文件大小不超过配额（超过时进程收到 SIGXFSZ 被结束）
+     *
+     * @param command 原命令
+     * @return 包装后的命令
+     */
+    public String[] wrapCommand(String[] command) {
+        List<String> wrapped = new ArrayList<>(command.length + 4);
+        wrapped.add("/bin/sh");
+        wrapped.add("-c");
+        wrapped.add("ulimit -f " + Math.max(1L, quotaBytes / ULIMIT_BLOCK_SIZE) + " && exec \"$@\"");
+        wrapped.add("sh");
+        wrapped.addAll(Arrays.asList(command));
+        return wrapped.toArray(new String[0]);
+    }
+
+    /**
+     * 工作目录的占用是否达到配额
+     *
+     * @param workspaceDir 工作目录
+     * @return 是否达到配额
+     */
+    public boolean isOverQuota(File workspaceDir) {
+        return workspaceDir.exists() && FileUtil.size(workspaceDir) >= quotaBytes;
+    }
+
+    /**
+     * 检查能否挂载 tmpfs（需要 root 或 CAP_SYS_ADMIN）
+     */
+    private static boolean probeMount(File root) {
+        File probeDir = new File(root, ".mount-probe-" + UUID.randomUUID());
+        if (!probeDir.mkdirs()) {
+            return false;
+        }
+        try {
+            if (!mount(probeDir, ULIMIT_BLOCK_SIZE * 8)) {
+                log.info("没有挂载 tmpfs 的权限，工作目录配额只在运行结束后检查");
+                return false;
+            }
+            return unmount(probeDir);
+        } finally {
+            probeDir.delete();
+        }
+    }
+
+    /**
+     * 在目录上挂载限制大小的 tmpfs，禁止 setuid 和设备文件
+     */
+    private static boolean mount(File dir, long sizeBytes) {
+        return runQuietly("mount", "-t", "tmpfs", "-o", "size=" + sizeBytes + ",mode=0700,nosuid,nodev",
+                "tmpfs", dir.getAbsolutePath());
+    }
+
+    /**
+     * 卸载目录上的 tmpfs，仍有进程占用时延迟卸载
+     */
+    private static boolean unmount(File dir) {
+        boolean unmounted = runQuietly("umount", "-l", dir.getAbsolutePath());
+        if (!unmounted) {
+            log.warn("卸载工作目录失败: {}", dir.getAbsolutePath());
+        }
+        return unmounted;
+    }
+
+    private static boolean runQuietly(String... command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File("/dev/null"))
+                    .start();
+            if (!process.waitFor(MOUNT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 读取 /proc/self/mountinfo 中的挂载点，读取失败返回空集合
+     */
+    private static List<String> readMountPoints() {
+        List<String> mountPoints = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(new File("/proc/self/mountinfo").toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.split(" ");
+                if (fields.length > 4) {
+                    mountPoints.add(fields[4]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取挂载信息失败: {}", e.getMessage());
+        }
+        return mountPoints;
+    }
+
+    /**
+     * 内存文件系统可用，且可用内存和剩余空间在放下一个满配额的工作目录后仍有余量
+     */
+    private boolean hasRoomInMemory() {
+        if (tmpfsRoot == null) {
+            return false;
+        }
+        if (tmpfsRoot.getUsableSpace() < quotaBytes) {
+            return false;
+        }
+        long availableMemory = readMemAvailable();
+        return availableMemory < 0 || availableMemory - quotaBytes >= minFreeMemoryBytes;
+    }
+
+    /**
+     * 读取 /proc/meminfo 中的 MemAvailable（字节），读取失败返回 -1
+     */
+    private static long readMemAvailable() {
+        try {
+            for (String line : Files.readAllLines(new File("/proc/meminfo").toPath(), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("MemAvailable:")) {
+                    String value = line.substring("MemAvailable:".length()).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取可用内存失败: {}", e.getMessage());
+        }
+        return -1L;
+    }
+}
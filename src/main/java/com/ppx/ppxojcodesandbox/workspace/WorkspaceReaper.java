@@ -0,0 +1,103 @@
+package com.ppx.ppxojcodesandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 工作目录回收器
+ * 请求线程只把要删除的目录放进队列，由后台线程批量删除，删除耗时不再计入请求；
+ * 队列满时退回到在调用线程中同步删除，避免待删除的目录无限堆积。
+ */
+@Slf4j
+public class WorkspaceReaper {
+
+    // 待删除队列上限
+    private static final int QUEUE_CAPACITY = 10000;
+
+    // 每批最多删除的目录数
+    private static final int BATCH_SIZE = 64;
+
+    private static final WorkspaceReaper INSTANCE = new WorkspaceReaper();
+
+    private final BlockingQueue<File> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final AtomicLong deletedCount = new AtomicLong(0);
+
+    private final AtomicLong failedCount = new AtomicLong(0);
+
+    private WorkspaceReaper() {
+        Thread thread = new Thread(this::reapLoop, "workspace-reaper");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static WorkspaceReaper getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 提交要删除的目录
+     *
+     * @param dir 目录
+     * @return 是否已放入队列或删除成功
+     */
+    public boolean submit(File dir) {
+        if (queue.offer(dir)) {
+            return true;
+        }
+        log.warn("工作目录回收队列已满，同步删除: {}", dir);
+        return delete(dir);
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void reapLoop() {
+        List<File> batch = new ArrayList<>(BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (File dir : batch) {
+                    delete(dir);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("回收工作目录出错", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean delete(File dir) {
+        try {
+            if (FileUtil.del(dir)) {
+                deletedCount.incrementAndGet();
+                return true;
+            }
+        } catch (RuntimeException e) {
+            log.warn("删除工作目录失败: {}, {}", dir, e.getMessage());
+        }
+        // 删除失败的目录留给下次启动时的清理
+        failedCount.incrementAndGet();
+        return false;
+    }
+}
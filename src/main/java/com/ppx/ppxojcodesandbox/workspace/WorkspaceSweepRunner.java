@@ -0,0 +1,27 @@
+package com.ppx.ppxojcodesandbox.workspace;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 启动后清理上次运行（如进程崩溃）留下的工作目录
+ */
+@Slf4j
+@Component
+public class WorkspaceSweepRunner implements ApplicationRunner {
+
+    @Resource
+    private WorkspaceProvider workspaceProvider;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int orphanCount = workspaceProvider.sweepOrphans();
+        if (orphanCount > 0) {
+            log.info("清理上次运行遗留的工作目录 {} 个", orphanCount);
+        }
+    }
+}
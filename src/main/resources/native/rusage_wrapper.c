@@ -0,0 +1,79 @@
+/*
+ * 资源统计包装进程
+ * fork 子进程执行用户程序，用 wait4 回收并把 rusage 写到报告文件，统计不受采样间隔影响，运行很短的程序也能得到准确的值。
+ * 退出状态和用户程序一致：正常退出时返回相同的退出码，被信号结束时用同一个信号结束自己。
+ * 包装进程被结束（超时、输出超限、CPU 时间超限）时用户程序收到 SIGKILL，此时没有报告。
+ *
+ * 用法：rusage_wrapper 报告文件 命令 [参数...]
+ * 报告：内存峰值(KB) 用户态CPU时间(微秒) 内核态CPU时间(微秒)
+ */
+#define _GNU_SOURCE
+#include <errno.h>
+#include <fcntl.h>
+#include <signal.h>
+#include <stdio.h>
+#include <string.h>
+#include <sys/prctl.h>
+#include <sys/resource.h>
+#include <sys/types.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+int main(int argc, char *argv[]) {
+    if (argc < 3) {
+        fprintf(stderr, "usage: %s report command [args...]\n", argv[0]);
+        return 125;
+    }
+    /* 报告文件在 fork 之前打开，用户程序不会继承 */
+    int report = open(argv[1], O_WRONLY | O_CREAT | O_TRUNC | O_CLOEXEC, 0600);
+    if (report < 0) {
+        fprintf(stderr, "open %s: %s\n", argv[1], strerror(errno));
+        return 125;
+    }
+    pid_t parent = getpid();
+    pid_t pid = fork();
+    if (pid < 0) {
+        fprintf(stderr, "fork: %s\n", strerror(errno));
+        return 125;
+    }
+    if (pid == 0) {
+        prctl(PR_SET_PDEATHSIG, SIGKILL);
+        /* 设置之前包装进程已经退出 */
+        if (getppid() != parent) {
+            _exit(137);
+        }
+        execvp(argv[2], argv + 2);
+        fprintf(stderr, "exec %s: %s\n", argv[2], strerror(errno));
+        _exit(127);
+    }
+    int status;
+    struct rusage usage;
+    while (wait4(pid, &status, 0, &usage) < 0) {
+        if (errno != EINTR) {
+            fprintf(stderr, "wait4: %s\n", strerror(errno));
+            return 125;
+        }
+    }
+    char line[128];
+    int length = snprintf(line, sizeof(line), "%ld %ld %ld\n", usage.ru_maxrss,
+                          (long) usage.ru_utime.tv_sec * 1000000L + (long) usage.ru_utime.tv_usec,
+                          (long) usage.ru_stime.tv_sec * 1000000L + (long) usage.ru_stime.tv_usec);
+    if (write(report, line, length) != length) {
+        fprintf(stderr, "write report: %s\n", strerror(errno));
+    }
+    close(report);
+    if (WIFSIGNALED(status)) {
+        int sig = WTERMSIG(status);
+        /* 用同一个信号结束自己，不生成 core 文件 */
+        struct rlimit noCore = {0, 0};
+        setrlimit(RLIMIT_CORE, &noCore);
+        signal(sig, SIG_DFL);
+        sigset_t set;
+        sigemptyset(&set);
+        sigaddset(&set, sig);
+        sigprocmask(SIG_UNBLOCK, &set, NULL);
+        raise(sig);
+        return 128 + sig;
+    }
+    return WEXITSTATUS(status);
+}
@@ -0,0 +1,298 @@
+# Python 执行器（zygote）
+# 常驻进程，预先导入常用模块，每个用例 fork 一个子进程执行已编译的字节码，省去解释器冷启动。
+# 单线程事件循环：从标准输入读指令，用 wait4 回收子进程并统计资源占用，超时的子进程由这里结束。
+# 编译也在 fork 的子进程中进行，事件循环本身不做耗时的工作，编译很慢的代码不会拖住其他请求。
+#
+# 指令（制表符分隔，每行一条）：
+#   COMPILE id srcPath pycPath timeoutMs
+#   RUN id pycPath cwd stdinPath stdoutPath stderrPath timeoutMs cpuTimeLimitMs outputLimit cgroupProcsPath|-
+#   CANCEL id        结束请求对应的子进程（调用方已经放弃等待），不再回复
+#   PING id
+# 返回：
+#   READY
+#   COMPILED id 0|1 Base64(错误信息)
+#   DONE id OK|TIMEOUT|CPU|OUTPUT|SIGNAL exitCode timeMs memoryBytes cpuTimeMs
+#   PONG id OK
+
+import base64
+import builtins
+import errno
+import marshal
+import os
+import py_compile
+import resource
+import select
+import signal
+import sys
+import time
+import traceback
+
+# 用户代码常用的模块，在 zygote 中导入一次，子进程直接复用
+import array
+import bisect
+import collections
+import copy
+import decimal
+import fractions
+import functools
+import heapq
+import io
+import itertools
+import json
+import math
+import operator
+import random
+import re
+import statistics
+import string
+
+# pyc 文件头长度（magic、flags、时间戳/哈希、源文件大小）
+PYC_HEADER_SIZE = 16
+
+# 有子进程在运行时检查超时的间隔（秒）
+POLL_INTERVAL = 0.01
+
+# 编译子进程写错误信息的文件后缀（和字节码文件放在一起）
+COMPILE_ERROR_SUFFIX = ".err"
+
+# pid -> 子进程信息
+children = {}
+
+
+def send(line):
+    os.write(1, (line + "\n").encode("utf-8"))
+
+
+def compile_child(src_path, pyc_path):
+    status = 1
+    try:
+        signal.signal(signal.SIGTERM, signal.SIG_DFL)
+        os.setpgid(0, 0)
+        try:
+            # 字节码中的文件名固定为 main.py，缓存的字节码和工作目录无关，报错信息也不暴露服务器路径
+            py_compile.compile(src_path, cfile=pyc_path, dfile="main.py", doraise=True)
+            status = 0
+        except py_compile.PyCompileError as e:
+            write_compile_error(pyc_path, str(e.msg))
+        except Exception as e:
+            write_compile_error(pyc_path, str(e))
+    finally:
+        os._exit(status)
+
+
+def write_compile_error(pyc_path, message):
+    with open(pyc_path + COMPILE_ERROR_SUFFIX, "w", encoding="utf-8") as error_file:
+        error_file.write(message)
+
+
+def start_compile(parts):
+    request_id, src_path, pyc_path, timeout_ms = parts[1], parts[2], parts[3], int(parts[4])
+    start = time.monotonic()
+    pid = os.fork()
+    if pid == 0:
+        compile_child(src_path, pyc_path)
+    deadline = start + timeout_ms / 1000.0 if timeout_ms > 0 else None
+    children[pid] = {"kind": "compile", "id": request_id, "start": start, "deadline": deadline,
+                     "pyc_path": pyc_path, "timeout": False, "cancelled": False}
+
+
+def finish_compile(child, status):
+    error_path = child["pyc_path"] + COMPILE_ERROR_SUFFIX
+    if os.WIFEXITED(status) and os.WEXITSTATUS(status) == 0:
+        send("COMPILED\t%s\t0\t" % child["id"])
+        return
+    if child["timeout"]:
+        message = "编译超时"
+    else:
+        try:
+            with open(error_path, "r", encoding="utf-8") as error_file:
+                message = error_file.read()
+            os.unlink(error_path)
+        except OSError:
+            message = "编译进程异常退出"
+    send("COMPILED\t%s\t1\t%s" % (child["id"], base64.b64encode(message.encode("utf-8")).decode("ascii")))
+
+
+def run_child(pyc_path, cwd, stdin_path, stdout_path, stderr_path, cpu_time_limit_ms, output_limit, procs_path):
+    status = 1
+    try:
+        signal.signal(signal.SIGTERM, signal.SIG_DFL)
+        # 解释器默认忽略 SIGXFSZ，恢复默认行为，输出超限时进程被结束而不是抛出异常
+        signal.signal(signal.SIGXFSZ, signal.SIG_DFL)
+        if procs_path != "-":
+            with open(procs_path, "w") as procs:
+                procs.write(str(os.getpid()))
+        # 独立的进程组，超时时连同用户程序创建的子进程一起结束
+        os.setpgid(0, 0)
+        os.chdir(cwd)
+        if cpu_time_limit_ms > 0:
+            cpu_seconds = (cpu_time_limit_ms + 999) // 1000
+            resource.setrlimit(resource.RLIMIT_CPU, (cpu_seconds, cpu_seconds + 1))
+        if output_limit > 0:
+            resource.setrlimit(resource.RLIMIT_FSIZE, (output_limit, output_limit))
+        for fd, path, flags in ((0, stdin_path, os.O_RDONLY),
+                                (1, stdout_path, os.O_WRONLY | os.O_CREAT | os.O_TRUNC),
+                                (2, stderr_path, os.O_WRONLY | os.O_CREAT | os.O_TRUNC)):
+            new_fd = os.open(path, flags, 0o644)
+            os.dup2(new_fd, fd)
+            os.close(new_fd)
+        sys.stdin = sys.__stdin__ = open(0, "r", encoding="utf-8", closefd=False)
+        sys.stdout = sys.__stdout__ = open(1, "w", encoding="utf-8", closefd=False)
+        sys.stderr = sys.__stderr__ = open(2, "w", encoding="utf-8", closefd=False)
+        sys.argv = ["main.py"]
+        # fork 出来的子进程随机数状态相同，重新播种
+        random.seed()
+        with open(pyc_path, "rb") as pyc:
+            code = marshal.loads(pyc.read()[PYC_HEADER_SIZE:])
+        try:
+            exec(code, {"__name__": "__main__", "__builtins__": builtins, "__file__": "main.py"})
+            status = 0
+        except SystemExit as e:
+            if e.code is None:
+                status = 0
+            elif isinstance(e.code, int):
+                status = e.code & 0xFF
+            else:
+                print(e.code, file=sys.stderr)
+                status = 1
+        except BaseException as e:
+            # 去掉 zygote 自身的栈帧，只保留用户代码的调用栈
+            traceback.print_exception(type(e), e, e.__traceback__.tb_next)
+            status = 1
+        sys.stdout.flush()
+        sys.stderr.flush()
+    except BaseException:
+        try:
+            traceback.print_exc()
+            sys.stderr.flush()
+        except BaseException:
+            pass
+    finally:
+        os._exit(status)
+
+
+def start_run(parts):
+    request_id, pyc_path, cwd, stdin_path, stdout_path, stderr_path = parts[1:7]
+    timeout_ms, cpu_time_limit_ms, output_limit = int(parts[7]), int(parts[8]), int(parts[9])
+    procs_path = parts[10]
+    start = time.monotonic()
+    pid = os.fork()
+    if pid == 0:
+        run_child(pyc_path, cwd, stdin_path, stdout_path, stderr_path, cpu_time_limit_ms, output_limit, procs_path)
+    deadline = start + timeout_ms / 1000.0 if timeout_ms > 0 else None
+    children[pid] = {"kind": "run", "id": request_id, "start": start, "deadline": deadline,
+                     "cpu_limit": cpu_time_limit_ms, "timeout": False, "cancelled": False}
+
+
+def reap():
+    while children:
+        try:
+            pid, status, usage = os.wait4(-1, os.WNOHANG)
+        except ChildProcessError:
+            return
+        if pid == 0:
+            return
+        child = children.pop(pid, None)
+        if child is None:
+            continue
+        # 进程组里可能还有用户程序创建的子进程
+        kill_group(pid)
+        if child["cancelled"]:
+            continue
+        if child["kind"] == "compile":
+            finish_compile(child, status)
+            continue
+        elapsed_ms = int((time.monotonic() - child["start"]) * 1000)
+        cpu_ms = int((usage.ru_utime + usage.ru_stime) * 1000)
+        memory = usage.ru_maxrss * 1024
+        if os.WIFSIGNALED(status):
+            sig = os.WTERMSIG(status)
+            exit_code = 128 + sig
+            if child["timeout"]:
+                result = "TIMEOUT"
+            elif sig == signal.SIGXFSZ:
+                result = "OUTPUT"
+            elif sig in (signal.SIGXCPU, signal.SIGKILL) and child["cpu_limit"] > 0 and cpu_ms >= child["cpu_limit"]:
+                result = "CPU"
+            else:
+                result = "SIGNAL"
+        else:
+            exit_code = os.WEXITSTATUS(status)
+            result = "CPU" if 0 < child["cpu_limit"] < cpu_ms else "OK"
+        send("DONE\t%s\t%s\t%d\t%d\t%d\t%d" % (child["id"], result, exit_code, elapsed_ms, memory, cpu_ms))
+
+
+def kill_group(pid):
+    try:
+        os.killpg(pid, signal.SIGKILL)
+    except OSError as e:
+        if e.errno not in (errno.ESRCH, errno.EPERM):
+            raise
+
+
+def kill_child(pid):
+    kill_group(pid)
+    try:
+        os.kill(pid, signal.SIGKILL)
+    except ProcessLookupError:
+        pass
+
+
+def kill_overdue():
+    now = time.monotonic()
+    for pid, child in children.items():
+        if child["deadline"] is not None and not child["timeout"] and now >= child["deadline"]:
+            child["timeout"] = True
+            kill_child(pid)
+
+
+def cancel(request_id):
+    for pid, child in children.items():
+        if child["id"] == request_id and not child["cancelled"]:
+            child["cancelled"] = True
+            kill_child(pid)
+
+
+def handle(line):
+    parts = line.split("\t")
+    if parts[0] == "COMPILE" and len(parts) == 5:
+        start_compile(parts)
+    elif parts[0] == "RUN" and len(parts) == 11:
+        start_run(parts)
+    elif parts[0] == "CANCEL" and len(parts) == 2:
+        cancel(parts[1])
+    elif parts[0] == "PING" and len(parts) == 2:
+        send("PONG\t%s\tOK" % parts[1])
+
+
+def terminate(signum, frame):
+    for pid in list(children):
+        kill_group(pid)
+    os._exit(0)
+
+
+def main():
+    signal.signal(signal.SIGPIPE, signal.SIG_DFL)
+    # 服务关闭或重启 zygote 时结束所有正在运行的子进程
+    signal.signal(signal.SIGTERM, terminate)
+    send("READY")
+    buffer = b""
+    while True:
+        readable, _, _ = select.select([0], [], [], POLL_INTERVAL if children else None)
+        if readable:
+            data = os.read(0, 65536)
+            if not data:
+                break
+            buffer += data
+            while b"\n" in buffer:
+                line, buffer = buffer.split(b"\n", 1)
+                if line:
+                    handle(line.decode("utf-8"))
+        reap()
+        kill_overdue()
+    for pid in list(children):
+        kill_group(pid)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,120 @@
+package com.ppx.ppxojcodesandbox.checker;
+
+import com.ppx.ppxojcodesandbox.constant.ExitCodeConstant;
+import com.ppx.ppxojcodesandbox.model.ExecuteMessage;
+import com.ppx.ppxojcodesandbox.model.enums.CompareModeEnum;
+import com.ppx.ppxojcodesandbox.model.enums.JudgeInfoMessageEnum;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputCheckerTest {
+
+    @Test
+    void exactIgnoresCarriageReturnAndTrailingWhitespace() {
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, check("1 2\n3\n", "1 2\r\n3", CompareModeEnum.EXACT));
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, check("1 2\n3", "1 2\n3\n\n  ", CompareModeEnum.EXACT));
+    }
+
+    @Test
+    void exactReportsPresentationErrorWhenOnlyWhitespaceDiffers() {
+        assertEquals(JudgeInfoMessageEnum.PRESENTATION_ERROR, check("1 2\n3", "1  2\n3", CompareModeEnum.EXACT));
+        assertEquals(JudgeInfoMessageEnum.PRESENTATION_ERROR, check("1 2\n3", "1 2 3", CompareModeEnum.EXACT));
+    }
+
+    @Test
+    void exactReportsWrongAnswerWhenTokensDiffer() {
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, check("1 2\n3", "1 2\n4", CompareModeEnum.EXACT));
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, check("1 2\n3", "1 2", CompareModeEnum.EXACT));
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, check("1 2", "1 2 3", CompareModeEnum.EXACT));
+    }
+
+    @Test
+    void tokenIgnoresWhitespaceLayout() {
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, check("1 2\n3", "1\n\n2   3\n", CompareModeEnum.TOKEN));
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, check("1 2\n3", "1 23", CompareModeEnum.TOKEN));
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, check("abc", "ab", CompareModeEnum.TOKEN));
+    }
+
+    @Test
+    void floatComparesWithinTolerance() {
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, check("0.3333333", "0.333333333", CompareModeEnum.FLOAT, 1e-6));
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, check("0.3333", "0.333333333", CompareModeEnum.FLOAT, 1e-6));
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, check("0.3333", "0.333333333", CompareModeEnum.FLOAT, 1e-3));
+        // 相对误差
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, check("1000000000", "1000000001", CompareModeEnum.FLOAT, 1e-6));
+        // 不是数字的词按原样比较
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, check("yes 1.0", "yes 1.0000001", CompareModeEnum.FLOAT, 1e-6));
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, check("yes 1.0", "no 1.0", CompareModeEnum.FLOAT, 1e-6));
+    }
+
+    @Test
+    void rejectsAsSoonAsTokenMismatches() {
+        OutputChecker checker = new OutputChecker("1 2 3", CompareModeEnum.TOKEN, OutputChecker.DEFAULT_FLOAT_TOLERANCE);
+        feedInChunks(checker, "1 5 ");
+        assertTrue(checker.isRejected());
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER, checker.finish());
+    }
+
+    @Test
+    void feedingByteByByteGivesSameResult() {
+        OutputChecker checker = new OutputChecker("12 34\n56", CompareModeEnum.EXACT, OutputChecker.DEFAULT_FLOAT_TOLERANCE);
+        byte[] output = "12 34\r\n56\n".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < output.length; i++) {
+            checker.feed(output, i, 1);
+        }
+        assertFalse(checker.isRejected());
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED, checker.finish());
+    }
+
+    @Test
+    void applyVerdictSetsExitCodeAndClearsOutput() {
+        OutputChecker checker = new OutputChecker("3", CompareModeEnum.EXACT, OutputChecker.DEFAULT_FLOAT_TOLERANCE);
+        feedInChunks(checker, "4\n");
+        ExecuteMessage executeMessage = ExecuteMessage.builder().exitValue(0).message("4").build();
+        OutputChecker.applyVerdict(executeMessage, checker);
+        assertEquals(ExitCodeConstant.WRONG_ANSWER_EXIT_CODE, executeMessage.getExitValue());
+        assertNull(executeMessage.getMessage());
+
+        checker = new OutputChecker("1 2", CompareModeEnum.EXACT, OutputChecker.DEFAULT_FLOAT_TOLERANCE);
+        feedInChunks(checker, "1\n2\n");
+        executeMessage = ExecuteMessage.builder().exitValue(0).message("1\n2").build();
+        OutputChecker.applyVerdict(executeMessage, checker);
+        assertEquals(ExitCodeConstant.PRESENTATION_ERROR_EXIT_CODE, executeMessage.getExitValue());
+    }
+
+    @Test
+    void applyVerdictKeepsRuntimeErrorWhenNotRejected() {
+        OutputChecker checker = new OutputChecker("1 2", CompareModeEnum.EXACT, OutputChecker.DEFAULT_FLOAT_TOLERANCE);
+        feedInChunks(checker, "1");
+        ExecuteMessage executeMessage = ExecuteMessage.builder().exitValue(1).errorMessage("Exception").build();
+        OutputChecker.applyVerdict(executeMessage, checker);
+        assertEquals(1, executeMessage.getExitValue());
+        assertEquals("Exception", executeMessage.getErrorMessage());
+    }
+
+    private static JudgeInfoMessageEnum check(String expected, String output, CompareModeEnum compareMode) {
+        return check(expected, output, compareMode, OutputChecker.DEFAULT_FLOAT_TOLERANCE);
+    }
+
+    private static JudgeInfoMessageEnum check(String expected, String output, CompareModeEnum compareMode, double tolerance) {
+        OutputChecker checker = new OutputChecker(expected, compareMode, tolerance);
+        feedInChunks(checker, output);
+        return checker.finish();
+    }
+
+    /**
+     * 分成两块喂入，覆盖词跨块的情况
+     */
+    private static void feedInChunks(OutputChecker checker, String output) {
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        int middle = bytes.length / 2;
+        checker.feed(bytes, 0, middle);
+        checker.feed(bytes, middle, bytes.length - middle);
+    }
+}
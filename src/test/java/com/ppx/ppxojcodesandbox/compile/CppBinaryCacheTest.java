@@ -0,0 +1,105 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CppBinaryCacheTest {
+
+    private static final String KEY_A = "aa01";
+
+    private static final String KEY_B = "bb02";
+
+    private static final String KEY_C = "cc03";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void evictsLeastRecentlyUsedByBytes() {
+        // 只放得下两个 100 字节的条目
+        CppBinaryCache cache = newCache(250L);
+        File binary = writeBinary("binary", 100);
+        cache.putBinary(KEY_A, binary);
+        cache.putBinary(KEY_B, binary);
+        // 访问 a 之后 b 变成最久未使用
+        assertTrue(cache.copyBinaryTo(KEY_A, new File(tempDir, "a.out")));
+        cache.putBinary(KEY_C, binary);
+
+        assertTrue(cache.copyBinaryTo(KEY_A, new File(tempDir, "a.out")));
+        assertFalse(cache.copyBinaryTo(KEY_B, new File(tempDir, "b.out")));
+        assertTrue(cache.copyBinaryTo(KEY_C, new File(tempDir, "c.out")));
+        assertFalse(new File(new File(tempDir, "cache/bb"), KEY_B + ".bin").exists());
+        assertArrayEquals(FileUtil.readBytes(binary), FileUtil.readBytes(new File(tempDir, "c.out")));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1L, stats.getEvictionCount());
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(200L, stats.getByteSize());
+    }
+
+    @Test
+    void compileErrorsShareTheByteLimit() {
+        CppBinaryCache cache = newCache(220L);
+        cache.putBinary(KEY_A, writeBinary("binary", 200));
+        cache.putCompileError(KEY_B, "main.cpp:1:1: error: expected unqualified-id");
+        assertEquals("main.cpp:1:1: error: expected unqualified-id", cache.getCompileError(KEY_B));
+        assertFalse(cache.copyBinaryTo(KEY_A, new File(tempDir, "a.out")));
+        assertNull(cache.getCompileError(KEY_A));
+    }
+
+    @Test
+    void rebuildsLruOrderFromDiskOnRestart() {
+        CppBinaryCache cache = newCache(250L);
+        File binary = writeBinary("binary", 100);
+        cache.putBinary(KEY_A, binary);
+        cache.putBinary(KEY_B, binary);
+        // 修改时间记录最近使用时间，让 b 比 a 更早被使用
+        File cacheRoot = new File(tempDir, "cache");
+        new File(new File(cacheRoot, "aa"), KEY_A + ".bin").setLastModified(System.currentTimeMillis());
+        new File(new File(cacheRoot, "bb"), KEY_B + ".bin").setLastModified(System.currentTimeMillis() - 60000L);
+
+        CppBinaryCache restarted = newCache(250L);
+        assertEquals(2, restarted.getStats().getEntryCount());
+        restarted.putBinary(KEY_C, binary);
+        assertTrue(restarted.copyBinaryTo(KEY_A, new File(tempDir, "a.out")));
+        assertFalse(restarted.copyBinaryTo(KEY_B, new File(tempDir, "b.out")));
+    }
+
+    @Test
+    void skipsEntriesOverSizeLimit() {
+        CppBinaryCache cache = newCache(1000L);
+        ReflectionTestUtils.setField(cache, "maxEntryBytes", 50L);
+        cache.putBinary(KEY_A, writeBinary("binary", 100));
+        assertFalse(cache.copyBinaryTo(KEY_A, new File(tempDir, "a.out")));
+        assertEquals(0, cache.getStats().getEntryCount());
+    }
+
+    private CppBinaryCache newCache(long maxBytes) {
+        CppBinaryCache cache = new CppBinaryCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "cacheDir", new File(tempDir, "cache").getAbsolutePath());
+        ReflectionTestUtils.setField(cache, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(cache, "maxEntryBytes", Long.MAX_VALUE);
+        cache.init();
+        return cache;
+    }
+
+    private File writeBinary(String name, int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) i;
+        }
+        return FileUtil.writeBytes(bytes, new File(tempDir, name));
+    }
+}
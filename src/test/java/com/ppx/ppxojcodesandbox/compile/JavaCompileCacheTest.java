@@ -0,0 +1,72 @@
+package com.ppx.ppxojcodesandbox.compile;
+
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JavaCompileCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedByBytes() {
+        CompileCacheEntry a = entry(1000);
+        CompileCacheEntry b = entry(1000);
+        CompileCacheEntry c = entry(1000);
+        // 只放得下两个条目
+        JavaCompileCache cache = new JavaCompileCache(a.getByteSize() * 2 + 100, Long.MAX_VALUE);
+        cache.put("a", a);
+        cache.put("b", b);
+        // 访问 a 之后 b 变成最久未使用
+        assertSame(a, cache.get("a"));
+        cache.put("c", c);
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertSame(c, cache.get("c"));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1L, stats.getEvictionCount());
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(a.getByteSize() + c.getByteSize(), stats.getByteSize());
+        assertEquals(3L, stats.getHitCount());
+        assertEquals(1L, stats.getMissCount());
+    }
+
+    @Test
+    void replacingEntryUpdatesByteSize() {
+        JavaCompileCache cache = new JavaCompileCache(Long.MAX_VALUE, Long.MAX_VALUE);
+        cache.put("a", entry(1000));
+        CompileCacheEntry smaller = entry(10);
+        cache.put("a", smaller);
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEntryCount());
+        assertEquals(smaller.getByteSize(), stats.getByteSize());
+    }
+
+    @Test
+    void skipsEntriesOverSizeLimit() {
+        CompileCacheEntry large = entry(10000);
+        JavaCompileCache cache = new JavaCompileCache(Long.MAX_VALUE, large.getByteSize() - 1);
+        cache.put("large", large);
+        assertNull(cache.get("large"));
+        cache.put("error", CompileCacheEntry.failure("Main.java:1: error"));
+        assertNotNull(cache.get("error"));
+    }
+
+    @Test
+    void keyDependsOnCodeAndOptions() {
+        String key = JavaCompileCache.buildKey("class Main {}", "-encoding utf-8");
+        assertEquals(key, JavaCompileCache.buildKey("class Main {}", "-encoding utf-8"));
+        assertNotEquals(key, JavaCompileCache.buildKey("class Main {}", "-encoding gbk"));
+        assertNotEquals(key, JavaCompileCache.buildKey("class Main { }", "-encoding utf-8"));
+    }
+
+    private static CompileCacheEntry entry(int classBytes) {
+        return CompileCacheEntry.success(Collections.singletonMap("Main.class", new byte[classBytes]));
+    }
+}
@@ -0,0 +1,99 @@
+package com.ppx.ppxojcodesandbox.rpc;
+
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeRequest;
+import com.ppx.ppxojcodesandbox.model.ExecuteCodeResponse;
+import com.ppx.ppxojcodesandbox.model.JudgeInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RpcCodecTest {
+
+    @Test
+    void requestRoundTrip() throws IOException {
+        ExecuteCodeRequest request = ExecuteCodeRequest.builder()
+                .inputList(Arrays.asList("1 2", "", null, "中文输入"))
+                .problemId("1001")
+                .testDataVersion("v3")
+                .code("public class Main {}")
+                .language("java")
+                .timeLimit(1000L)
+                .cpuTimeLimit(-1L)
+                .outputLimit(Long.MAX_VALUE)
+                .memoryLimit(Long.MIN_VALUE)
+                .compileProfile("o2")
+                .expectedOutputList(Collections.singletonList("3"))
+                .compareMode("float")
+                .floatTolerance(1e-6)
+                .build();
+        assertEquals(request, roundTrip(request));
+    }
+
+    @Test
+    void requestRoundTripKeepsNullFields() throws IOException {
+        ExecuteCodeRequest request = ExecuteCodeRequest.builder().code("print(1)").language("python").build();
+        ExecuteCodeRequest decoded = roundTrip(request);
+        assertEquals(request, decoded);
+        assertNull(decoded.getInputList());
+        assertNull(decoded.getTimeLimit());
+        assertNull(decoded.getFloatTolerance());
+    }
+
+    @Test
+    void responseRoundTrip() throws IOException {
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage("Accepted");
+        judgeInfo.setTime(15L);
+        judgeInfo.setMemory(1024L);
+        ExecuteCodeResponse response = ExecuteCodeResponse.builder()
+                .outputList(Arrays.asList("3", "7"))
+                .status(1)
+                .judgeInfo(judgeInfo)
+                .verdictList(Arrays.asList("Accepted", "Accepted"))
+                .build();
+        RpcCodec.FrameBuffer buffer = new RpcCodec.FrameBuffer(64);
+        RpcCodec.writeResponse(buffer, response);
+        ExecuteCodeResponse decoded = RpcCodec.readResponse(buffer.payload());
+        assertEquals(response, decoded);
+        assertNull(decoded.getMessage());
+        assertNull(decoded.getJudgeInfo().getCpuTime());
+    }
+
+    @Test
+    void rejectsUnknownFieldBits() {
+        // 位图里第 13 位（请求只有 13 个字段）不认识
+        ByteBuffer request = ByteBuffer.wrap(new byte[]{(byte) 0x80, 0x40});
+        IOException e = assertThrows(IOException.class, () -> RpcCodec.readRequest(request));
+        assertEquals("消息包含不支持的字段，请确认客户端和沙箱的协议版本", e.getMessage());
+        // 响应只有 5 个字段
+        ByteBuffer response = ByteBuffer.wrap(new byte[]{0x20});
+        assertThrows(IOException.class, () -> RpcCodec.readResponse(response));
+    }
+
+    @Test
+    void rejectsTruncatedAndTrailingData() throws IOException {
+        RpcCodec.FrameBuffer buffer = new RpcCodec.FrameBuffer(64);
+        RpcCodec.writeRequest(buffer, ExecuteCodeRequest.builder().code("int main() {}").language("cpp").build());
+        ByteBuffer payload = buffer.payload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        ByteBuffer shorter = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> RpcCodec.readRequest(shorter));
+        ByteBuffer longer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length + 1));
+        assertThrows(IOException.class, () -> RpcCodec.readRequest(longer));
+        assertThrows(IOException.class, () -> RpcCodec.readRequest(ByteBuffer.allocate(0)));
+    }
+
+    private static ExecuteCodeRequest roundTrip(ExecuteCodeRequest request) throws IOException {
+        RpcCodec.FrameBuffer buffer = new RpcCodec.FrameBuffer(64);
+        RpcCodec.writeRequest(buffer, request);
+        return RpcCodec.readRequest(buffer.payload());
+    }
+}
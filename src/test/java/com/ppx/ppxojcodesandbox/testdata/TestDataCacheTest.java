@@ -0,0 +1,145 @@
+package com.ppx.ppxojcodesandbox.testdata;
+
+import cn.hutool.core.io.FileUtil;
+import com.ppx.ppxojcodesandbox.model.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TestDataCacheTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void evictsLeastRecentlyUsedByBytes() {
+        // 只放得下两套 100 字节的测试数据
+        TestDataCache cache = newCache(250L);
+        TestDataSet a = writeSet("1", "v1", 50);
+        TestDataSet b = writeSet("2", "v1", 50);
+        TestDataSet c = writeSet("3", "v1", 50);
+        TestDataCache.Entry entryA = cache.get(a);
+        TestDataCache.Entry entryB = cache.get(b);
+        // 访问 a 之后 b 变成最久未使用
+        assertSame(entryA, cache.get(a));
+        TestDataCache.Entry entryC = cache.get(c);
+
+        assertSame(entryA, cache.get(a));
+        assertSame(entryC, cache.get(c));
+        CacheStats stats = cache.getStats();
+        assertEquals(1L, stats.getEvictionCount());
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(200L, stats.getByteSize());
+        assertEquals(3L, stats.getHitCount());
+        assertEquals(3L, stats.getMissCount());
+
+        // 被淘汰的 b 需要重新加载
+        assertNotSame(entryB, cache.get(b));
+        assertEquals(4L, cache.getStats().getMissCount());
+    }
+
+    @Test
+    void rejectsStaleSetAfterReupload() {
+        TestDataCache cache = newCache(Long.MAX_VALUE);
+        TestDataSet original = writeSet("1", "v1", "1 2", "3");
+        TestDataCache.Entry originalEntry = cache.get(original);
+        assertEquals("1 2", read(originalEntry.getInput(0)));
+
+        // 同一版本删除后重新上传，内容不同但 problemId 和 version 相同
+        TestDataSet reuploaded = writeSet("1", "v1", "4 5", "9");
+        TestDataCache.Entry reuploadedEntry = cache.get(reuploaded);
+        assertNotSame(originalEntry, reuploadedEntry);
+        assertEquals("4 5", read(reuploadedEntry.getInput(0)));
+        assertEquals("9", read(reuploadedEntry.getExpectedOutput(0)));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(0L, stats.getHitCount());
+        assertEquals(2L, stats.getMissCount());
+        assertEquals(1, stats.getEntryCount());
+        assertEquals(reuploaded.getByteSize(), stats.getByteSize());
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        TestDataCache cache = newCache(Long.MAX_VALUE);
+        TestDataSet written = writeSet("1", "v1", "1 2", "3");
+        AtomicInteger loadCount = new AtomicInteger(0);
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        // 加载时第一步读取用例数量，在这里阻塞第一个加载线程
+        TestDataSet blocking = new TestDataSet(written.getProblemId(), written.getVersion(), written.getInputFiles(),
+                written.getOutputFiles(), written.getByteSize()) {
+            @Override
+            public int size() {
+                loadCount.incrementAndGet();
+                loadStarted.countDown();
+                try {
+                    releaseLoad.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.size();
+            }
+        };
+        AtomicReference<TestDataCache.Entry> loaderEntry = new AtomicReference<>();
+        AtomicReference<TestDataCache.Entry> waiterEntry = new AtomicReference<>();
+        Thread loader = new Thread(() -> loaderEntry.set(cache.get(blocking)));
+        loader.start();
+        loadStarted.await();
+        Thread waiter = new Thread(() -> waiterEntry.set(cache.get(blocking)));
+        waiter.start();
+        // 第二个线程未命中后等待第一个线程的加载结果
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(10L);
+        }
+        releaseLoad.countDown();
+        loader.join();
+        waiter.join();
+
+        assertEquals(1, loadCount.get());
+        assertNotNull(loaderEntry.get());
+        assertSame(loaderEntry.get(), waiterEntry.get());
+        assertEquals(2L, cache.getStats().getMissCount());
+    }
+
+    private TestDataCache newCache(long maxBytes) {
+        TestDataCache cache = new TestDataCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(cache, "maxEntryBytes", Long.MAX_VALUE);
+        return cache;
+    }
+
+    private TestDataSet writeSet(String problemId, String version, int bytesPerFile) {
+        String content = new String(new char[bytesPerFile]).replace('\0', 'x');
+        return writeSet(problemId, version, content, content);
+    }
+
+    /**
+     * 每次写到新的目录，模拟删除后重新上传
+     */
+    private TestDataSet writeSet(String problemId, String version, String input, String output) {
+        File dir = new File(tempDir, problemId + "-" + version + "-" + System.nanoTime());
+        File inputFile = FileUtil.writeString(input, new File(dir, "1.in"), StandardCharsets.UTF_8);
+        File outputFile = FileUtil.writeString(output, new File(dir, "1.out"), StandardCharsets.UTF_8);
+        return new TestDataSet(problemId, version, Collections.singletonList(inputFile),
+                Collections.singletonList(outputFile), inputFile.length() + outputFile.length());
+    }
+
+    private static String read(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.ppx.ppxojcodesandbox.utils;
+
+import cn.hutool.core.io.IoUtil;
+import com.ppx.ppxojcodesandbox.model.enums.ContentEncodingEnum;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompressionUtilTest {
+
+    @Test
+    void negotiatePrefersHigherQuality() {
+        assertEquals(ContentEncodingEnum.GZIP, CompressionUtil.negotiate("gzip;q=0.9, lz4;q=0.5"));
+        assertEquals(ContentEncodingEnum.LZ4, CompressionUtil.negotiate("gzip;q=0.5, lz4;q=0.9"));
+        assertEquals(ContentEncodingEnum.LZ4, CompressionUtil.negotiate("gzip;q=0.5,lz4"));
+    }
+
+    @Test
+    void negotiateBreaksTiesByEnumOrder() {
+        assertEquals(ContentEncodingEnum.LZ4, CompressionUtil.negotiate("gzip, lz4"));
+        assertEquals(ContentEncodingEnum.GZIP, CompressionUtil.negotiate("gzip, deflate, br"));
+    }
+
+    @Test
+    void negotiateHonoursZeroQuality() {
+        assertNull(CompressionUtil.negotiate("gzip;q=0"));
+        assertEquals(ContentEncodingEnum.GZIP, CompressionUtil.negotiate("lz4;q=0, gzip;q=0.1"));
+        // q 值格式错误按不接受处理
+        assertNull(CompressionUtil.negotiate("gzip;q=abc"));
+    }
+
+    @Test
+    void negotiateWildcardOnlyEnablesGzip() {
+        assertEquals(ContentEncodingEnum.GZIP, CompressionUtil.negotiate("*"));
+        assertEquals(ContentEncodingEnum.GZIP, CompressionUtil.negotiate("identity, *;q=0.5"));
+        // 明确列出的压缩方式以自己的 q 值为准
+        assertNull(CompressionUtil.negotiate("gzip;q=0, *"));
+        assertEquals(ContentEncodingEnum.LZ4, CompressionUtil.negotiate("*;q=0.5, lz4;q=0.8"));
+        assertNull(CompressionUtil.negotiate("*;q=0"));
+    }
+
+    @Test
+    void negotiateWithoutSupportedEncoding() {
+        assertNull(CompressionUtil.negotiate(null));
+        assertNull(CompressionUtil.negotiate(" "));
+        assertNull(CompressionUtil.negotiate("identity"));
+        assertNull(CompressionUtil.negotiate("deflate, br"));
+    }
+
+    @Test
+    void roundTripForEachEncoding() throws IOException {
+        byte[] data = new byte[100 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 31);
+        }
+        for (ContentEncodingEnum encoding : ContentEncodingEnum.values()) {
+            byte[] compressed = compress(encoding, data);
+            try (InputStream in = CompressionUtil.wrapInput(encoding, new ByteArrayInputStream(compressed), data.length)) {
+                assertArrayEquals(data, IoUtil.readBytes(in));
+            }
+        }
+    }
+
+    @Test
+    void wrapInputStopsAtSizeLimit() throws IOException {
+        byte[] data = new byte[1024 * 1024];
+        for (ContentEncodingEnum encoding : ContentEncodingEnum.values()) {
+            byte[] compressed = compress(encoding, data);
+            InputStream in = CompressionUtil.wrapInput(encoding, new ByteArrayInputStream(compressed), data.length - 1);
+            assertThrows(CompressionUtil.SizeLimitExceededException.class, () -> drain(in));
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) >= 0) {
+            // 只关心读到多少字节
+        }
+    }
+
+    private static byte[] compress(ContentEncodingEnum encoding, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = CompressionUtil.wrapOutput(encoding, bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+package com.ppx.ppxojcodesandbox.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelCaseRunnerTest {
+
+    @Test
+    void resultsAndCallbacksFollowInputOrder() {
+        // 排在前面的用例最慢，完成顺序和输入顺序相反
+        List<Integer> callbackOrder = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> results = ParallelCaseRunner.runAll(4, 4,
+                index -> {
+                    sleep((4 - index) * 50L);
+                    return index;
+                },
+                result -> false,
+                (result, index) -> callbackOrder.add(index));
+        assertEquals(Arrays.asList(0, 1, 2, 3), results);
+        assertEquals(Arrays.asList(0, 1, 2, 3), callbackOrder);
+    }
+
+    @Test
+    void stopsAtFirstFailureWithoutLeakingLaterResults() {
+        // 用例 1 失败但完成得晚，用例 2、3 先完成也不能回调
+        List<Integer> callbackOrder = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> results = ParallelCaseRunner.runAll(4, 4,
+                index -> {
+                    sleep(index == 1 ? 200L : 10L);
+                    return index;
+                },
+                result -> result == 1,
+                (result, index) -> callbackOrder.add(index));
+        assertEquals(Arrays.asList(0, 1), results);
+        assertEquals(Arrays.asList(0, 1), callbackOrder);
+    }
+
+    @Test
+    void cancelsCasesAfterFailure() {
+        AtomicInteger started = new AtomicInteger(0);
+        AtomicInteger interrupted = new AtomicInteger(0);
+        long startTime = System.currentTimeMillis();
+        List<Integer> results = ParallelCaseRunner.runAll(4, 4,
+                index -> {
+                    if (index == 0) {
+                        sleep(100L);
+                        return -1;
+                    }
+                    started.incrementAndGet();
+                    try {
+                        Thread.sleep(10000L);
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                    }
+                    return index;
+                },
+                result -> result < 0);
+        assertEquals(Collections.singletonList(-1), results);
+        assertTrue(System.currentTimeMillis() - startTime < 5000L);
+        // 取消是异步的，等已经开始的用例响应中断
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (interrupted.get() < started.get() && System.currentTimeMillis() < deadline) {
+            sleep(10L);
+        }
+        assertEquals(started.get(), interrupted.get());
+    }
+
+    @Test
+    void sequentialWhenParallelismIsOne() {
+        AtomicInteger executed = new AtomicInteger(0);
+        List<Integer> results = ParallelCaseRunner.runAll(5, 1,
+                index -> {
+                    executed.incrementAndGet();
+                    return index;
+                },
+                result -> result == 2);
+        assertEquals(Arrays.asList(0, 1, 2), results);
+        assertEquals(3, executed.get());
+    }
+
+    @Test
+    void rethrowsExceptionOfEarliestCase() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> ParallelCaseRunner.runAll(3, 3,
+                index -> {
+                    if (index == 1) {
+                        throw new IllegalStateException("case 1");
+                    }
+                    return index;
+                },
+                result -> false));
+        assertEquals("case 1", e.getMessage());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}